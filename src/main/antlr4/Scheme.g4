@@ -16,10 +16,23 @@ procedure_definition: '(' 'define' '(' proc_name param* ')' definition* expressi
 expression: constant
           | application
           | IDENTIFIER
+          | let_expression
+          | lambda_expression
           ;
 
 application: '(' IDENTIFIER expression* ')';
 
+let_expression: '(' let_keyword '(' binding* ')' expression+ ')';
+
+let_keyword: 'let'
+           | 'let*'
+           | 'letrec'
+           ;
+
+binding: '(' IDENTIFIER expression ')';
+
+lambda_expression: '(' 'lambda' '(' param* ')' expression+ ')';
+
 datum: constant
      | list
      | IDENTIFIER;
@@ -0,0 +1,185 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class BatchCompiler {
+
+    private static final String SOURCE_FILE_SUFFIX = ".scm";
+    private static final String JAR_FILE_SUFFIX = ".jar";
+
+    private final Compiler.Backend backend;
+    private final Path outputDirectory;
+    private final int parallelism;
+    private CompilationCache compilationCache;
+
+    public BatchCompiler(Compiler.Backend backend, Path outputDirectory, int parallelism) {
+        this.backend = backend;
+        this.outputDirectory = outputDirectory;
+        this.parallelism = parallelism;
+    }
+
+    public void setCompilationCache(CompilationCache compilationCache) {
+        this.compilationCache = compilationCache;
+    }
+
+    public static List<Path> collectSourceFiles(List<Path> paths) throws IOException {
+        List<Path> sourceFiles = new ArrayList<>();
+        for (Path path : paths) {
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> files = Files.walk(path)) {
+                    sourceFiles.addAll(files
+                            .filter(file -> file.getFileName().toString().endsWith(SOURCE_FILE_SUFFIX))
+                            .filter(Files::isRegularFile)
+                            .sorted()
+                            .collect(Collectors.toList()));
+                }
+            } else {
+                sourceFiles.add(path);
+            }
+        }
+        return sourceFiles;
+    }
+
+    public List<Result> compile(List<Path> sourceFiles) throws IOException, InterruptedException {
+        Files.createDirectories(outputDirectory);
+
+        ThreadLocal<Compiler> compilers = ThreadLocal.withInitial(() -> {
+            Compiler compiler = new Compiler(null, backend);
+            compiler.setCompilationCache(compilationCache);
+            return compiler;
+        });
+
+        Path sourceDirectory = findCommonDirectory(sourceFiles);
+        List<Callable<Result>> tasks = new ArrayList<>();
+        for (Path sourceFile : sourceFiles) {
+            tasks.add(() -> compileFile(compilers.get(), sourceFile, sourceDirectory));
+        }
+
+        ForkJoinPool forkJoinPool = new ForkJoinPool(parallelism);
+        try {
+            List<Result> results = new ArrayList<>();
+            for (Future<Result> future : forkJoinPool.invokeAll(tasks)) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+            return results;
+        } finally {
+            forkJoinPool.shutdown();
+            forkJoinPool.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+
+    private static Path findCommonDirectory(List<Path> sourceFiles) {
+        Path commonDirectory = null;
+        for (Path sourceFile : sourceFiles) {
+            Path directory = sourceFile.toAbsolutePath().normalize().getParent();
+            if (commonDirectory == null) {
+                commonDirectory = directory;
+            }
+            while (!directory.startsWith(commonDirectory)) {
+                commonDirectory = commonDirectory.getParent();
+            }
+        }
+        return commonDirectory;
+    }
+
+    private Result compileFile(Compiler compiler, Path sourceFile, Path sourceDirectory) {
+        Path relativeSourceFile = sourceDirectory.relativize(sourceFile.toAbsolutePath().normalize());
+        Path jarPath = outputDirectory.resolve(relativeSourceFile + JAR_FILE_SUFFIX);
+        File jarFile = jarPath.toFile();
+        long start = System.nanoTime();
+        try {
+            Files.createDirectories(jarPath.getParent());
+            String input = new String(Files.readAllBytes(sourceFile), StandardCharsets.UTF_8);
+            CompilationStatistics statistics = compiler.compile(input, jarFile);
+            return new Result(sourceFile, jarFile, System.nanoTime() - start, statistics, null);
+        } catch (Exception | StackOverflowError e) {
+            return new Result(sourceFile, jarFile, System.nanoTime() - start, null, e);
+        }
+    }
+
+    public void printSummary(List<Result> results, long elapsedNanos, PrintStream out) {
+        int failures = 0;
+        for (Result result : results) {
+            if (result.isSuccessful()) {
+                out.printf("OK     %s -> %s (%d ms)%n", result.getSourceFile(), result.getJarFile(),
+                        TimeUnit.NANOSECONDS.toMillis(result.getElapsedNanos()));
+            } else {
+                failures++;
+                out.printf("FAILED %s (%d ms): %s%n", result.getSourceFile(),
+                        TimeUnit.NANOSECONDS.toMillis(result.getElapsedNanos()), describe(result.getFailure()));
+            }
+        }
+
+        out.printf("Compiled %d files in %d ms: %d succeeded, %d failed%n", results.size(),
+                TimeUnit.NANOSECONDS.toMillis(elapsedNanos), results.size() - failures, failures);
+        if (compilationCache != null) {
+            out.printf("Cache: %d hits, %d misses%n", compilationCache.getHits(), compilationCache.getMisses());
+        }
+    }
+
+    private static String describe(Throwable failure) {
+        while (failure.getMessage() == null && failure.getCause() != null) {
+            failure = failure.getCause();
+        }
+        return failure.getMessage() != null ? failure.getMessage() : failure.getClass().getName();
+    }
+
+    public static class Result {
+        private final Path sourceFile;
+        private final File jarFile;
+        private final long elapsedNanos;
+        private final CompilationStatistics statistics;
+        private final Throwable failure;
+
+        private Result(Path sourceFile, File jarFile, long elapsedNanos, CompilationStatistics statistics,
+                       Throwable failure) {
+            this.sourceFile = sourceFile;
+            this.jarFile = jarFile;
+            this.elapsedNanos = elapsedNanos;
+            this.statistics = statistics;
+            this.failure = failure;
+        }
+
+        public Path getSourceFile() {
+            return sourceFile;
+        }
+
+        public File getJarFile() {
+            return jarFile;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public CompilationStatistics getStatistics() {
+            return statistics;
+        }
+
+        public Throwable getFailure() {
+            return failure;
+        }
+
+        public boolean isSuccessful() {
+            return failure == null;
+        }
+
+    }
+
+}
@@ -3,26 +3,100 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 
 public class ByteScheme {
 
-    public static void main(String[] args) throws IOException {
-        if (args.length != 1) {
+    private static final String BACKEND_OPTION = "--backend=";
+    private static final String CACHE_DIRECTORY_OPTION = "--cache-dir=";
+    private static final String CACHE_SIZE_OPTION = "--cache-size=";
+    private static final String JOBS_OPTION = "--jobs=";
+    private static final String OUTPUT_DIRECTORY_OPTION = "--output-dir=";
+    private static final String STATISTICS_OPTION = "--stats";
+    private static final long DEFAULT_CACHE_SIZE = 256L * 1024 * 1024;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Compiler.Backend backend = Compiler.Backend.SOURCE;
+        String cacheDirectory = null;
+        long cacheSize = DEFAULT_CACHE_SIZE;
+        int jobs = Runtime.getRuntime().availableProcessors();
+        String outputDirectory = ".";
+        boolean printStatistics = false;
+        List<String> sourceFileNames = new ArrayList<>();
+
+        for (String arg : args) {
+            if (arg.startsWith(BACKEND_OPTION)) {
+                backend = Compiler.Backend.valueOf(arg.substring(BACKEND_OPTION.length()).toUpperCase());
+            } else if (arg.startsWith(CACHE_DIRECTORY_OPTION)) {
+                cacheDirectory = arg.substring(CACHE_DIRECTORY_OPTION.length());
+            } else if (arg.startsWith(CACHE_SIZE_OPTION)) {
+                cacheSize = Long.parseLong(arg.substring(CACHE_SIZE_OPTION.length()));
+            } else if (arg.startsWith(JOBS_OPTION)) {
+                jobs = Integer.parseInt(arg.substring(JOBS_OPTION.length()));
+            } else if (arg.startsWith(OUTPUT_DIRECTORY_OPTION)) {
+                outputDirectory = arg.substring(OUTPUT_DIRECTORY_OPTION.length());
+            } else if (arg.equals(STATISTICS_OPTION)) {
+                printStatistics = true;
+            } else {
+                sourceFileNames.add(arg);
+            }
+        }
+
+        if (sourceFileNames.isEmpty()) {
             System.err.println("Received wrong number of arguments");
             System.exit(1);
         }
 
-        String sourceFileName = args[0];
+        CompilationCache compilationCache = null;
+        if (cacheDirectory != null) {
+            compilationCache = new CompilationCache(Paths.get(cacheDirectory), cacheSize);
+        }
+
+        if (sourceFileNames.size() > 1 || Files.isDirectory(Paths.get(sourceFileNames.get(0)))) {
+            List<Path> paths = new ArrayList<>();
+            for (String sourceFileName : sourceFileNames) {
+                paths.add(Paths.get(sourceFileName));
+            }
+
+            BatchCompiler batchCompiler = new BatchCompiler(backend, Paths.get(outputDirectory), jobs);
+            batchCompiler.setCompilationCache(compilationCache);
+
+            long start = System.nanoTime();
+            List<BatchCompiler.Result> results = batchCompiler.compile(BatchCompiler.collectSourceFiles(paths));
+            batchCompiler.printSummary(results, System.nanoTime() - start, System.out);
+
+            if (printStatistics) {
+                for (BatchCompiler.Result result : results) {
+                    if (result.isSuccessful()) {
+                        System.out.println();
+                        System.out.println(result.getSourceFile());
+                        result.getStatistics().print(System.out);
+                    }
+                }
+            }
+
+            if (!results.stream().allMatch(BatchCompiler.Result::isSuccessful)) {
+                System.exit(1);
+            }
+            return;
+        }
+
+        String sourceFileName = sourceFileNames.get(0);
 
         Path path = Paths.get(sourceFileName);
         byte[] inputByteContent = Files.readAllBytes(path);
         String sourceInput = new String(inputByteContent, "utf8");
 
         String outputFileName = path.getFileName() + ".jar";
-        File outputFile = new File(outputFileName);
+        File outputFile = new File(outputDirectory, outputFileName);
 
-        Compiler compiler = new Compiler(outputFile);
-        compiler.compile(sourceInput);
+        Compiler compiler = new Compiler(outputFile, backend);
+        compiler.setCompilationCache(compilationCache);
+        CompilationStatistics statistics = compiler.compile(sourceInput);
+        if (printStatistics) {
+            statistics.print(System.out);
+        }
     }
 
 }
@@ -0,0 +1,7 @@
+import java.util.List;
+
+public interface BytecodeGenProcedure {
+
+    void generateCode(List<SchemeParser.ExpressionContext> expressions);
+
+}
@@ -0,0 +1,1083 @@
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.bytecode.*;
+import lang.Util;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+
+import java.util.*;
+
+public class BytecodeGenVisitor extends SchemeBaseVisitor<Void> {
+
+    private static final String UNDEFINED_VARIABLE_EXCEPTION_MESSAGE = "Undefined variable '%s'";
+    private static final String UNDEFINED_PROCEDURE_EXCEPTION_MESSAGE = "Undefined procedure '%s'";
+    private static final String PREDEFINED_PROCEDURE_VALUE_EXCEPTION_MESSAGE =
+            "Predefined procedure '%s' cannot be used as a value";
+    private static final String OBJECT_CLASS = "java.lang.Object";
+    private static final String OBJECT_DESCRIPTOR = "Ljava/lang/Object;";
+    private static final String BOOLEAN_CLASS = "java.lang.Boolean";
+    private static final String BOOLEAN_DESCRIPTOR = "Ljava/lang/Boolean;";
+    private static final int MAXIMUM_MAIN_CHUNK_SIZE = 4000;
+    private static final String LITERAL_FIELD_NAME = "LITERAL_%d";
+    private static final String LITERAL_INITIALIZER_NAME = "initializeLiterals%d";
+    private static final String LAMBDA_METHOD_NAME = "evaluateLambda%d";
+    private static final String METHOD_HANDLE_FIELD_NAME = "HANDLE_%s";
+    private static final String METHOD_HANDLE_DESCRIPTOR = "Ljava/lang/invoke/MethodHandle;";
+    private static final String CLOSURE_CLASS = "runtime.Closure";
+    private static final String TAIL_CALL_CLASS = "runtime.TailCall";
+    private static final int MAXIMUM_FIXED_ARITY = 3;
+
+    private final ClassPool pool;
+    private final ClassFile classFile;
+    private final Map<String, BytecodeGenProcedure> procedureMap;
+    private final Map<String, BytecodeGenProcedure> predicateMap;
+
+    private Map<String, SchemeParser.Procedure_definitionContext> procedureDefinitions = new LinkedHashMap<>();
+    private Set<String> globalVariables = new HashSet<>();
+    private Set<String> definedGlobalVariables = new HashSet<>();
+    private List<String> mainChunkClassNames = new ArrayList<>();
+    private List<CtClass> chunkClasses = new ArrayList<>();
+    private Inliner inliner;
+    private ConstantFolder constantFolder;
+    private int inlineDepth = 0;
+    private Map<Object, String> literalFields = new HashMap<>();
+    private Set<String> methodHandleFields = new HashSet<>();
+    private Map<String, Lambda> globalLambdas = new HashMap<>();
+    private int lambdaIndex;
+    private MethodContext literalInitializer;
+    private int literalInitializerCount;
+    private TailCallAnalysis tailCallAnalysis;
+    private Set<String> generatedTailCallGroups = new HashSet<>();
+    private MethodContext method;
+
+    public BytecodeGenVisitor(ClassPool pool, ClassFile classFile) {
+        this.pool = pool;
+        this.classFile = classFile;
+
+        BytecodeProcedureMapInitializer procedureMapInitializer = new BytecodeProcedureMapInitializer(this);
+        procedureMap = procedureMapInitializer.getInitialMap();
+        predicateMap = procedureMapInitializer.getPredicateMap();
+    }
+
+    @Override
+    public Void visitProgram(SchemeParser.ProgramContext program) {
+        InternalDefinitionRewriter.rewrite(program);
+        program.form()
+                .stream()
+                .map(SchemeParser.FormContext::definition)
+                .filter(Objects::nonNull)
+                .forEach(this::collectDefinition);
+        tailCallAnalysis = new TailCallAnalysis(procedureDefinitions, this::isPredefined);
+        inliner = new Inliner(procedureDefinitions);
+        constantFolder = new ConstantFolder(procedureDefinitions.keySet(), inliner);
+
+        method = new MethodContext(null, 1, classFile);
+        program.form()
+                .stream()
+                .map(SchemeParser.FormContext::definition)
+                .filter(definition -> Objects.nonNull(definition) && isLambdaDefinition(definition))
+                .map(SchemeParser.DefinitionContext::variable_definition)
+                .forEach(variableDefinition -> globalLambdas.get(variableDefinition.IDENTIFIER().getText())
+                        .mayReturnTailCall = tailCallAnalysis.mayReturnTailCall(
+                        variableDefinition.expression().lambda_expression(),
+                        variableDefinition.IDENTIFIER().getText(), this::isVariable));
+        for (SchemeParser.FormContext form : program.form()) {
+            if (Objects.nonNull(form.definition())) {
+                visitDefinition(form.definition());
+            } else {
+                generateExpression(form.expression());
+                method.code.addOpcode(Opcode.POP);
+            }
+
+            if (method.code.getSize() > MAXIMUM_MAIN_CHUNK_SIZE) {
+                addMainChunk();
+                method = new MethodContext(null, 1, selectChunkClassFile());
+            }
+        }
+
+        if (mainChunkClassNames.isEmpty()) {
+            method.code.addOpcode(Opcode.RETURN);
+            addMethod("main", "([Ljava/lang/String;)V");
+        } else {
+            if (method.code.getSize() > 0) {
+                addMainChunk();
+            }
+
+            method = new MethodContext(null, 1, classFile);
+            for (int i = 0; i < mainChunkClassNames.size(); i++) {
+                String chunkMethodName = String.format(Compiler.MAIN_CHUNK_METHOD_NAME, i);
+                method.code.addInvokestatic(mainChunkClassNames.get(i), chunkMethodName, "()V");
+            }
+            method.code.addOpcode(Opcode.RETURN);
+            addMethod("main", "([Ljava/lang/String;)V");
+        }
+
+        addStaticInitializer();
+
+        return null;
+    }
+
+    public List<CtClass> getChunkClasses() {
+        return new ArrayList<>(chunkClasses);
+    }
+
+    private void addMainChunk() {
+        method.code.addOpcode(Opcode.RETURN);
+        addMethod(String.format(Compiler.MAIN_CHUNK_METHOD_NAME, mainChunkClassNames.size()), "()V");
+        mainChunkClassNames.add(method.classFile.getName());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void addStaticInitializer() {
+        if (literalInitializer == null) {
+            return;
+        }
+
+        if (literalInitializerCount > 0) {
+            if (literalInitializer.code.getSize() > 0) {
+                addLiteralInitializer();
+            }
+
+            List<FieldInfo> fields = classFile.getFields();
+            for (FieldInfo field : fields) {
+                if (literalFields.containsValue(field.getName()) || methodHandleFields.contains(field.getName())) {
+                    field.setAccessFlags(AccessFlag.STATIC);
+                }
+            }
+
+            literalInitializer = new MethodContext(null, 0, classFile);
+            for (int i = 0; i < literalInitializerCount; i++) {
+                literalInitializer.code.addInvokestatic(classFile.getName(),
+                        String.format(LITERAL_INITIALIZER_NAME, i), "()V");
+            }
+        }
+
+        literalInitializer.code.addOpcode(Opcode.RETURN);
+        addMethod(literalInitializer, MethodInfo.nameClinit, "()V", AccessFlag.STATIC);
+    }
+
+    private void addLiteralInitializer() {
+        literalInitializer.code.addOpcode(Opcode.RETURN);
+        addMethod(literalInitializer, String.format(LITERAL_INITIALIZER_NAME, literalInitializerCount++), "()V",
+                AccessFlag.PRIVATE | AccessFlag.STATIC);
+        literalInitializer = new MethodContext(null, 0, classFile);
+    }
+
+    private ClassFile selectChunkClassFile() {
+        ClassFile chunkClassFile = chunkClasses.isEmpty() ? classFile :
+                chunkClasses.get(chunkClasses.size() - 1).getClassFile();
+        if (chunkClassFile.getConstPool().getSize() > Compiler.MAXIMUM_CONSTANT_POOL_SIZE) {
+            CtClass chunkClass = pool.makeClass(String.format(Compiler.CHUNK_CLASS_NAME, chunkClasses.size() + 1));
+            chunkClasses.add(chunkClass);
+            chunkClassFile = chunkClass.getClassFile();
+        }
+
+        return chunkClassFile;
+    }
+
+    @Override
+    public Void visitDefinition(SchemeParser.DefinitionContext definition) {
+        return CodeGenVisitor.isVariableDefinition(definition) ?
+                visitVariable_definition(definition.variable_definition()) :
+                visitProcedure_definition(definition.procedure_definition());
+    }
+
+    @Override
+    public Void visitVariable_definition(SchemeParser.Variable_definitionContext variableDefinition) {
+        String identifier = variableDefinition.IDENTIFIER().getText();
+
+        if (method.procedureName == null && CodeGenVisitor.isLambda(variableDefinition.expression())) {
+            generateLambdaMethod(globalLambdas.get(identifier), variableDefinition.expression().lambda_expression());
+            return null;
+        }
+
+        generateExpression(variableDefinition.expression());
+
+        if (method.procedureName == null) {
+            method.code.addPutstatic(classFile.getName(), identifier, OBJECT_DESCRIPTOR);
+            definedGlobalVariables.add(identifier);
+        } else {
+            int local = allocateLocal();
+            method.code.addAstore(local);
+            method.locals.put(identifier, local);
+        }
+
+        return null;
+    }
+
+    @Override
+    public Void visitProcedure_definition(SchemeParser.Procedure_definitionContext procedureDefinition) {
+        String procedureName = procedureDefinition.proc_name().IDENTIFIER().getText();
+        if (procedureDefinitions.get(procedureName) != procedureDefinition) {
+            return null;
+        }
+
+        List<String> tailCallGroup = tailCallAnalysis.getGroup(procedureName);
+        if (tailCallGroup.size() > 1) {
+            if (generatedTailCallGroups.add(tailCallGroup.get(0))) {
+                generateTailCallGroup(tailCallGroup);
+            }
+            return null;
+        }
+
+        MethodContext enclosingMethod = method;
+        method = new MethodContext(procedureName, procedureDefinition.param().size(), classFile);
+        method.tailCallTargets.put(procedureName, 0);
+        generateProcedureBody(procedureDefinition);
+
+        addMethod(procedureName, createDescriptor(procedureDefinition.param().size()));
+        method = enclosingMethod;
+
+        return null;
+    }
+
+    private void generateTailCallGroup(List<String> tailCallGroup) {
+        String dispatchMethodName = String.format(Compiler.TAIL_CALL_DISPATCH_METHOD_NAME,
+                generatedTailCallGroups.size() - 1);
+        int maximumParameterCount = tailCallGroup.stream()
+                .mapToInt(member -> procedureDefinitions.get(member).param().size())
+                .max()
+                .orElse(0);
+        String dispatchDescriptor = "(I" + createDescriptor(maximumParameterCount).substring(1);
+
+        MethodContext enclosingMethod = method;
+        method = new MethodContext(tailCallGroup.get(0), maximumParameterCount + 1, classFile);
+        method.firstParameter = 1;
+        for (int member = 0; member < tailCallGroup.size() - 1; member++) {
+            method.code.addIload(0);
+            method.code.addIconst(member);
+            method.pendingTailCalls.computeIfAbsent(tailCallGroup.get(member), name -> new ArrayList<>())
+                    .add(addJump(Opcode.IF_ICMPEQ));
+        }
+        method.pendingTailCalls.computeIfAbsent(tailCallGroup.get(tailCallGroup.size() - 1),
+                name -> new ArrayList<>()).add(addJump(Opcode.GOTO));
+
+        for (String member : tailCallGroup) {
+            method.procedureName = member;
+            method.tailCallTargets.put(member, method.code.currentPc());
+            method.pendingTailCalls.getOrDefault(member, Collections.emptyList()).forEach(this::setJumpTarget);
+            method.locals.clear();
+            method.lambdas.clear();
+            generateProcedureBody(procedureDefinitions.get(member));
+        }
+
+        addMethod(method, dispatchMethodName, dispatchDescriptor, AccessFlag.PRIVATE | AccessFlag.STATIC);
+
+        for (int member = 0; member < tailCallGroup.size(); member++) {
+            int parameterCount = procedureDefinitions.get(tailCallGroup.get(member)).param().size();
+            method = new MethodContext(tailCallGroup.get(member), parameterCount, classFile);
+            method.code.addIconst(member);
+            for (int parameter = 0; parameter < maximumParameterCount; parameter++) {
+                if (parameter < parameterCount) {
+                    method.code.addAload(parameter);
+                } else {
+                    method.code.addOpcode(Opcode.ACONST_NULL);
+                }
+            }
+            method.code.addInvokestatic(classFile.getName(), dispatchMethodName, dispatchDescriptor);
+            method.code.addOpcode(Opcode.ARETURN);
+            addMethod(tailCallGroup.get(member), createDescriptor(parameterCount));
+        }
+
+        method = enclosingMethod;
+    }
+
+    private void generateProcedureBody(SchemeParser.Procedure_definitionContext procedureDefinition) {
+        for (SchemeParser.ParamContext param : procedureDefinition.param()) {
+            method.locals.put(param.IDENTIFIER().getText(), method.firstParameter + method.locals.size());
+        }
+
+        List<SchemeParser.DefinitionContext> definitions = procedureDefinition.definition();
+        for (int i = 0; i < definitions.size(); i++) {
+            if (!isLambdaDefinition(definitions.get(i))) {
+                visitDefinition(definitions.get(i));
+                continue;
+            }
+
+            List<SchemeParser.ExpressionContext> scope = new ArrayList<>();
+            definitions.subList(i, definitions.size())
+                    .stream()
+                    .filter(CodeGenVisitor::isVariableDefinition)
+                    .forEach(subsequent -> scope.add(subsequent.variable_definition().expression()));
+            scope.addAll(procedureDefinition.expression());
+
+            Map<String, SchemeParser.Lambda_expressionContext> lambdaExpressions = new LinkedHashMap<>();
+            for (; i < definitions.size() && isLambdaDefinition(definitions.get(i)); i++) {
+                SchemeParser.Variable_definitionContext variableDefinition = definitions.get(i).variable_definition();
+                lambdaExpressions.put(variableDefinition.IDENTIFIER().getText(),
+                        variableDefinition.expression().lambda_expression());
+            }
+            i--;
+
+            declareLambdas(lambdaExpressions).forEach((identifier, lambda) ->
+                    generateClosureLocal(identifier, lambda, scope));
+        }
+
+        List<SchemeParser.ExpressionContext> expressions = procedureDefinition.expression();
+        for (SchemeParser.ExpressionContext expression : expressions.subList(0, expressions.size() - 1)) {
+            generateExpression(expression);
+            method.code.addOpcode(Opcode.POP);
+        }
+        generateTailExpression(expressions.get(expressions.size() - 1));
+    }
+
+    private static boolean isLambdaDefinition(SchemeParser.DefinitionContext definition) {
+        return CodeGenVisitor.isVariableDefinition(definition)
+                && CodeGenVisitor.isLambda(definition.variable_definition().expression());
+    }
+
+    public Bytecode getBytecode() {
+        return method.code;
+    }
+
+    public int allocateLocal() {
+        return method.nextLocal++;
+    }
+
+    public void generateExpression(SchemeParser.ExpressionContext expression) {
+        if (CodeGenVisitor.isConstant(expression)) {
+            generateConstant(expression.constant());
+        } else if (CodeGenVisitor.isIdentifier(expression)) {
+            generateVariableReference(expression.IDENTIFIER().getText());
+        } else if (CodeGenVisitor.isLet(expression)) {
+            generateLet(expression.let_expression(), false);
+        } else if (CodeGenVisitor.isLambda(expression)) {
+            generateClosure(createLambda(expression.lambda_expression()));
+        } else {
+            generateApplication(expression.application());
+        }
+    }
+
+    public void generateArray(List<SchemeParser.ExpressionContext> expressions) {
+        Bytecode code = method.code;
+
+        code.addIconst(expressions.size());
+        code.addAnewarray(OBJECT_CLASS);
+        for (int i = 0; i < expressions.size(); i++) {
+            code.addOpcode(Opcode.DUP);
+            code.addIconst(i);
+            generateExpression(expressions.get(i));
+            code.addOpcode(Opcode.AASTORE);
+        }
+    }
+
+    public int addJump(int opcode) {
+        method.code.addOpcode(opcode);
+        int offsetPosition = method.code.currentPc();
+        method.code.addIndex(0);
+
+        return offsetPosition;
+    }
+
+    public void setJumpTarget(int offsetPosition) {
+        int jumpPosition = offsetPosition - 1;
+        method.code.write16bit(offsetPosition, method.code.currentPc() - jumpPosition);
+    }
+
+    private void generateTailExpression(SchemeParser.ExpressionContext expression) {
+        if (CodeGenVisitor.isLet(expression)) {
+            generateLet(expression.let_expression(), true);
+            return;
+        }
+        if (CodeGenVisitor.isApplication(expression)) {
+            SchemeParser.ApplicationContext application = expression.application();
+            String identifier = application.IDENTIFIER().getText();
+
+            if ("if".equalsIgnoreCase(identifier)) {
+                generateIf(application.expression(), true);
+                return;
+            }
+            Lambda lambda = getLambda(identifier);
+            if (method.lambda != null && lambda != null && lambda.methodName.equals(method.lambda.methodName)) {
+                generateTailJump(method.lambda.methodName, method.lambda.arity, application.expression());
+                return;
+            }
+            if (tailCallAnalysis.getGroup(method.procedureName).contains(identifier) && !isLocalVariable(identifier)) {
+                generateTailCall(identifier, application.expression());
+                return;
+            }
+
+            boolean isFolded = constantFolder.fold(application, this::isVariable).isPresent();
+            if (!isFolded && isInlinable(identifier, application.expression())) {
+                generateInlinedCall(identifier, application.expression(), true);
+                return;
+            }
+            if (lambda != null && lambda.mayReturnTailCall) {
+                generateLambdaTailCallObject(lambda, application.expression());
+                method.code.addOpcode(Opcode.ARETURN);
+                return;
+            }
+            if (lambda == null && (method.locals.containsKey(identifier) || !isLocalVariable(identifier)
+                    && !procedureDefinitions.containsKey(identifier) && globalVariables.contains(identifier))) {
+                generateVariableReference(identifier);
+                generateClosureCall(application.expression(), "tailApply");
+                method.code.addOpcode(Opcode.ARETURN);
+                return;
+            }
+            if (!isFolded && !isVariable(identifier) && tailCallAnalysis.mayReturnTailCall(identifier)) {
+                generateProcedureCall(identifier, application.expression(), true);
+                method.code.addOpcode(Opcode.ARETURN);
+                return;
+            }
+        }
+
+        generateExpression(expression);
+        method.code.addOpcode(Opcode.ARETURN);
+    }
+
+    private boolean isInlinable(String procedureName, List<SchemeParser.ExpressionContext> arguments) {
+        return !isLocalVariable(procedureName) && inlineDepth < Inliner.MAXIMUM_INLINE_DEPTH
+                && inliner.isInlinable(procedureName, arguments.size());
+    }
+
+    private void generateInlinedCall(String procedureName, List<SchemeParser.ExpressionContext> arguments,
+                                     boolean isTailPosition) {
+        Map<String, Integer> enclosingLocals = new HashMap<>(method.locals);
+        Map<String, Lambda> enclosingLambdas = new HashMap<>(method.lambdas);
+
+        List<String> paramNames = inliner.getParamNames(procedureName);
+        Map<String, Integer> argumentLocals = new HashMap<>();
+        for (int i = 0; i < paramNames.size(); i++) {
+            int local = allocateLocal();
+            generateExpression(arguments.get(i));
+            method.code.addAstore(local);
+            argumentLocals.put(paramNames.get(i), local);
+        }
+
+        method.locals.clear();
+        method.locals.putAll(argumentLocals);
+        method.lambdas.clear();
+        inlineDepth++;
+        generateBranch(inliner.getBody(procedureName), isTailPosition);
+        inlineDepth--;
+
+        method.locals.clear();
+        method.locals.putAll(enclosingLocals);
+        method.lambdas.putAll(enclosingLambdas);
+    }
+
+    private void generateTailCall(String procedureName, List<SchemeParser.ExpressionContext> arguments) {
+        generateTailJump(procedureName, procedureDefinitions.get(procedureName).param().size(), arguments);
+    }
+
+    private void generateTailJump(String procedureName, int parameterCount,
+                                  List<SchemeParser.ExpressionContext> arguments) {
+        Util.checkExactArity(arguments.size(), parameterCount);
+
+        arguments.forEach(this::generateExpression);
+        for (int parameter = parameterCount - 1; parameter >= 0; parameter--) {
+            method.code.addAstore(method.firstParameter + parameter);
+        }
+
+        Integer target = method.tailCallTargets.get(procedureName);
+        if (target == null) {
+            method.pendingTailCalls.computeIfAbsent(procedureName, name -> new ArrayList<>())
+                    .add(addJump(Opcode.GOTO));
+        } else {
+            method.code.addOpcode(Opcode.GOTO);
+            method.code.addIndex(target - (method.code.currentPc() - 1));
+        }
+    }
+
+    private void generateApplication(SchemeParser.ApplicationContext application) {
+        String identifier = application.IDENTIFIER().getText();
+        List<SchemeParser.ExpressionContext> expressions = application.expression();
+
+        Optional<Object> foldedValue = constantFolder.fold(application, this::isVariable);
+        if (foldedValue.isPresent()) {
+            generateLiteral(foldedValue.get());
+            return;
+        }
+
+        if ("if".equalsIgnoreCase(identifier)) {
+            generateIf(expressions, false);
+        } else if (method.lambdas.containsKey(identifier)) {
+            generateDirectCall(method.lambdas.get(identifier), expressions);
+        } else if (method.locals.containsKey(identifier)) {
+            method.code.addAload(method.locals.get(identifier));
+            generateClosureCall(expressions);
+        } else if (globalLambdas.containsKey(identifier)) {
+            generateDirectCall(globalLambdas.get(identifier), expressions);
+        } else if (isInlinable(identifier, expressions)) {
+            generateInlinedCall(identifier, expressions, false);
+        } else if (procedureDefinitions.containsKey(identifier)) {
+            generateProcedureCall(identifier, expressions, false);
+        } else if (globalVariables.contains(identifier)) {
+            generateVariableReference(identifier);
+            generateClosureCall(expressions);
+        } else if (predicateMap.containsKey(identifier)) {
+            predicateMap.get(identifier).generateCode(expressions);
+            method.code.addInvokestatic(BOOLEAN_CLASS, "valueOf", "(Z)" + BOOLEAN_DESCRIPTOR);
+        } else if (procedureMap.containsKey(identifier)) {
+            procedureMap.get(identifier).generateCode(expressions);
+        } else {
+            throw new ParseCancellationException(String.format(UNDEFINED_PROCEDURE_EXCEPTION_MESSAGE, identifier));
+        }
+    }
+
+    private void generateIf(List<SchemeParser.ExpressionContext> expressions, boolean isTailPosition) {
+        if (expressions.size() != 2 && expressions.size() != 3) {
+            String message = "Arguments count %d does not match expected arity of 2 or 3";
+            throw new ParseCancellationException(String.format(message, expressions.size()));
+        }
+
+        Bytecode code = method.code;
+        int elseJump = addJump(generateCondition(expressions.get(0)));
+        int stackDepth = code.getStackDepth();
+
+        generateBranch(expressions.get(1), isTailPosition);
+        int endJump = isTailPosition ? -1 : addJump(Opcode.GOTO);
+
+        setJumpTarget(elseJump);
+        code.setStackDepth(stackDepth);
+        if (expressions.size() == 3) {
+            generateBranch(expressions.get(2), isTailPosition);
+        } else {
+            code.addOpcode(Opcode.ACONST_NULL);
+            if (isTailPosition) {
+                code.addOpcode(Opcode.ARETURN);
+            }
+        }
+
+        if (!isTailPosition) {
+            setJumpTarget(endJump);
+        }
+    }
+
+    private void generateLet(SchemeParser.Let_expressionContext let, boolean isTailPosition) {
+        Map<String, Integer> enclosingLocals = new HashMap<>(method.locals);
+        Map<String, Lambda> enclosingLambdas = new HashMap<>(method.lambdas);
+        String keyword = let.let_keyword().getText();
+        List<SchemeParser.BindingContext> bindings = let.binding();
+
+        if ("letrec".equals(keyword)) {
+            List<SchemeParser.ExpressionContext> scope = new ArrayList<>();
+            bindings.forEach(binding -> scope.add(binding.expression()));
+            scope.addAll(let.expression());
+
+            Map<String, SchemeParser.Lambda_expressionContext> lambdaExpressions = new LinkedHashMap<>();
+            for (SchemeParser.BindingContext binding : bindings) {
+                if (CodeGenVisitor.isLambda(binding.expression())) {
+                    lambdaExpressions.put(binding.IDENTIFIER().getText(), binding.expression().lambda_expression());
+                } else {
+                    int local = allocateLocal();
+                    method.code.addOpcode(Opcode.ACONST_NULL);
+                    method.code.addAstore(local);
+                    bindLocal(binding.IDENTIFIER().getText(), local);
+                }
+            }
+            Map<String, Lambda> lambdas = declareLambdas(lambdaExpressions);
+
+            for (SchemeParser.BindingContext binding : bindings) {
+                if (!CodeGenVisitor.isLambda(binding.expression())) {
+                    generateExpression(binding.expression());
+                    method.code.addAstore(method.locals.get(binding.IDENTIFIER().getText()));
+                }
+            }
+            lambdas.forEach((identifier, lambda) -> generateClosureLocal(identifier, lambda, scope));
+        } else {
+            Map<String, Integer> boundLocals = new LinkedHashMap<>();
+            Map<String, Lambda> boundLambdas = new LinkedHashMap<>();
+            for (int i = 0; i < bindings.size(); i++) {
+                SchemeParser.ExpressionContext expression = bindings.get(i).expression();
+                String identifier = bindings.get(i).IDENTIFIER().getText();
+
+                if (CodeGenVisitor.isLambda(expression)) {
+                    Lambda lambda = createLambda(expression.lambda_expression());
+                    if ("let*".equals(keyword)) {
+                        List<SchemeParser.ExpressionContext> scope = new ArrayList<>();
+                        bindings.subList(i + 1, bindings.size()).forEach(binding -> scope.add(binding.expression()));
+                        scope.addAll(let.expression());
+                        generateClosureLocal(identifier, lambda, scope);
+                    } else {
+                        boundLambdas.put(identifier, lambda);
+                    }
+                    continue;
+                }
+
+                int local = allocateLocal();
+                generateExpression(expression);
+                method.code.addAstore(local);
+
+                if ("let*".equals(keyword)) {
+                    bindLocal(identifier, local);
+                } else {
+                    boundLocals.put(identifier, local);
+                }
+            }
+            boundLocals.forEach(this::bindLocal);
+            boundLambdas.forEach((identifier, lambda) -> generateClosureLocal(identifier, lambda, let.expression()));
+        }
+
+        List<SchemeParser.ExpressionContext> body = let.expression();
+        for (SchemeParser.ExpressionContext expression : body.subList(0, body.size() - 1)) {
+            generateExpression(expression);
+            method.code.addOpcode(Opcode.POP);
+        }
+        generateBranch(body.get(body.size() - 1), isTailPosition);
+
+        method.locals.clear();
+        method.locals.putAll(enclosingLocals);
+        method.lambdas.clear();
+        method.lambdas.putAll(enclosingLambdas);
+    }
+
+    private void generateBranch(SchemeParser.ExpressionContext expression, boolean isTailPosition) {
+        if (isTailPosition) {
+            generateTailExpression(expression);
+        } else {
+            generateExpression(expression);
+        }
+    }
+
+    private int generateCondition(SchemeParser.ExpressionContext condition) {
+        Optional<Object> foldedCondition = constantFolder.fold(condition, this::isVariable);
+        if (foldedCondition.isPresent()) {
+            method.code.addIconst(Boolean.FALSE.equals(foldedCondition.get()) ? 0 : 1);
+            return Opcode.IFEQ;
+        }
+
+        if (CodeGenVisitor.isApplication(condition)) {
+            String identifier = condition.application().IDENTIFIER().getText();
+
+            if (!procedureDefinitions.containsKey(identifier) && predicateMap.containsKey(identifier)) {
+                predicateMap.get(identifier).generateCode(condition.application().expression());
+                return Opcode.IFEQ;
+            }
+        }
+
+        method.code.addGetstatic(BOOLEAN_CLASS, "FALSE", BOOLEAN_DESCRIPTOR);
+        generateExpression(condition);
+        method.code.addInvokevirtual(BOOLEAN_CLASS, "equals", "(Ljava/lang/Object;)Z");
+        return Opcode.IFNE;
+    }
+
+    private void generateProcedureCall(String procedureName, List<SchemeParser.ExpressionContext> arguments,
+                                       boolean isTailPosition) {
+        int parameterCount = procedureDefinitions.get(procedureName).param().size();
+        Util.checkExactArity(arguments.size(), parameterCount);
+
+        arguments.forEach(this::generateExpression);
+        method.code.addInvokestatic(classFile.getName(), procedureName, createDescriptor(parameterCount));
+        if (!isTailPosition && tailCallAnalysis.mayReturnTailCall(procedureName)) {
+            generateForce();
+        }
+    }
+
+    private void generateForce() {
+        method.code.addInvokestatic(TAIL_CALL_CLASS, "force", createDescriptor(1));
+    }
+
+    private Lambda createLambda(SchemeParser.Lambda_expressionContext lambdaExpression) {
+        Lambda lambda = new Lambda(String.format(LAMBDA_METHOD_NAME, lambdaIndex++), getFreeLocals(lambdaExpression),
+                lambdaExpression.param().size());
+        lambda.mayReturnTailCall = tailCallAnalysis.mayReturnTailCall(lambdaExpression, null, this::isVariable);
+        generateLambdaMethod(lambda, lambdaExpression);
+
+        return lambda;
+    }
+
+    private Map<String, Lambda> declareLambdas(Map<String, SchemeParser.Lambda_expressionContext> lambdaExpressions) {
+        Map<String, Lambda> lambdas = new LinkedHashMap<>();
+        lambdaExpressions.forEach((identifier, lambdaExpression) -> {
+            Lambda lambda = new Lambda(String.format(LAMBDA_METHOD_NAME, lambdaIndex++), Collections.emptyList(),
+                    lambdaExpression.param().size());
+            lambdas.put(identifier, lambda);
+            method.lambdas.put(identifier, lambda);
+            method.locals.remove(identifier);
+        });
+        lambdas.forEach((identifier, lambda) -> lambda.mayReturnTailCall = tailCallAnalysis.mayReturnTailCall(
+                lambdaExpressions.get(identifier), identifier, this::isVariable));
+
+        boolean changed;
+        do {
+            changed = false;
+            for (Map.Entry<String, Lambda> entry : lambdas.entrySet()) {
+                List<Integer> freeLocals = getFreeLocals(lambdaExpressions.get(entry.getKey()));
+                if (!freeLocals.equals(entry.getValue().freeLocals)) {
+                    entry.getValue().freeLocals = freeLocals;
+                    changed = true;
+                }
+            }
+        } while (changed);
+
+        lambdas.forEach((identifier, lambda) -> generateLambdaMethod(lambda, lambdaExpressions.get(identifier)));
+
+        return lambdas;
+    }
+
+    private List<Integer> getFreeLocals(SchemeParser.Lambda_expressionContext lambdaExpression) {
+        Set<Integer> freeLocals = new LinkedHashSet<>();
+        for (String variable : LambdaAnalysis.getFreeVariables(lambdaExpression)) {
+            if (method.lambdas.containsKey(variable)) {
+                freeLocals.addAll(method.lambdas.get(variable).freeLocals);
+            } else if (method.locals.containsKey(variable)) {
+                freeLocals.add(method.locals.get(variable));
+            }
+        }
+
+        return new ArrayList<>(freeLocals);
+    }
+
+    private void generateLambdaMethod(Lambda lambda, SchemeParser.Lambda_expressionContext lambdaExpression) {
+        MethodContext enclosingMethod = method;
+        int freeCount = lambda.freeLocals.size();
+        method = new MethodContext(lambda.methodName, freeCount + lambda.arity, classFile);
+        method.lambda = lambda;
+        method.firstParameter = freeCount;
+        method.tailCallTargets.put(lambda.methodName, 0);
+
+        Map<Integer, Integer> capturedLocals = new HashMap<>();
+        for (int i = 0; i < freeCount; i++) {
+            capturedLocals.put(lambda.freeLocals.get(i), i);
+        }
+        enclosingMethod.locals.forEach((identifier, local) -> {
+            if (capturedLocals.containsKey(local)) {
+                method.locals.put(identifier, capturedLocals.get(local));
+            }
+        });
+        enclosingMethod.lambdas.forEach((identifier, visibleLambda) -> {
+            if (capturedLocals.keySet().containsAll(visibleLambda.freeLocals)) {
+                method.lambdas.put(identifier, visibleLambda.capturedBy(capturedLocals));
+            }
+        });
+
+        List<String> paramNames = LambdaAnalysis.getParamNames(lambdaExpression);
+        for (int i = 0; i < paramNames.size(); i++) {
+            bindLocal(paramNames.get(i), freeCount + i);
+        }
+
+        List<SchemeParser.ExpressionContext> expressions = lambdaExpression.expression();
+        for (SchemeParser.ExpressionContext expression : expressions.subList(0, expressions.size() - 1)) {
+            generateExpression(expression);
+            method.code.addOpcode(Opcode.POP);
+        }
+        generateTailExpression(expressions.get(expressions.size() - 1));
+
+        addMethod(lambda.methodName, createDescriptor(freeCount + lambda.arity));
+        method = enclosingMethod;
+    }
+
+    private void generateClosureLocal(String identifier, Lambda lambda, List<SchemeParser.ExpressionContext> scope) {
+        method.lambdas.put(identifier, lambda);
+        method.locals.remove(identifier);
+        if (!LambdaAnalysis.isReferencedAsValue(identifier, scope)) {
+            return;
+        }
+
+        int local = allocateLocal();
+        generateClosure(lambda);
+        method.code.addAstore(local);
+        method.locals.put(identifier, local);
+    }
+
+    private void generateClosure(Lambda lambda) {
+        Bytecode code = method.code;
+        code.addGetstatic(classFile.getName(), hoistMethodHandle(lambda), METHOD_HANDLE_DESCRIPTOR);
+
+        code.addIconst(lambda.freeLocals.size());
+        code.addAnewarray(OBJECT_CLASS);
+        for (int i = 0; i < lambda.freeLocals.size(); i++) {
+            code.addOpcode(Opcode.DUP);
+            code.addIconst(i);
+            code.addAload(lambda.freeLocals.get(i));
+            code.addOpcode(Opcode.AASTORE);
+        }
+        code.addInvokestatic(CLOSURE_CLASS, "create", "(" + METHOD_HANDLE_DESCRIPTOR + "[" + OBJECT_DESCRIPTOR +
+                ")Lruntime/Closure;");
+    }
+
+    private String hoistMethodHandle(Lambda lambda) {
+        String fieldName = String.format(METHOD_HANDLE_FIELD_NAME, lambda.methodName);
+        if (!methodHandleFields.add(fieldName)) {
+            return fieldName;
+        }
+
+        FieldInfo field = new FieldInfo(classFile.getConstPool(), fieldName, METHOD_HANDLE_DESCRIPTOR);
+        field.setAccessFlags(AccessFlag.STATIC | AccessFlag.FINAL);
+        classFile.addField2(field);
+
+        if (literalInitializer == null) {
+            literalInitializer = new MethodContext(null, 0, classFile);
+        }
+        Bytecode code = literalInitializer.code;
+        code.addInvokestatic("java.lang.invoke.MethodHandles", "lookup",
+                "()Ljava/lang/invoke/MethodHandles$Lookup;");
+        code.addLdc(lambda.methodName);
+        code.addIconst(lambda.freeLocals.size() + lambda.arity);
+        code.addInvokestatic(CLOSURE_CLASS, "findMethod", "(Ljava/lang/invoke/MethodHandles$Lookup;" +
+                "Ljava/lang/String;I)" + METHOD_HANDLE_DESCRIPTOR);
+        code.addPutstatic(classFile.getName(), fieldName, METHOD_HANDLE_DESCRIPTOR);
+
+        if (code.getSize() > MAXIMUM_MAIN_CHUNK_SIZE) {
+            addLiteralInitializer();
+        }
+
+        return fieldName;
+    }
+
+    private void generateDirectCall(Lambda lambda, List<SchemeParser.ExpressionContext> arguments) {
+        Util.checkExactArity(arguments.size(), lambda.arity);
+
+        lambda.freeLocals.forEach(method.code::addAload);
+        arguments.forEach(this::generateExpression);
+        method.code.addInvokestatic(classFile.getName(), lambda.methodName,
+                createDescriptor(lambda.freeLocals.size() + lambda.arity));
+        if (lambda.mayReturnTailCall) {
+            generateForce();
+        }
+    }
+
+    private void generateLambdaTailCallObject(Lambda lambda, List<SchemeParser.ExpressionContext> arguments) {
+        Util.checkExactArity(arguments.size(), lambda.arity);
+
+        Bytecode code = method.code;
+        code.addGetstatic(classFile.getName(), hoistMethodHandle(lambda), METHOD_HANDLE_DESCRIPTOR);
+        code.addIconst(lambda.freeLocals.size() + arguments.size());
+        code.addAnewarray(OBJECT_CLASS);
+        for (int i = 0; i < lambda.freeLocals.size(); i++) {
+            code.addOpcode(Opcode.DUP);
+            code.addIconst(i);
+            code.addAload(lambda.freeLocals.get(i));
+            code.addOpcode(Opcode.AASTORE);
+        }
+        for (int i = 0; i < arguments.size(); i++) {
+            code.addOpcode(Opcode.DUP);
+            code.addIconst(lambda.freeLocals.size() + i);
+            generateExpression(arguments.get(i));
+            code.addOpcode(Opcode.AASTORE);
+        }
+        code.addInvokestatic(TAIL_CALL_CLASS, "create", "(" + METHOD_HANDLE_DESCRIPTOR + "[" + OBJECT_DESCRIPTOR +
+                ")Lruntime/TailCall;");
+    }
+
+    private void generateClosureCall(List<SchemeParser.ExpressionContext> arguments) {
+        generateClosureCall(arguments, "apply");
+    }
+
+    private void generateClosureCall(List<SchemeParser.ExpressionContext> arguments, String applyMethodName) {
+        if (arguments.size() <= MAXIMUM_FIXED_ARITY) {
+            arguments.forEach(this::generateExpression);
+            method.code.addInvokestatic(CLOSURE_CLASS, applyMethodName, createDescriptor(arguments.size() + 1));
+        } else {
+            generateArray(arguments);
+            method.code.addInvokestatic(CLOSURE_CLASS, applyMethodName, "(" + OBJECT_DESCRIPTOR + "[" +
+                    OBJECT_DESCRIPTOR + ")" + OBJECT_DESCRIPTOR);
+        }
+    }
+
+    private boolean isVariable(String identifier) {
+        return isLocalVariable(identifier) || globalLambdas.containsKey(identifier)
+                || globalVariables.contains(identifier);
+    }
+
+    private boolean isLocalVariable(String identifier) {
+        return method.locals.containsKey(identifier) || method.lambdas.containsKey(identifier);
+    }
+
+    private boolean isPredefined(String identifier) {
+        return (procedureMap.containsKey(identifier) || predicateMap.containsKey(identifier))
+                && !procedureDefinitions.containsKey(identifier) && !globalLambdas.containsKey(identifier)
+                && !globalVariables.contains(identifier);
+    }
+
+    private Lambda getLambda(String identifier) {
+        return isLocalVariable(identifier) ? method.lambdas.get(identifier) : globalLambdas.get(identifier);
+    }
+
+    private void bindLocal(String identifier, int local) {
+        method.locals.put(identifier, local);
+        method.lambdas.remove(identifier);
+    }
+
+    private void generateVariableReference(String identifier) {
+        if (method.lambdas.containsKey(identifier) && !method.locals.containsKey(identifier)) {
+            generateClosure(method.lambdas.get(identifier));
+            return;
+        }
+        if (method.locals.containsKey(identifier)) {
+            method.code.addAload(method.locals.get(identifier));
+            return;
+        }
+        if (globalLambdas.containsKey(identifier)) {
+            generateClosure(globalLambdas.get(identifier));
+            return;
+        }
+        if (procedureDefinitions.containsKey(identifier) && !globalVariables.contains(identifier)) {
+            generateClosure(new Lambda(identifier, Collections.emptyList(),
+                    procedureDefinitions.get(identifier).param().size()));
+            return;
+        }
+
+        Set<String> visibleGlobalVariables = method.procedureName == null && inlineDepth == 0 ?
+                definedGlobalVariables : globalVariables;
+        if (!visibleGlobalVariables.contains(identifier) && isPredefined(identifier)) {
+            throw new ParseCancellationException(String.format(PREDEFINED_PROCEDURE_VALUE_EXCEPTION_MESSAGE,
+                    identifier));
+        }
+        if (!visibleGlobalVariables.contains(identifier)) {
+            throw new ParseCancellationException(String.format(UNDEFINED_VARIABLE_EXCEPTION_MESSAGE, identifier));
+        }
+
+        method.code.addGetstatic(classFile.getName(), identifier, OBJECT_DESCRIPTOR);
+    }
+
+    private void generateConstant(SchemeParser.ConstantContext constant) {
+        if (CodeGenVisitor.isNumber(constant)) {
+            generateLiteral(CodeGenVisitor.getNumberValue(constant));
+        }
+        if (CodeGenVisitor.isCharacter(constant)) {
+            generateLiteral(CodeGenVisitor.getCharacterValue(constant));
+        }
+        if (CodeGenVisitor.isString(constant)) {
+            String text = constant.STRING().getText();
+            method.code.addLdc(text.substring(1, text.length() - 1));
+        }
+        if (CodeGenVisitor.isBoolean(constant)) {
+            generateLiteral("#t".equals(constant.BOOLEAN().getText()));
+        }
+    }
+
+    private void generateLiteral(Object value) {
+        if (value instanceof Boolean) {
+            method.code.addGetstatic(BOOLEAN_CLASS, (Boolean) value ? "TRUE" : "FALSE", BOOLEAN_DESCRIPTOR);
+            return;
+        }
+
+        method.code.addGetstatic(classFile.getName(), hoistLiteral(value), OBJECT_DESCRIPTOR);
+    }
+
+    private String hoistLiteral(Object value) {
+        String fieldName = literalFields.get(value);
+        if (fieldName != null) {
+            return fieldName;
+        }
+
+        fieldName = String.format(LITERAL_FIELD_NAME, literalFields.size());
+        literalFields.put(value, fieldName);
+
+        FieldInfo field = new FieldInfo(classFile.getConstPool(), fieldName, OBJECT_DESCRIPTOR);
+        field.setAccessFlags(AccessFlag.STATIC | AccessFlag.FINAL);
+        classFile.addField2(field);
+
+        if (literalInitializer == null) {
+            literalInitializer = new MethodContext(null, 0, classFile);
+        }
+        Bytecode code = literalInitializer.code;
+        if (value instanceof Long) {
+            code.addLdc2w((Long) value);
+            code.addInvokestatic("java.lang.Long", "valueOf", "(J)Ljava/lang/Long;");
+        } else if (value instanceof Character) {
+            code.addIconst((Character) value);
+            code.addInvokestatic("java.lang.Character", "valueOf", "(C)Ljava/lang/Character;");
+        } else {
+            code.addNew("java.math.BigInteger");
+            code.addOpcode(Opcode.DUP);
+            code.addLdc(value.toString());
+            code.addInvokespecial("java.math.BigInteger", MethodInfo.nameInit, "(Ljava/lang/String;)V");
+        }
+        code.addPutstatic(classFile.getName(), fieldName, OBJECT_DESCRIPTOR);
+
+        if (code.getSize() > MAXIMUM_MAIN_CHUNK_SIZE) {
+            addLiteralInitializer();
+        }
+
+        return fieldName;
+    }
+
+    private void collectDefinition(SchemeParser.DefinitionContext definition) {
+        if (CodeGenVisitor.isVariableDefinition(definition)) {
+            SchemeParser.Variable_definitionContext variableDefinition = definition.variable_definition();
+            String identifier = variableDefinition.IDENTIFIER().getText();
+
+            if (CodeGenVisitor.isLambda(variableDefinition.expression())) {
+                globalLambdas.put(identifier, new Lambda(String.format(LAMBDA_METHOD_NAME, lambdaIndex++),
+                        Collections.emptyList(), variableDefinition.expression().lambda_expression().param().size()));
+            } else if (globalVariables.add(identifier)) {
+                FieldInfo field = new FieldInfo(classFile.getConstPool(), identifier, OBJECT_DESCRIPTOR);
+                field.setAccessFlags(AccessFlag.STATIC);
+                classFile.addField2(field);
+            }
+        } else {
+            SchemeParser.Procedure_definitionContext procedureDefinition = definition.procedure_definition();
+            procedureDefinitions.put(procedureDefinition.proc_name().IDENTIFIER().getText(), procedureDefinition);
+        }
+    }
+
+    private void addMethod(String name, String descriptor) {
+        addMethod(method, name, descriptor, AccessFlag.PUBLIC | AccessFlag.STATIC);
+    }
+
+    private void addMethod(MethodContext method, String name, String descriptor, int accessFlags) {
+        MethodInfo methodInfo = new MethodInfo(method.classFile.getConstPool(), name, descriptor);
+        methodInfo.setAccessFlags(accessFlags);
+
+        method.code.setMaxLocals(method.nextLocal);
+        CodeAttribute codeAttribute = method.code.toCodeAttribute();
+
+        try {
+            codeAttribute.computeMaxStack();
+            methodInfo.setCodeAttribute(codeAttribute);
+            methodInfo.rebuildStackMapIf6(pool, method.classFile);
+        } catch (BadBytecode e) {
+            throw new ParseCancellationException(String.format("Could not generate bytecode for '%s'", name), e);
+        }
+
+        method.classFile.addMethod2(methodInfo);
+    }
+
+    private static String createDescriptor(int parameterCount) {
+        StringBuilder descriptor = new StringBuilder("(");
+        for (int i = 0; i < parameterCount; i++) {
+            descriptor.append(OBJECT_DESCRIPTOR);
+        }
+
+        return descriptor.append(")").append(OBJECT_DESCRIPTOR).toString();
+    }
+
+    private class MethodContext {
+        private String procedureName;
+        private final ClassFile classFile;
+        private final Bytecode code;
+        private final Map<String, Integer> locals = new HashMap<>();
+        private final Map<String, Integer> tailCallTargets = new HashMap<>();
+        private final Map<String, List<Integer>> pendingTailCalls = new HashMap<>();
+        private final Map<String, Lambda> lambdas = new HashMap<>();
+        private Lambda lambda;
+        private int firstParameter;
+        private int nextLocal;
+
+        private MethodContext(String procedureName, int parameterCount, ClassFile classFile) {
+            this.procedureName = procedureName;
+            this.classFile = classFile;
+            this.code = new Bytecode(classFile.getConstPool());
+            this.nextLocal = parameterCount;
+        }
+
+    }
+
+    private static class Lambda {
+
+        private final String methodName;
+        private List<Integer> freeLocals;
+        private final int arity;
+        private boolean mayReturnTailCall;
+
+        private Lambda(String methodName, List<Integer> freeLocals, int arity) {
+            this.methodName = methodName;
+            this.freeLocals = freeLocals;
+            this.arity = arity;
+        }
+
+        private Lambda capturedBy(Map<Integer, Integer> capturedLocals) {
+            List<Integer> captured = new ArrayList<>();
+            freeLocals.forEach(local -> captured.add(capturedLocals.get(local)));
+
+            Lambda lambda = new Lambda(methodName, captured, arity);
+            lambda.mayReturnTailCall = mayReturnTailCall;
+
+            return lambda;
+        }
+
+    }
+
+}
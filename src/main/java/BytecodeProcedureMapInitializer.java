@@ -0,0 +1,209 @@
+import javassist.bytecode.Bytecode;
+import javassist.bytecode.Opcode;
+import lang.Util;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class BytecodeProcedureMapInitializer {
+
+    private static final String PREDEFINED_PROCEDURES_CLASS = "runtime.PredefinedProcedures";
+    private static final String PAIR_CLASS = "lang.Pair";
+    private static final String OUTPUT_PORT_CLASS = "runtime.OutputPort";
+    private static final String ARITHMETIC_DESCRIPTOR = "([Ljava/lang/Object;)Ljava/lang/Number;";
+    private static final String OBJECT_DESCRIPTOR = "Ljava/lang/Object;";
+    private static final int MAXIMUM_FIXED_ARITY = 3;
+    private static final List<String> NATIVE_BYTEVECTOR_TYPES = Arrays.asList("u16", "s16", "u32", "s32", "u64",
+            "s64");
+    private BytecodeGenVisitor bytecodeGenVisitor;
+
+    public BytecodeProcedureMapInitializer(BytecodeGenVisitor bytecodeGenVisitor) {
+        this.bytecodeGenVisitor = bytecodeGenVisitor;
+    }
+
+    public Map<String, BytecodeGenProcedure> getInitialMap() {
+        Map<String, BytecodeGenProcedure> procedureMap = new HashMap<>();
+
+        procedureMap.put("display", expressions -> {
+            Util.checkExactArity(expressions.size(), 1);
+            Bytecode code = bytecodeGenVisitor.getBytecode();
+
+            bytecodeGenVisitor.generateExpression(expressions.get(0));
+            code.addInvokestatic(OUTPUT_PORT_CLASS, "display", "(Ljava/lang/Object;)Ljava/lang/Object;");
+        });
+        procedureMap.put("write-string", expressions -> {
+            Util.checkExactArity(expressions.size(), 1);
+
+            bytecodeGenVisitor.generateExpression(expressions.get(0));
+            bytecodeGenVisitor.getBytecode().addInvokestatic(OUTPUT_PORT_CLASS, "writeString",
+                    "(Ljava/lang/Object;)Ljava/lang/Object;");
+        });
+        procedureMap.put("newline", expressions -> {
+            Util.checkExactArity(expressions.size(), 0);
+            bytecodeGenVisitor.getBytecode().addInvokestatic(OUTPUT_PORT_CLASS, "newline", "()Ljava/lang/Object;");
+        });
+
+        procedureMap.put("list", expressions -> {
+            bytecodeGenVisitor.generateArray(expressions);
+            bytecodeGenVisitor.getBytecode().addInvokestatic(PAIR_CLASS, "fromElements",
+                    "([Ljava/lang/Object;)Ljava/lang/Object;");
+        });
+
+        procedureMap.put("cons", createFixedArityProcedure("cons", 2, OBJECT_DESCRIPTOR));
+        procedureMap.put("car", createFixedArityProcedure("car", 1, OBJECT_DESCRIPTOR));
+        procedureMap.put("cdr", createFixedArityProcedure("cdr", 1, OBJECT_DESCRIPTOR));
+        procedureMap.put("set-car!", createFixedArityProcedure("setCar", 2, OBJECT_DESCRIPTOR));
+        procedureMap.put("set-cdr!", createFixedArityProcedure("setCdr", 2, OBJECT_DESCRIPTOR));
+
+        procedureMap.put("vector", expressions -> {
+            bytecodeGenVisitor.generateArray(expressions);
+            bytecodeGenVisitor.getBytecode().addInvokestatic(PREDEFINED_PROCEDURES_CLASS, "vector",
+                    "([Ljava/lang/Object;)Ljava/lang/Object;");
+        });
+        procedureMap.put("make-vector", createVariableArityProcedure("makeVector", 1, 2));
+        procedureMap.put("vector-ref", createFixedArityProcedure("vectorRef", 2, OBJECT_DESCRIPTOR));
+        procedureMap.put("vector-set!", createFixedArityProcedure("vectorSet", 3, OBJECT_DESCRIPTOR));
+        procedureMap.put("vector-length", createFixedArityProcedure("vectorLength", 1, OBJECT_DESCRIPTOR));
+        procedureMap.put("vector-fill!", createFixedArityProcedure("vectorFill", 2, OBJECT_DESCRIPTOR));
+
+        procedureMap.put("bytevector", expressions -> {
+            bytecodeGenVisitor.generateArray(expressions);
+            bytecodeGenVisitor.getBytecode().addInvokestatic(PREDEFINED_PROCEDURES_CLASS, "bytevector",
+                    "([Ljava/lang/Object;)Ljava/lang/Object;");
+        });
+        procedureMap.put("make-bytevector", createVariableArityProcedure("makeBytevector", 1, 2));
+        procedureMap.put("open-mapped-bytevector", createVariableArityProcedure("openMappedBytevector", 1, 2));
+        procedureMap.put("bytevector-length", createFixedArityProcedure("bytevectorLength", 1, OBJECT_DESCRIPTOR));
+        procedureMap.put("bytevector-u8-ref", createFixedArityProcedure("bytevectorU8Ref", 2, OBJECT_DESCRIPTOR));
+        procedureMap.put("bytevector-u8-set!", createFixedArityProcedure("bytevectorU8Set", 3, OBJECT_DESCRIPTOR));
+        procedureMap.put("bytevector-copy!", createVariableArityProcedure("bytevectorCopy", 3, 5));
+
+        for (String type : NATIVE_BYTEVECTOR_TYPES) {
+            String methodName = "bytevector" + Character.toUpperCase(type.charAt(0)) + type.substring(1) + "Native";
+            procedureMap.put(String.format("bytevector-%s-native-ref", type),
+                    createFixedArityProcedure(methodName + "Ref", 2, OBJECT_DESCRIPTOR));
+            procedureMap.put(String.format("bytevector-%s-native-set!", type),
+                    createFixedArityProcedure(methodName + "Set", 3, OBJECT_DESCRIPTOR));
+        }
+
+        procedureMap.put("+", createArithmeticProcedure("add"));
+        procedureMap.put("-", expressions -> {
+            String procedureName = expressions.size() == 1 ? "negate" : "subtract";
+            createArithmeticProcedure(procedureName).generateCode(expressions);
+        });
+        procedureMap.put("*", createArithmeticProcedure("multiply"));
+        procedureMap.put("quotient", expressions -> {
+            Util.checkExactArity(expressions.size(), 2);
+            createArithmeticProcedure("divide").generateCode(expressions);
+        });
+
+        return procedureMap;
+    }
+
+    public Map<String, BytecodeGenProcedure> getPredicateMap() {
+        Map<String, BytecodeGenProcedure> predicateMap = new HashMap<>();
+
+        predicateMap.put("<", createComparisonPredicate(Opcode.IFGE));
+        predicateMap.put("<=", createComparisonPredicate(Opcode.IFGT));
+        predicateMap.put(">", createComparisonPredicate(Opcode.IFLE));
+        predicateMap.put(">=", createComparisonPredicate(Opcode.IFLT));
+
+        predicateMap.put("equal?", expressions -> {
+            Util.checkExactArity(expressions.size(), 2);
+
+            bytecodeGenVisitor.generateExpression(expressions.get(0));
+            bytecodeGenVisitor.generateExpression(expressions.get(1));
+            bytecodeGenVisitor.getBytecode().addInvokestatic("java.util.Objects", "equals",
+                    "(Ljava/lang/Object;Ljava/lang/Object;)Z");
+        });
+
+        predicateMap.put("null?", createFixedArityProcedure("isNull", 1, "Z"));
+        predicateMap.put("pair?", createFixedArityProcedure("isPair", 1, "Z"));
+        predicateMap.put("vector?", createFixedArityProcedure("isVector", 1, "Z"));
+        predicateMap.put("bytevector?", createFixedArityProcedure("isBytevector", 1, "Z"));
+
+        return predicateMap;
+    }
+
+    private BytecodeGenProcedure createFixedArityProcedure(String procedureName, int arity, String returnDescriptor) {
+        return expressions -> {
+            Util.checkExactArity(expressions.size(), arity);
+
+            StringBuilder descriptor = new StringBuilder("(");
+            for (SchemeParser.ExpressionContext expression : expressions) {
+                bytecodeGenVisitor.generateExpression(expression);
+                descriptor.append(OBJECT_DESCRIPTOR);
+            }
+            descriptor.append(")").append(returnDescriptor);
+
+            bytecodeGenVisitor.getBytecode().addInvokestatic(PREDEFINED_PROCEDURES_CLASS, procedureName,
+                    descriptor.toString());
+        };
+    }
+
+    private BytecodeGenProcedure createVariableArityProcedure(String procedureName, int minimumArity,
+                                                              int maximumArity) {
+        return expressions -> {
+            if (expressions.size() < minimumArity || expressions.size() > maximumArity) {
+                String message = "Arguments count %d does not match expected arity of %d to %d";
+                throw new ParseCancellationException(String.format(message, expressions.size(), minimumArity,
+                        maximumArity));
+            }
+            createFixedArityProcedure(procedureName, expressions.size(), OBJECT_DESCRIPTOR).generateCode(expressions);
+        };
+    }
+
+    private BytecodeGenProcedure createArithmeticProcedure(String procedureName) {
+        return expressions -> {
+            if (expressions.size() >= 1 && expressions.size() <= MAXIMUM_FIXED_ARITY) {
+                StringBuilder descriptor = new StringBuilder("(");
+                for (SchemeParser.ExpressionContext expression : expressions) {
+                    bytecodeGenVisitor.generateExpression(expression);
+                    descriptor.append(OBJECT_DESCRIPTOR);
+                }
+                descriptor.append(")Ljava/lang/Number;");
+
+                bytecodeGenVisitor.getBytecode().addInvokestatic(PREDEFINED_PROCEDURES_CLASS, procedureName,
+                        descriptor.toString());
+            } else {
+                bytecodeGenVisitor.generateArray(expressions);
+                bytecodeGenVisitor.getBytecode().addInvokestatic(PREDEFINED_PROCEDURES_CLASS, procedureName,
+                        ARITHMETIC_DESCRIPTOR);
+            }
+        };
+    }
+
+    private BytecodeGenProcedure createComparisonPredicate(int failureOpcode) {
+        return expressions -> {
+            Bytecode code = bytecodeGenVisitor.getBytecode();
+
+            List<Integer> operands = new ArrayList<>();
+            for (SchemeParser.ExpressionContext expression : expressions) {
+                int operand = bytecodeGenVisitor.allocateLocal();
+                bytecodeGenVisitor.generateExpression(expression);
+                code.addAstore(operand);
+                operands.add(operand);
+            }
+
+            List<Integer> failureJumps = new ArrayList<>();
+            for (int current = 0; current < operands.size() - 1; current++) {
+                code.addAload(operands.get(current));
+                code.addAload(operands.get(current + 1));
+                code.addInvokestatic(PREDEFINED_PROCEDURES_CLASS, "compare",
+                        "(Ljava/lang/Object;Ljava/lang/Object;)I");
+                failureJumps.add(bytecodeGenVisitor.addJump(failureOpcode));
+            }
+
+            code.addIconst(1);
+            int endJump = bytecodeGenVisitor.addJump(Opcode.GOTO);
+            failureJumps.forEach(bytecodeGenVisitor::setJumpTarget);
+            code.addIconst(0);
+            bytecodeGenVisitor.setJumpTarget(endJump);
+        };
+    }
+
+}
@@ -1,20 +1,56 @@
+import lang.Util;
 import org.antlr.v4.runtime.misc.ParseCancellationException;
 import org.antlr.v4.runtime.tree.TerminalNode;
+import runtime.PredefinedProcedures;
 
+import java.math.BigInteger;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
 public class CodeGenVisitor extends SchemeBaseVisitor<GeneratedCode.GeneratedCodeBuilder> {
 
     private static final String UNDEFINED_VARIABLE_EXCEPTION_MESSAGE = "Undefined variable '%s'";
-
-    private static AtomicInteger methodIndex = new AtomicInteger(0);
+    private static final String PREDEFINED_PROCEDURE_VALUE_EXCEPTION_MESSAGE =
+            "Predefined procedure '%s' cannot be used as a value";
+    private static final String LITERAL_FIELD_NAME = "LITERAL_%d";
+    private static final String LOCAL_VARIABLE_NAME = "%sLocal%d";
+    private static final String LAMBDA_METHOD_NAME = "evaluateLambda%d";
+    private static final String DISCARDED_VALUE_NAME = "discardedValue";
+    private static final String METHOD_HANDLE_FIELD_NAME = "HANDLE_%s";
+    private static final int MAXIMUM_FIXED_ARITY = 3;
+    private static final int MAXIMUM_INLINE_IF_LENGTH = 2000;
+    private static final int MAXIMUM_INLINE_LET_LENGTH = 2000;
+    private static final Set<String> PREDICATES = new HashSet<>(Arrays.asList("<", "<=", ">", ">=", "equal?",
+            "null?", "pair?", "vector?", "bytevector?"));
+
+    private int methodIndex = 0;
+    private int localIndex = 0;
+    private int lambdaIndex = 0;
 
     private final Map<String, CodeGenProcedure> procedureMap;
 
-    private Map<String, String> substitutions = new HashMap<>();
+    private final Set<String> userDefinedProcedures = new HashSet<>();
+    private final Map<String, String> literalFields = new HashMap<>();
+    private final List<String> literalFieldDefinitions = new ArrayList<>();
+    private final Set<String> methodHandleFields = new HashSet<>();
+    private final GeneratedCode.GeneratedCodeBuilder lambdaCode = new GeneratedCode.GeneratedCodeBuilder();
+    private final Map<String, Lambda> globalLambdas = new HashMap<>();
+
+    private Map<String, SchemeParser.Procedure_definitionContext> procedureDefinitions = new HashMap<>();
+    private TailCallAnalysis tailCallAnalysis;
+    private Inliner inliner;
+    private ConstantFolder constantFolder;
+    private int inlineDepth = 0;
+    private final Set<String> generatedTailCallGroups = new HashSet<>();
+    private List<String> tailCallGroup = Collections.emptyList();
+    private Map<String, String> localNames = new HashMap<>();
+    private List<String> enclosingLocalNames = new ArrayList<>();
+    private List<String> hoistedLocalNames;
+    private Map<String, Lambda> localLambdas = new HashMap<>();
+    private Lambda enclosingLambda;
+    private List<String> enclosingLambdaParams = Collections.emptyList();
+    private boolean isLambdaLooping;
 
     public Function<SchemeParser.ExpressionContext, GeneratedCode.GeneratedCodeBuilder> expressionToCode() {
         return expression -> {
@@ -22,12 +58,21 @@ public class CodeGenVisitor extends SchemeBaseVisitor<GeneratedCode.GeneratedCod
             String codeConstant = "";
 
             if (isConstant(expression)) {
-                String constant = visitConstant(expression.constant()).getGeneratedCode();
-                codeConstant = constant.substring(0, constant.length() - 1);
+                codeConstant = createLiteral(expression.constant());
             }
 
             if (isIdentifier(expression)) {
-                codeConstant = getIdentifierText(expression.IDENTIFIER());
+                codeConstant = createVariableReference(getIdentifierText(expression.IDENTIFIER()));
+            }
+
+            if (isLambda(expression)) {
+                codeConstant = createClosure(createLambda(expression.lambda_expression()));
+            }
+
+            if (isLet(expression)) {
+                GeneratedCode.GeneratedCodeBuilder genCodeBuilder = createLetExpression(expression.let_expression());
+                codeConstant = genCodeBuilder.getGeneratedCode();
+                codeBuilder = codeBuilder.mergeWith(genCodeBuilder);
             }
 
             if (isApplication(expression)) {
@@ -49,67 +94,231 @@ public class CodeGenVisitor extends SchemeBaseVisitor<GeneratedCode.GeneratedCod
         procedureMap = procedureMapInitializer.getInitialMap();
     }
 
+    @Override
+    public GeneratedCode.GeneratedCodeBuilder visitProgram(SchemeParser.ProgramContext program) {
+        InternalDefinitionRewriter.rewrite(program);
+        procedureDefinitions = TailCallAnalysis.collectProcedureDefinitions(program);
+
+        Map<String, SchemeParser.Lambda_expressionContext> globalLambdaExpressions = new HashMap<>();
+        program.form()
+                .stream()
+                .map(SchemeParser.FormContext::definition)
+                .filter(definition -> Objects.nonNull(definition) && isVariableDefinition(definition))
+                .map(SchemeParser.DefinitionContext::variable_definition)
+                .filter(variableDefinition -> isLambda(variableDefinition.expression()))
+                .forEach(variableDefinition -> globalLambdaExpressions.put(
+                        getIdentifierText(variableDefinition.IDENTIFIER()),
+                        variableDefinition.expression().lambda_expression()));
+        globalLambdaExpressions.forEach((identifier, lambdaExpression) -> globalLambdas.put(identifier,
+                new Lambda(createLambdaMethodName(), Collections.emptyList(), lambdaExpression.param().size())));
+
+        tailCallAnalysis = new TailCallAnalysis(procedureDefinitions, this::isPredefined);
+        inliner = new Inliner(procedureDefinitions);
+        constantFolder = new ConstantFolder(userDefinedProcedures, inliner);
+        globalLambdaExpressions.forEach((identifier, lambdaExpression) -> globalLambdas.get(identifier)
+                .mayReturnTailCall = tailCallAnalysis.mayReturnTailCall(lambdaExpression, identifier,
+                this::isVariable));
+
+        GeneratedCode.GeneratedCodeBuilder programCode = visitChildren(program);
+
+        GeneratedCode.GeneratedCodeBuilder literalCode = new GeneratedCode.GeneratedCodeBuilder();
+        literalFieldDefinitions.forEach(literalCode::addVariableDefinition);
+
+        return literalCode.mergeWith(programCode).mergeWith(lambdaCode);
+    }
+
+    @Override
+    public GeneratedCode.GeneratedCodeBuilder visitForm(SchemeParser.FormContext form) {
+        SchemeParser.ExpressionContext expression = form.expression();
+        if (expression == null || !isApplication(expression) && !isLet(expression)) {
+            return visitChildren(form);
+        }
+
+        GeneratedCode.GeneratedCodeBuilder codeBuilder = new GeneratedCode.GeneratedCodeBuilder();
+        String code = createObjectCode(expression, codeBuilder);
+        if (code != null && !code.isEmpty()) {
+            codeBuilder.addStatementsToMainMethod(createStatement(code));
+        }
+
+        return codeBuilder;
+    }
+
+    @Override
+    public GeneratedCode.GeneratedCodeBuilder visitLambda_expression(SchemeParser.Lambda_expressionContext lambda) {
+        return defaultResult();
+    }
+
     @Override
     public GeneratedCode.GeneratedCodeBuilder visitApplication(SchemeParser.ApplicationContext application) {
         String identifier = getIdentifierText(application.IDENTIFIER());
 
+        Optional<Object> foldedValue = constantFolder.fold(application, this::isVariable);
+        if (foldedValue.isPresent()) {
+            return new GeneratedCode.GeneratedCodeBuilder().setGeneratedCode(createLiteral(foldedValue.get()));
+        }
+
         List<SchemeParser.ExpressionContext> expressions = application.expression();
         if ("if".equalsIgnoreCase(identifier)) {
-            if (expressions.size() == 3) {
-                GeneratedCode.GeneratedCodeBuilder codeBuilder = new GeneratedCode.GeneratedCodeBuilder();
-                String methodName = String.format("evaluateIf%d()", methodIndex.getAndIncrement());
-
-                String ifStatement =
-                        String.format("public static Object %s {if(%s){return %s;}else{return %s;}}",
-                                methodName,
-                                expressionToCode().apply(expressions.get(0)).getGeneratedCode(),
-                                expressionToCode().apply(expressions.get(1)).getGeneratedCode(),
-                                expressionToCode().apply(expressions.get(2)).getGeneratedCode());
-
-                codeBuilder.addMethodToBeDeclared(methodName, ifStatement);
-                codeBuilder.setGeneratedCode(methodName);
-
-                return codeBuilder;
+            if (expressions.size() == 2 || expressions.size() == 3) {
+                return createConditional(expressions);
             }
+        } else if (localLambdas.containsKey(identifier)) {
+            return createDirectCall(localLambdas.get(identifier), expressions);
+        } else if (localNames.containsKey(identifier)) {
+            return createClosureCall(localNames.get(identifier), expressions);
+        } else if (globalLambdas.containsKey(identifier)) {
+            return createDirectCall(globalLambdas.get(identifier), expressions);
+        } else if (isInlinable(identifier, expressions) && expressions.stream().allMatch(this::isTrivial)) {
+            return createInlinedCall(identifier, expressions);
         } else if (procedureMap.containsKey(identifier)) {
             CodeGenProcedure codeGenProcedure = procedureMap.get(identifier);
 
             return codeGenProcedure.generateCode(expressions);
         } else {
-            return createProcedure(identifier, "%s(%s)").generateCode(expressions);
+            return createUserProcedure(identifier).generateCode(expressions);
         }
 
         return new GeneratedCode.GeneratedCodeBuilder();
     }
 
+    private boolean isInlinable(String procedureName, List<SchemeParser.ExpressionContext> arguments) {
+        return (userDefinedProcedures.contains(procedureName) || !procedureMap.containsKey(procedureName))
+                && !isLocalVariable(procedureName)
+                && inlineDepth < Inliner.MAXIMUM_INLINE_DEPTH
+                && inliner.isInlinable(procedureName, arguments.size())
+                && Collections.disjoint(inliner.getFreeVariables(procedureName), enclosingLocalNames);
+    }
+
+    private boolean isTrivial(SchemeParser.ExpressionContext expression) {
+        return isConstant(expression) || isIdentifier(expression)
+                || isApplication(expression) && constantFolder.fold(expression.application(), this::isVariable)
+                .isPresent();
+    }
+
+    private GeneratedCode.GeneratedCodeBuilder createInlinedCall(String procedureName,
+                                                                 List<SchemeParser.ExpressionContext> arguments) {
+        GeneratedCode.GeneratedCodeBuilder codeBuilder = new GeneratedCode.GeneratedCodeBuilder();
+        Map<String, String> enclosingNames = localNames;
+        Map<String, Lambda> enclosingLambdas = localLambdas;
+
+        Map<String, String> argumentNames = new HashMap<>();
+        List<String> paramNames = inliner.getParamNames(procedureName);
+        for (int i = 0; i < paramNames.size(); i++) {
+            argumentNames.put(paramNames.get(i), createObjectCode(arguments.get(i), codeBuilder));
+        }
+
+        localNames = argumentNames;
+        localLambdas = new HashMap<>();
+        inlineDepth++;
+        String inlinedCode = createObjectCode(inliner.getBody(procedureName), codeBuilder);
+        inlineDepth--;
+        localNames = enclosingNames;
+        localLambdas = enclosingLambdas;
+
+        return codeBuilder.setGeneratedCode(inlinedCode);
+    }
+
+    private String createInlinedTailStatement(String procedureName, List<SchemeParser.ExpressionContext> arguments,
+                                              GeneratedCode.GeneratedCodeBuilder codeBuilder) {
+        Map<String, String> enclosingNames = localNames;
+        Map<String, Lambda> enclosingLambdas = localLambdas;
+        int enclosingLocalCount = enclosingLocalNames.size();
+
+        StringBuilder statement = new StringBuilder();
+        Map<String, String> argumentNames = new HashMap<>();
+        List<String> paramNames = inliner.getParamNames(procedureName);
+        for (int i = 0; i < paramNames.size(); i++) {
+            String value = createObjectCode(arguments.get(i), codeBuilder);
+            String localName = createLocalName(paramNames.get(i));
+            argumentNames.put(paramNames.get(i), localName);
+            statement.append(String.format("Object %s=%s;", localName, value));
+        }
+
+        localNames = argumentNames;
+        localLambdas = new HashMap<>();
+        inlineDepth++;
+        statement.append(createTailStatement(inliner.getBody(procedureName), codeBuilder));
+        inlineDepth--;
+        localNames = enclosingNames;
+        localLambdas = enclosingLambdas;
+        enclosingLocalNames.subList(enclosingLocalCount, enclosingLocalNames.size()).clear();
+
+        return statement.toString();
+    }
+
+    private GeneratedCode.GeneratedCodeBuilder createConditional(List<SchemeParser.ExpressionContext> expressions) {
+        GeneratedCode.GeneratedCodeBuilder codeBuilder = new GeneratedCode.GeneratedCodeBuilder();
+        int hoistedLocalCount = hoistedLocalNames == null ? 0 : hoistedLocalNames.size();
+        String condition = createConditionCode(expressions.get(0), codeBuilder);
+        String consequent = createObjectCode(expressions.get(1), codeBuilder);
+        String alternative = expressions.size() == 3 ? createObjectCode(expressions.get(2), codeBuilder) : "null";
+
+        String conditional = String.format("(%s?(Object)%s:(Object)%s)", condition, consequent, alternative);
+        if (conditional.length() > MAXIMUM_INLINE_IF_LENGTH) {
+            conditional = createOutlinedMethod("evaluateIf%d", new ArrayList<>(enclosingLocalNames), hoistedLocalCount,
+                    String.format("if(%s){return %s;}else{return %s;}", condition, consequent, alternative),
+                    codeBuilder);
+        }
+
+        return codeBuilder.setGeneratedCode(conditional);
+    }
+
+    private String createOutlinedMethod(String methodNameFormat, List<String> params, int hoistedLocalCount,
+                                        String body, GeneratedCode.GeneratedCodeBuilder codeBuilder) {
+        String methodName = String.format(methodNameFormat, methodIndex++);
+        List<String> hoistedLocals = hoistedLocalNames == null ? new ArrayList<>() :
+                hoistedLocalNames.subList(hoistedLocalCount, hoistedLocalNames.size());
+        codeBuilder.addMethodToBeDeclared(methodName, String.format("public static Object %s(%s){%s%s}", methodName,
+                createParams(params), createHoistedLocalDeclarations(hoistedLocals), body));
+        hoistedLocals.clear();
+
+        return String.format("%s(%s)", methodName, String.join(",", params));
+    }
+
+    private String createConditionCode(SchemeParser.ExpressionContext condition,
+                                       GeneratedCode.GeneratedCodeBuilder codeBuilder) {
+        GeneratedCode.GeneratedCodeBuilder conditionCode = expressionToCode().apply(condition);
+        codeBuilder.mergeWith(conditionCode);
+
+        return isPrimitiveBoolean(condition) ? conditionCode.getGeneratedCode() :
+                String.format("!Boolean.FALSE.equals(%s)", conditionCode.getGeneratedCode());
+    }
+
+    private String createObjectCode(SchemeParser.ExpressionContext expression,
+                                    GeneratedCode.GeneratedCodeBuilder codeBuilder) {
+        GeneratedCode.GeneratedCodeBuilder expressionCode = expressionToCode().apply(expression);
+        codeBuilder.mergeWith(expressionCode);
+
+        return isPrimitiveBoolean(expression) ? String.format("Boolean.valueOf(%s)",
+                expressionCode.getGeneratedCode()) : expressionCode.getGeneratedCode();
+    }
+
+    private boolean isPrimitiveBoolean(SchemeParser.ExpressionContext expression) {
+        if (!isApplication(expression)) {
+            return false;
+        }
+
+        Optional<Object> foldedValue = constantFolder.fold(expression.application(), this::isVariable);
+        if (foldedValue.isPresent()) {
+            return foldedValue.get() instanceof Boolean;
+        }
+
+        String identifier = expression.application().IDENTIFIER().getText();
+        return PREDICATES.contains(identifier) && !userDefinedProcedures.contains(identifier);
+    }
+
     @Override
     public GeneratedCode.GeneratedCodeBuilder visitConstant(SchemeParser.ConstantContext constant) {
         GeneratedCode.GeneratedCodeBuilder codeBuilder = new GeneratedCode.GeneratedCodeBuilder();
 
         String constantCode = "";
         if (isNumber(constant)) {
-            constantCode = String.format("new BigInteger(\"%s\");", constant.NUMBER().getText());
+            Number number = getNumberValue(constant);
+            constantCode = number instanceof Long ? String.format("Long.valueOf(%dL);", number) :
+                    String.format("new BigInteger(\"%s\");", number);
         }
         if (isCharacter(constant)) {
-            char containedChar;
-
-            String characterText = constant.CHARACTER().getText().substring(2);
-            if (characterText.length() > 1) {
-                switch (characterText) {
-                    case "newline":
-                        containedChar = '\n';
-                        break;
-                    case "space":
-                        containedChar = ' ';
-                        break;
-                    default:
-                        throw new ParseCancellationException(
-                                String.format("Could not evaluate character literal '%s'",
-                                        constant.CHARACTER().getText()));
-                }
-            } else {
-                containedChar = constant.CHARACTER().getText().charAt(2);
-            }
+            char containedChar = getCharacterValue(constant);
 
             String formattedString = String.format("new Character('%c');", containedChar);
             constantCode = formattedString.replace("\n", "\\n");
@@ -126,6 +335,65 @@ public class CodeGenVisitor extends SchemeBaseVisitor<GeneratedCode.GeneratedCod
         return codeBuilder;
     }
 
+    private String createLiteral(SchemeParser.ConstantContext constant) {
+        if (isBoolean(constant)) {
+            return "#t".equals(constant.BOOLEAN().getText()) ? "Boolean.TRUE" : "Boolean.FALSE";
+        }
+        if (isString(constant)) {
+            return hoistLiteral("String", constant.STRING().getText());
+        }
+
+        String initializer = visitConstant(constant).getGeneratedCode();
+        initializer = initializer.substring(0, initializer.length() - 1);
+
+        return hoistLiteral(isNumber(constant) ? "Number" : "Character", initializer);
+    }
+
+    private String createLiteral(Object value) {
+        if (value instanceof Boolean) {
+            return value.toString();
+        }
+        if (value instanceof Long) {
+            return hoistLiteral("Number", String.format("Long.valueOf(%dL)", value));
+        }
+
+        return hoistLiteral("Number", String.format("new BigInteger(\"%s\")", value));
+    }
+
+    private String hoistLiteral(String type, String initializer) {
+        String key = type + " " + initializer;
+        String fieldName = literalFields.get(key);
+        if (fieldName == null) {
+            fieldName = String.format(LITERAL_FIELD_NAME, literalFields.size());
+            literalFields.put(key, fieldName);
+            literalFieldDefinitions.add(String.format("static final %s %s = %s;", type, fieldName, initializer));
+        }
+
+        return fieldName;
+    }
+
+    static Number getNumberValue(SchemeParser.ConstantContext constant) {
+        return PredefinedProcedures.normalize(new BigInteger(constant.NUMBER().getText()));
+    }
+
+    static char getCharacterValue(SchemeParser.ConstantContext constant) {
+        String characterText = constant.CHARACTER().getText().substring(2);
+        if (characterText.length() > 1) {
+            switch (characterText) {
+                case "newline":
+                    return '\n';
+                case "space":
+                    return ' ';
+                default:
+                    throw new ParseCancellationException(
+                            String.format("Could not evaluate character literal '%s'",
+                                    constant.CHARACTER().getText()));
+            }
+        }
+
+        return constant.CHARACTER().getText().charAt(2);
+    }
+
     @Override
     public GeneratedCode.GeneratedCodeBuilder visitDefinition(SchemeParser.DefinitionContext definition) {
         return isVariableDefinition(definition) ? visitVariable_definition(definition.variable_definition()) :
@@ -140,6 +408,10 @@ public class CodeGenVisitor extends SchemeBaseVisitor<GeneratedCode.GeneratedCod
         String variableCode = "";
 
         SchemeParser.ExpressionContext expression = variableDefinition.expression();
+        if (isLambda(expression)) {
+            createLambdaMethod(globalLambdas.get(identifier), expression.lambda_expression());
+            return generatedCode;
+        }
         if (isConstant(expression)) {
             VariableDefinition variableDefinitionForConstant = createVariableDefinitionForConstant(identifier,
                     expression.constant());
@@ -170,78 +442,676 @@ public class CodeGenVisitor extends SchemeBaseVisitor<GeneratedCode.GeneratedCod
     @Override
     public GeneratedCode.GeneratedCodeBuilder visitProcedure_definition(SchemeParser.Procedure_definitionContext
                                                                                 procedureDefinition) {
-        GeneratedCode.GeneratedCodeBuilder codeBuilder = procedureDefinition.definition()
-                .stream()
-                .map(this::visitDefinition)
-                .reduce(new GeneratedCode.GeneratedCodeBuilder(), GeneratedCode.GeneratedCodeBuilder::mergeWith);
-
         String procedureName = getIdentifierText(procedureDefinition.proc_name().IDENTIFIER());
-        List<SchemeParser.ExpressionContext> expression = procedureDefinition.expression();
 
-        procedureMap.put(procedureName, createProcedure(procedureName, "%s(%s)"));
+        procedureMap.put(procedureName, createUserProcedure(procedureName));
+        userDefinedProcedures.add(procedureName);
 
-        SchemeParser.ExpressionContext lastExpression = expression.get(expression.size() - 1);
-
-        String generatedMethod = "";
-        if (isConstant(lastExpression)) {
-            generatedMethod = String.format("public static Object %s(){return %s;}", procedureName,
-                    expressionToCode().apply(lastExpression).getGeneratedCode());
+        List<String> group = tailCallAnalysis.getGroup(procedureName);
+        if (group.size() > 1) {
+            return generatedTailCallGroups.add(group.get(0)) ? createTailCallGroup(group) :
+                    new GeneratedCode.GeneratedCodeBuilder();
         }
+
+        GeneratedCode.GeneratedCodeBuilder codeBuilder = new GeneratedCode.GeneratedCodeBuilder();
+
+        List<SchemeParser.ExpressionContext> expression = procedureDefinition.expression();
+        SchemeParser.ExpressionContext lastExpression = expression.get(expression.size() - 1);
         if (isApplication(lastExpression)) {
-            SchemeParser.ApplicationContext application = lastExpression.application();
+            String calledProcedureName = lastExpression.application().IDENTIFIER().getText();
 
-            if (!procedureMap.containsKey(application.IDENTIFIER().getText())) {
-                codeBuilder.addMethodToBeDeclared(application.IDENTIFIER().getText());
+            if (!procedureMap.containsKey(calledProcedureName)) {
+                codeBuilder.addMethodToBeDeclared(calledProcedureName);
             }
+        }
 
-            String params = procedureDefinition
-                    .param()
-                    .stream()
-                    .map(p -> "Object " + getIdentifierText(p.IDENTIFIER()))
-                    .collect(Collectors.joining(","));
+        List<String> paramNames = getParamNames(procedureDefinition.param());
+
+        tailCallGroup = group;
+        enterProcedure(paramNames);
+        hoistedLocalNames = new ArrayList<>();
+        String body = createLocalDefinitions(procedureDefinition, codeBuilder) +
+                createBodyStatement(expression, codeBuilder);
+        body = createHoistedLocalDeclarations(hoistedLocalNames) + body;
+        hoistedLocalNames = null;
+        if (!group.isEmpty()) {
+            body = "while(true){" + body + "}";
+        }
+        tailCallGroup = Collections.emptyList();
+        enterProcedure(Collections.emptyList());
+
+        String generatedMethod = String.format("public static Object %s(%s){%s}", procedureName,
+                createParams(paramNames), body);
+        codeBuilder.addMethodToBeDeclared(procedureName, generatedMethod);
+
+        return codeBuilder.setGeneratedCode(null);
+    }
+
+    private GeneratedCode.GeneratedCodeBuilder createTailCallGroup(List<String> group) {
+        GeneratedCode.GeneratedCodeBuilder codeBuilder = new GeneratedCode.GeneratedCodeBuilder();
+        String dispatchMethodName = String.format(Compiler.TAIL_CALL_DISPATCH_METHOD_NAME,
+                generatedTailCallGroups.size() - 1);
+        int maximumParameterCount = group.stream()
+                .mapToInt(member -> procedureDefinitions.get(member).param().size())
+                .max()
+                .orElse(0);
+
+        for (String member : group) {
+            procedureMap.put(member, createUserProcedure(member));
+            userDefinedProcedures.add(member);
+        }
+
+        StringBuilder cases = new StringBuilder();
+        tailCallGroup = group;
+        for (int member = 0; member < group.size(); member++) {
+            SchemeParser.Procedure_definitionContext procedureDefinition = procedureDefinitions.get(group.get(member));
 
-            String body = constructProcedureBody(procedureDefinition, procedureName, application);
+            cases.append(String.format("case %d:{", member));
+            List<String> paramNames = getParamNames(procedureDefinition.param());
+            for (int i = 0; i < paramNames.size(); i++) {
+                cases.append(String.format("Object %s=dispatchArgument%d;", paramNames.get(i), i));
+            }
 
-            generatedMethod = String.format("public static Object %s(%s){%s}",
-                    procedureName, params, body);
+            List<SchemeParser.ExpressionContext> expression = procedureDefinition.expression();
+            enterProcedure(paramNames);
+            hoistedLocalNames = new ArrayList<>();
+            String body = createLocalDefinitions(procedureDefinition, codeBuilder) +
+                    createBodyStatement(expression, codeBuilder);
+            cases.append(createHoistedLocalDeclarations(hoistedLocalNames)).append(body).append("}");
+            hoistedLocalNames = null;
         }
-        if (isIdentifier(lastExpression)) {
-            generatedMethod = String.format("public static Object %s(){return %s;}", procedureName,
-                    expressionToCode().apply(lastExpression).getGeneratedCode());
+        tailCallGroup = Collections.emptyList();
+        enterProcedure(Collections.emptyList());
+
+        StringBuilder dispatchParams = new StringBuilder("int dispatchTarget");
+        for (int i = 0; i < maximumParameterCount; i++) {
+            dispatchParams.append(String.format(",Object dispatchArgument%d", i));
         }
+        codeBuilder.addMethodToBeDeclared(dispatchMethodName, String.format("private static Object %s(%s)" +
+                        "{while(true){switch(dispatchTarget){%sdefault:throw new IllegalStateException();}}}",
+                dispatchMethodName, dispatchParams, cases));
+
+        for (int member = 0; member < group.size(); member++) {
+            List<String> paramNames = getParamNames(procedureDefinitions.get(group.get(member)).param());
+            List<String> dispatchArguments = new ArrayList<>(paramNames);
+            while (dispatchArguments.size() < maximumParameterCount) {
+                dispatchArguments.add("null");
+            }
 
-        codeBuilder.addMethodToBeDeclared(procedureName, generatedMethod);
+            codeBuilder.addMethodToBeDeclared(group.get(member), String.format(
+                    "public static Object %s(%s){return %s(%d%s);}", group.get(member), createParams(paramNames),
+                    dispatchMethodName, member,
+                    dispatchArguments.stream().map(argument -> "," + argument).collect(Collectors.joining())));
+        }
 
-        return codeBuilder;
+        return codeBuilder.setGeneratedCode(null);
+    }
+
+    private void enterProcedure(List<String> paramNames) {
+        localNames = new HashMap<>();
+        localLambdas = new HashMap<>();
+        enclosingLocalNames = new ArrayList<>();
+        paramNames.forEach(paramName -> bindLocal(paramName, createLocalName(paramName)));
+    }
+
+    private String createLocalName(String identifier) {
+        String localName = enclosingLocalNames.contains(identifier) ?
+                String.format(LOCAL_VARIABLE_NAME, identifier, localIndex++) : identifier;
+        enclosingLocalNames.add(localName);
+
+        return localName;
     }
 
-    private String constructProcedureBody(SchemeParser.Procedure_definitionContext procedureDefinition, String procedureName, SchemeParser.ApplicationContext application) {
-        String body;
-        if ("if".equalsIgnoreCase(getIdentifierText(application.IDENTIFIER()))) {
-            Optional<String> optimizedTailRecursion = optimizeTailRecursion(application, procedureName,
-                    procedureDefinition.param());
+    private String createLocalDefinitions(SchemeParser.Procedure_definitionContext procedureDefinition,
+                                          GeneratedCode.GeneratedCodeBuilder codeBuilder) {
+        StringBuilder localDefinitions = new StringBuilder();
+        List<SchemeParser.Variable_definitionContext> variableDefinitions = procedureDefinition.definition()
+                .stream()
+                .filter(CodeGenVisitor::isVariableDefinition)
+                .map(SchemeParser.DefinitionContext::variable_definition)
+                .collect(Collectors.toList());
+        for (int i = 0; i < variableDefinitions.size(); i++) {
+            SchemeParser.ExpressionContext expression = variableDefinitions.get(i).expression();
+            String identifier = getIdentifierText(variableDefinitions.get(i).IDENTIFIER());
+
+            if (isLambda(expression)) {
+                List<SchemeParser.ExpressionContext> scope = variableDefinitions.subList(i, variableDefinitions.size())
+                        .stream()
+                        .map(SchemeParser.Variable_definitionContext::expression)
+                        .collect(Collectors.toList());
+                scope.addAll(procedureDefinition.expression());
+
+                Map<String, SchemeParser.Lambda_expressionContext> lambdaExpressions = new LinkedHashMap<>();
+                for (; i < variableDefinitions.size() && isLambda(variableDefinitions.get(i).expression()); i++) {
+                    lambdaExpressions.put(getIdentifierText(variableDefinitions.get(i).IDENTIFIER()),
+                            variableDefinitions.get(i).expression().lambda_expression());
+                }
+                i--;
 
-            if (optimizedTailRecursion.isPresent()) {
-                body = optimizedTailRecursion.get();
+                declareLambdas(lambdaExpressions).forEach((lambdaIdentifier, lambda) ->
+                        localDefinitions.append(createClosureLocal(lambdaIdentifier, lambda, scope)));
             } else {
-                List<SchemeParser.ExpressionContext> expressions = application.expression();
-                body = String.format("if(%s){return %s;}else{return %s;}",
-                        expressionToCode().apply(expressions.get(0)).getGeneratedCode(),
-                        expressionToCode().apply(expressions.get(1)).getGeneratedCode(),
-                        expressionToCode().apply(expressions.get(2)).getGeneratedCode());
+                String value = createObjectCode(expression, codeBuilder);
+                String localName = createLocalName(identifier);
+                bindLocal(identifier, localName);
+                localDefinitions.append(String.format("Object %s=%s;", localName, value));
             }
+        }
+
+        return localDefinitions.toString();
+    }
+
+    private GeneratedCode.GeneratedCodeBuilder createLetExpression(SchemeParser.Let_expressionContext let) {
+        GeneratedCode.GeneratedCodeBuilder codeBuilder = new GeneratedCode.GeneratedCodeBuilder();
+        List<String> params = new ArrayList<>(enclosingLocalNames);
+
+        List<String> enclosingTailCallGroup = tailCallGroup;
+        Lambda lambda = enclosingLambda;
+        tailCallGroup = Collections.emptyList();
+        enclosingLambda = null;
+        String letCode;
+        if (hoistedLocalNames == null) {
+            hoistedLocalNames = new ArrayList<>();
+            letCode = String.format("TailCall.force(%s)", createOutlinedMethod("evaluateLet%d", params, 0,
+                    createLet(let, false, codeBuilder), codeBuilder));
+            hoistedLocalNames = null;
         } else {
-            body = "return " + visitApplication(application).getGeneratedCode() + ";";
+            int hoistedLocalCount = hoistedLocalNames.size();
+            letCode = createLet(let, true, codeBuilder);
+            if (letCode.length() > MAXIMUM_INLINE_LET_LENGTH) {
+                letCode = createOutlinedMethod("evaluateLet%d", params, hoistedLocalCount,
+                        "return " + letCode + ";", codeBuilder);
+            }
+        }
+        tailCallGroup = enclosingTailCallGroup;
+        enclosingLambda = lambda;
+
+        return codeBuilder.setGeneratedCode(letCode);
+    }
+
+    private String createLet(SchemeParser.Let_expressionContext let, boolean isExpression,
+                             GeneratedCode.GeneratedCodeBuilder codeBuilder) {
+        Map<String, String> enclosingNames = new HashMap<>(localNames);
+        Map<String, Lambda> enclosingLambdas = new HashMap<>(localLambdas);
+        int enclosingLocalCount = enclosingLocalNames.size();
+        String keyword = let.let_keyword().getText();
+        List<SchemeParser.BindingContext> bindings = let.binding();
+
+        List<String> assignments = new ArrayList<>();
+        if ("letrec".equals(keyword)) {
+            List<SchemeParser.ExpressionContext> scope = bindings.stream()
+                    .map(SchemeParser.BindingContext::expression)
+                    .collect(Collectors.toList());
+            scope.addAll(let.expression());
+
+            Map<String, SchemeParser.Lambda_expressionContext> lambdaExpressions = new LinkedHashMap<>();
+            for (SchemeParser.BindingContext binding : bindings) {
+                String identifier = getIdentifierText(binding.IDENTIFIER());
+                if (isLambda(binding.expression())) {
+                    lambdaExpressions.put(identifier, binding.expression().lambda_expression());
+                } else {
+                    String localName = createLetLocalName(identifier, isExpression);
+                    bindLocal(identifier, localName);
+                    if (!isExpression) {
+                        assignments.add(String.format("Object %s=null;", localName));
+                    }
+                }
+            }
+            Map<String, Lambda> lambdas = declareLambdas(lambdaExpressions);
+
+            for (SchemeParser.BindingContext binding : bindings) {
+                if (!isLambda(binding.expression())) {
+                    assignments.add(String.format(isExpression ? "%s=%s" : "%s=%s;",
+                            getVariableName(binding.IDENTIFIER()), createObjectCode(binding.expression(), codeBuilder)));
+                }
+            }
+            lambdas.forEach((identifier, lambda) -> assignments.add(createClosureLocal(identifier, lambda, scope,
+                    isExpression)));
+        } else {
+            Map<String, String> boundNames = new LinkedHashMap<>();
+            Map<String, Lambda> boundLambdas = new LinkedHashMap<>();
+            for (int i = 0; i < bindings.size(); i++) {
+                SchemeParser.ExpressionContext expression = bindings.get(i).expression();
+                String identifier = getIdentifierText(bindings.get(i).IDENTIFIER());
+
+                if (isLambda(expression)) {
+                    Lambda lambda = createLambda(expression.lambda_expression());
+                    if ("let*".equals(keyword)) {
+                        List<SchemeParser.ExpressionContext> scope = bindings.subList(i + 1, bindings.size())
+                                .stream()
+                                .map(SchemeParser.BindingContext::expression)
+                                .collect(Collectors.toList());
+                        scope.addAll(let.expression());
+                        assignments.add(createClosureLocal(identifier, lambda, scope, isExpression));
+                    } else {
+                        boundLambdas.put(identifier, lambda);
+                    }
+                    continue;
+                }
+
+                String value = createObjectCode(expression, codeBuilder);
+                String localName = createLetLocalName(identifier, isExpression);
+                assignments.add(String.format(isExpression ? "%s=%s" : "Object %s=%s;", localName, value));
+
+                if ("let*".equals(keyword)) {
+                    bindLocal(identifier, localName);
+                } else {
+                    boundNames.put(identifier, localName);
+                }
+            }
+            boundNames.forEach(this::bindLocal);
+            boundLambdas.forEach((identifier, lambda) -> assignments.add(createClosureLocal(identifier, lambda,
+                    let.expression(), isExpression)));
+        }
+        assignments.removeIf(String::isEmpty);
+
+        String letCode;
+        if (isExpression) {
+            List<String> values = new ArrayList<>(assignments);
+            let.expression().forEach(expression -> values.add(createObjectCode(expression, codeBuilder)));
+            values.removeIf(value -> value == null || value.isEmpty());
+            letCode = values.isEmpty() ? "null" : values.get(values.size() - 1);
+            for (int i = values.size() - 2; i >= 0; i--) {
+                letCode = String.format("PredefinedProcedures.sequence(%s,%s)", values.get(i), letCode);
+            }
+        } else {
+            letCode = String.join("", assignments) + createBodyStatement(let.expression(), codeBuilder);
+        }
+
+        localNames = enclosingNames;
+        localLambdas = enclosingLambdas;
+        enclosingLocalNames.subList(enclosingLocalCount, enclosingLocalNames.size()).clear();
+
+        return letCode;
+    }
+
+    private String createLetLocalName(String identifier, boolean isHoisted) {
+        if (!isHoisted) {
+            return createLocalName(identifier);
+        }
+
+        String localName = String.format(LOCAL_VARIABLE_NAME, identifier, localIndex++);
+        enclosingLocalNames.add(localName);
+        hoistedLocalNames.add(localName);
+
+        return localName;
+    }
+
+    private static String createHoistedLocalDeclarations(List<String> hoistedLocals) {
+        return hoistedLocals.stream()
+                .map(localName -> String.format("Object %s=null;", localName))
+                .collect(Collectors.joining());
+    }
+
+    private String createBodyStatement(List<SchemeParser.ExpressionContext> body,
+                                       GeneratedCode.GeneratedCodeBuilder codeBuilder) {
+        StringBuilder statement = new StringBuilder();
+        for (SchemeParser.ExpressionContext expression : body.subList(0, body.size() - 1)) {
+            String value = createObjectCode(expression, codeBuilder);
+            if (value != null && !value.isEmpty()) {
+                statement.append(createStatement(value));
+            }
         }
-        return body;
+
+        return statement.append(createTailStatement(body.get(body.size() - 1), codeBuilder)).toString();
+    }
+
+    private static String createStatement(String code) {
+        return isMethodInvocation(code) ? code + ";" : String.format("{Object %s=%s;}", DISCARDED_VALUE_NAME, code);
+    }
+
+    private static boolean isMethodInvocation(String code) {
+        int argumentsStart = code.indexOf('(');
+        if (argumentsStart <= 0 || !Character.isJavaIdentifierStart(code.charAt(0))) {
+            return false;
+        }
+        for (int i = 0; i < argumentsStart; i++) {
+            if (!Character.isJavaIdentifierPart(code.charAt(i)) && code.charAt(i) != '.') {
+                return false;
+            }
+        }
+
+        int depth = 0;
+        for (int i = argumentsStart; i < code.length(); i++) {
+            depth += code.charAt(i) == '(' ? 1 : code.charAt(i) == ')' ? -1 : 0;
+            if (depth == 0) {
+                return i == code.length() - 1;
+            }
+        }
+
+        return false;
+    }
+
+    private String createTailStatement(SchemeParser.ExpressionContext expression,
+                                       GeneratedCode.GeneratedCodeBuilder codeBuilder) {
+        if (isLet(expression)) {
+            return "{" + createLet(expression.let_expression(), false, codeBuilder) + "}";
+        }
+
+        if (TailCallAnalysis.isIf(expression)) {
+            List<SchemeParser.ExpressionContext> expressions = expression.application().expression();
+            String condition = createConditionCode(expressions.get(0), codeBuilder);
+
+            String consequent = createTailStatement(expressions.get(1), codeBuilder);
+            String alternative = expressions.size() == 3 ? createTailStatement(expressions.get(2), codeBuilder) :
+                    "return null;";
+            return String.format("if(%s){%s}else{%s}", condition, consequent, alternative);
+        }
+
+        if (isApplication(expression) && enclosingLambda != null
+                && getLambda(expression.application().IDENTIFIER().getText()) == enclosingLambda) {
+            return createLambdaTailCall(expression.application(), codeBuilder);
+        }
+
+        if (isApplication(expression) && tailCallGroup.contains(expression.application().IDENTIFIER().getText())
+                && !isLocalVariable(expression.application().IDENTIFIER().getText())) {
+            return createTailCall(expression.application(), codeBuilder);
+        }
+
+        if (isApplication(expression)) {
+            String identifier = expression.application().IDENTIFIER().getText();
+            List<SchemeParser.ExpressionContext> arguments = expression.application().expression();
+
+            if (isInlinable(identifier, arguments) && (!arguments.stream().allMatch(this::isTrivial)
+                    || tailCallAnalysis.mayReturnTailCall(identifier))) {
+                return "{" + createInlinedTailStatement(identifier, arguments, codeBuilder) + "}";
+            }
+
+            Lambda lambda = getLambda(identifier);
+            if (lambda != null && lambda.mayReturnTailCall) {
+                return "return " + createLambdaTailCallObject(lambda, arguments, codeBuilder) + ";";
+            }
+            if (lambda == null && localNames.containsKey(identifier)) {
+                GeneratedCode.GeneratedCodeBuilder closureCall = createClosureCall(localNames.get(identifier),
+                        arguments, "tailApply");
+                codeBuilder.mergeWith(closureCall);
+                return "return " + closureCall.getGeneratedCode() + ";";
+            }
+            if (!isVariable(identifier) && tailCallAnalysis.mayReturnTailCall(identifier)
+                    && !constantFolder.fold(expression.application(), this::isVariable).isPresent()) {
+                GeneratedCode.GeneratedCodeBuilder procedureCall = createProcedure(identifier, "%s(%s)")
+                        .generateCode(arguments);
+                codeBuilder.mergeWith(procedureCall);
+                return "return " + procedureCall.getGeneratedCode() + ";";
+            }
+        }
+
+        return "return " + createObjectCode(expression, codeBuilder) + ";";
+    }
+
+    private String createTailCall(SchemeParser.ApplicationContext tailCall,
+                                  GeneratedCode.GeneratedCodeBuilder codeBuilder) {
+        String procedureName = tailCall.IDENTIFIER().getText();
+        List<String> paramNames = getParamNames(procedureDefinitions.get(procedureName).param());
+        Util.checkExactArity(tailCall.expression().size(), paramNames.size());
+
+        List<String> tailCallExpressions = tailCall.expression()
+                .stream()
+                .map(expression -> createObjectCode(expression, codeBuilder))
+                .collect(Collectors.toList());
+        if (tailCallGroup.size() == 1) {
+            return createSimultaneousAssignments(paramNames, tailCallExpressions);
+        }
+
+        StringBuilder assignments = new StringBuilder();
+        for (int i = 0; i < paramNames.size(); i++) {
+            assignments.append(String.format("dispatchArgument%d=%s;", i, tailCallExpressions.get(i)));
+        }
+        return assignments.append(String.format("dispatchTarget=%d;break;", tailCallGroup.indexOf(procedureName)))
+                .toString();
+    }
+
+    private String createLambdaMethodName() {
+        return String.format(LAMBDA_METHOD_NAME, lambdaIndex++);
+    }
+
+    private Lambda createLambda(SchemeParser.Lambda_expressionContext lambdaExpression) {
+        Lambda lambda = new Lambda(createLambdaMethodName(), getFreeNames(lambdaExpression),
+                lambdaExpression.param().size());
+        lambda.mayReturnTailCall = tailCallAnalysis.mayReturnTailCall(lambdaExpression, null, this::isVariable);
+        createLambdaMethod(lambda, lambdaExpression);
+
+        return lambda;
+    }
+
+    private Map<String, Lambda> declareLambdas(Map<String, SchemeParser.Lambda_expressionContext> lambdaExpressions) {
+        Map<String, Lambda> lambdas = new LinkedHashMap<>();
+        lambdaExpressions.forEach((identifier, lambdaExpression) -> {
+            Lambda lambda = new Lambda(createLambdaMethodName(), Collections.emptyList(),
+                    lambdaExpression.param().size());
+            lambdas.put(identifier, lambda);
+            localLambdas.put(identifier, lambda);
+            localNames.remove(identifier);
+        });
+        lambdas.forEach((identifier, lambda) -> lambda.mayReturnTailCall = tailCallAnalysis.mayReturnTailCall(
+                lambdaExpressions.get(identifier), identifier, this::isVariable));
+
+        boolean changed;
+        do {
+            changed = false;
+            for (Map.Entry<String, Lambda> entry : lambdas.entrySet()) {
+                List<String> freeNames = getFreeNames(lambdaExpressions.get(entry.getKey()));
+                if (!freeNames.equals(entry.getValue().freeNames)) {
+                    entry.getValue().freeNames = freeNames;
+                    changed = true;
+                }
+            }
+        } while (changed);
+
+        lambdas.forEach((identifier, lambda) -> createLambdaMethod(lambda, lambdaExpressions.get(identifier)));
+
+        return lambdas;
+    }
+
+    private List<String> getFreeNames(SchemeParser.Lambda_expressionContext lambdaExpression) {
+        Set<String> freeNames = new LinkedHashSet<>();
+        for (String variable : LambdaAnalysis.getFreeVariables(lambdaExpression)) {
+            if (localLambdas.containsKey(variable)) {
+                freeNames.addAll(localLambdas.get(variable).freeNames);
+            } else if (localNames.containsKey(variable)) {
+                freeNames.add(localNames.get(variable));
+            }
+        }
+
+        return new ArrayList<>(freeNames);
+    }
+
+    private void createLambdaMethod(Lambda lambda, SchemeParser.Lambda_expressionContext lambdaExpression) {
+        Map<String, String> enclosingNames = localNames;
+        Map<String, Lambda> enclosingLambdas = localLambdas;
+        List<String> enclosingLocals = enclosingLocalNames;
+        List<String> enclosingTailCallGroup = tailCallGroup;
+        Lambda outerLambda = enclosingLambda;
+        List<String> outerLambdaParams = enclosingLambdaParams;
+        boolean isOuterLambdaLooping = isLambdaLooping;
+
+        localNames = new HashMap<>(enclosingNames);
+        localLambdas = new HashMap<>(enclosingLambdas);
+        enclosingLocalNames = new ArrayList<>(lambda.freeNames);
+        tailCallGroup = Collections.emptyList();
+        enclosingLambda = lambda;
+        enclosingLambdaParams = new ArrayList<>();
+        isLambdaLooping = false;
+        for (String paramName : LambdaAnalysis.getParamNames(lambdaExpression)) {
+            String localName = createLocalName(paramName);
+            bindLocal(paramName, localName);
+            enclosingLambdaParams.add(localName);
+        }
+        String params = createParams(enclosingLocalNames);
+
+        GeneratedCode.GeneratedCodeBuilder codeBuilder = new GeneratedCode.GeneratedCodeBuilder();
+        List<String> enclosingHoistedLocals = hoistedLocalNames;
+        hoistedLocalNames = new ArrayList<>();
+        String statement = createBodyStatement(lambdaExpression.expression(), codeBuilder);
+        statement = createHoistedLocalDeclarations(hoistedLocalNames) + statement;
+        hoistedLocalNames = enclosingHoistedLocals;
+        if (isLambdaLooping) {
+            statement = "while(true){" + statement + "}";
+        }
+        codeBuilder.addMethodToBeDeclared(lambda.methodName, String.format("public static Object %s(%s){%s}",
+                lambda.methodName, params, statement));
+        lambdaCode.mergeWith(codeBuilder.setGeneratedCode(null));
+
+        localNames = enclosingNames;
+        localLambdas = enclosingLambdas;
+        enclosingLocalNames = enclosingLocals;
+        tailCallGroup = enclosingTailCallGroup;
+        enclosingLambda = outerLambda;
+        enclosingLambdaParams = outerLambdaParams;
+        isLambdaLooping = isOuterLambdaLooping;
+    }
+
+    private String createClosureLocal(String identifier, Lambda lambda, List<SchemeParser.ExpressionContext> scope) {
+        return createClosureLocal(identifier, lambda, scope, false);
+    }
+
+    private String createClosureLocal(String identifier, Lambda lambda, List<SchemeParser.ExpressionContext> scope,
+                                      boolean isHoisted) {
+        localLambdas.put(identifier, lambda);
+        localNames.remove(identifier);
+        if (!LambdaAnalysis.isReferencedAsValue(identifier, scope)) {
+            return "";
+        }
+
+        String localName = createLetLocalName(identifier, isHoisted);
+        localNames.put(identifier, localName);
+
+        return String.format(isHoisted ? "%s=%s" : "Object %s=%s;", localName, createClosure(lambda));
+    }
+
+    private String createClosure(Lambda lambda) {
+        String freeVariables = lambda.freeNames.isEmpty() ? "new Object[0]" :
+                String.format("new Object[]{%s}", String.join(",", lambda.freeNames));
+        return String.format("Closure.create(%s,%s)", hoistMethodHandle(lambda), freeVariables);
+    }
+
+    private String hoistMethodHandle(Lambda lambda) {
+        String handleField = String.format(METHOD_HANDLE_FIELD_NAME, lambda.methodName);
+        if (methodHandleFields.add(handleField)) {
+            literalFieldDefinitions.add(String.format("static final java.lang.invoke.MethodHandle %s = " +
+                            "Closure.findMethod(java.lang.invoke.MethodHandles.lookup(), \"%s\", %d);", handleField,
+                    lambda.methodName, lambda.freeNames.size() + lambda.arity));
+        }
+
+        return handleField;
+    }
+
+    private GeneratedCode.GeneratedCodeBuilder createDirectCall(Lambda lambda,
+                                                                List<SchemeParser.ExpressionContext> arguments) {
+        Util.checkExactArity(arguments.size(), lambda.arity);
+
+        GeneratedCode.GeneratedCodeBuilder codeBuilder = new GeneratedCode.GeneratedCodeBuilder();
+        List<String> callArguments = new ArrayList<>(lambda.freeNames);
+        arguments.forEach(argument -> callArguments.add(createObjectCode(argument, codeBuilder)));
+
+        String call = String.format("%s(%s)", lambda.methodName, String.join(",", callArguments));
+        return codeBuilder.setGeneratedCode(lambda.mayReturnTailCall ? String.format("TailCall.force(%s)", call) :
+                call);
+    }
+
+    private String createLambdaTailCallObject(Lambda lambda, List<SchemeParser.ExpressionContext> arguments,
+                                              GeneratedCode.GeneratedCodeBuilder codeBuilder) {
+        Util.checkExactArity(arguments.size(), lambda.arity);
+
+        List<String> callArguments = new ArrayList<>(lambda.freeNames);
+        arguments.forEach(argument -> callArguments.add(createObjectCode(argument, codeBuilder)));
+
+        return String.format("TailCall.create(%s,new Object[]{%s})", hoistMethodHandle(lambda),
+                String.join(",", callArguments));
+    }
+
+    private GeneratedCode.GeneratedCodeBuilder createClosureCall(String closure,
+                                                                 List<SchemeParser.ExpressionContext> arguments) {
+        return createClosureCall(closure, arguments, "apply");
+    }
+
+    private GeneratedCode.GeneratedCodeBuilder createClosureCall(String closure,
+                                                                 List<SchemeParser.ExpressionContext> arguments,
+                                                                 String applyMethodName) {
+        GeneratedCode.GeneratedCodeBuilder codeBuilder = new GeneratedCode.GeneratedCodeBuilder();
+        List<String> callArguments = arguments.stream()
+                .map(argument -> createObjectCode(argument, codeBuilder))
+                .collect(Collectors.toList());
+
+        if (arguments.size() > MAXIMUM_FIXED_ARITY) {
+            return codeBuilder.setGeneratedCode(String.format("Closure.%s(%s,new Object[]{%s})", applyMethodName,
+                    closure, String.join(",", callArguments)));
+        }
+
+        callArguments.add(0, closure);
+        return codeBuilder.setGeneratedCode(String.format("Closure.%s(%s)", applyMethodName,
+                String.join(",", callArguments)));
+    }
+
+    private String createVariableReference(String identifier) {
+        if (localLambdas.containsKey(identifier)) {
+            String localName = localNames.get(identifier);
+            return localName != null && enclosingLocalNames.contains(localName) ? localName :
+                    createClosure(localLambdas.get(identifier));
+        }
+        if (localNames.containsKey(identifier)) {
+            return localNames.get(identifier);
+        }
+        if (globalLambdas.containsKey(identifier)) {
+            return createClosure(globalLambdas.get(identifier));
+        }
+        if (procedureDefinitions.containsKey(identifier) && !identifierToVariableDefinition.containsKey(identifier)) {
+            return createClosure(new Lambda(identifier, Collections.emptyList(),
+                    procedureDefinitions.get(identifier).param().size()));
+        }
+        if (isPredefined(identifier) && !identifierToVariableDefinition.containsKey(identifier)) {
+            throw new ParseCancellationException(String.format(PREDEFINED_PROCEDURE_VALUE_EXCEPTION_MESSAGE,
+                    identifier));
+        }
+
+        return identifier;
+    }
+
+    private boolean isVariable(String identifier) {
+        return isLocalVariable(identifier) || globalLambdas.containsKey(identifier);
+    }
+
+    private boolean isPredefined(String identifier) {
+        return procedureMap.containsKey(identifier) && !userDefinedProcedures.contains(identifier)
+                && !isVariable(identifier);
+    }
+
+    private Lambda getLambda(String identifier) {
+        return isLocalVariable(identifier) ? localLambdas.get(identifier) : globalLambdas.get(identifier);
+    }
+
+    private boolean isLocalVariable(String identifier) {
+        return localNames.containsKey(identifier) || localLambdas.containsKey(identifier);
+    }
+
+    private void bindLocal(String identifier, String localName) {
+        localNames.put(identifier, localName);
+        localLambdas.remove(identifier);
+    }
+
+    private String createLambdaTailCall(SchemeParser.ApplicationContext tailCall,
+                                        GeneratedCode.GeneratedCodeBuilder codeBuilder) {
+        Util.checkExactArity(tailCall.expression().size(), enclosingLambda.arity);
+
+        List<String> tailCallExpressions = tailCall.expression()
+                .stream()
+                .map(expression -> createObjectCode(expression, codeBuilder))
+                .collect(Collectors.toList());
+        isLambdaLooping = true;
+
+        return createSimultaneousAssignments(enclosingLambdaParams, tailCallExpressions);
+    }
+
+    private CodeGenProcedure createUserProcedure(String procedureName) {
+        return createProcedure(procedureName, tailCallAnalysis.mayReturnTailCall(procedureName) ?
+                "TailCall.force(%s(%s))" : "%s(%s)");
     }
 
     public CodeGenProcedure createProcedure(String procedureName, String template) {
         return expressions -> {
             GeneratedCode.GeneratedCodeBuilder generatedCodeBuilder = new GeneratedCode.GeneratedCodeBuilder();
             String arguments = expressions.stream()
-                    .map(expressionToCode())
-                    .map(GeneratedCode.GeneratedCodeBuilder::getGeneratedCode)
+                    .map(expression -> createObjectCode(expression, generatedCodeBuilder))
                     .collect(Collectors.joining(","));
             generatedCodeBuilder.setGeneratedCode(String.format(template, procedureName, arguments));
 
@@ -254,7 +1124,7 @@ public class CodeGenVisitor extends SchemeBaseVisitor<GeneratedCode.GeneratedCod
         String text = visitConstant(constant).getGeneratedCode();
 
         if (isNumber(constant)) {
-            return VariableDefinition.createForBigInteger(identifier, text);
+            return VariableDefinition.createForInteger(identifier, text);
         }
         if (isCharacter(constant)) {
             return VariableDefinition.createForChar(identifier, text);
@@ -277,145 +1147,92 @@ public class CodeGenVisitor extends SchemeBaseVisitor<GeneratedCode.GeneratedCod
         return aggregate.mergeWith(nextResult);
     }
 
-    public Optional<String> optimizeTailRecursion(SchemeParser.ApplicationContext application, String procedureName,
-                                                  List<SchemeParser.ParamContext> param) {
-        List<SchemeParser.ExpressionContext> expressions = application.expression();
-
-        SchemeParser.ExpressionContext conditionalExpression = expressions.get(0);
-
-        Optional<ProcedureStructure> procedureStructure = constructProcedureStructure(procedureName, expressions);
-        if (!procedureStructure.isPresent()) {
-            return Optional.empty();
-        }
-
-        String returnStatement = "return "
-                + expressionToCode().apply(procedureStructure.get().returnExpression).getGeneratedCode() + ";";
-
-        List<String> paramNames = getParamNames(param);
-        List<String> tailCallExpressions = getTailCallExpressions(procedureStructure.get().tailCall, paramNames);
-
-        String arrayInitialization = "Object[] vars={" + String.join(",", paramNames) + "};";
-
-        if (paramNames.size() != tailCallExpressions.size()) {
-            return Optional.empty();
-        }
-
-        String whileLoop = createWhileLoop(conditionalExpression, procedureStructure.get().negateCondition,
-                paramNames, tailCallExpressions);
-
-        return Optional.of(arrayInitialization + whileLoop + returnStatement);
+    private List<String> getParamNames(List<SchemeParser.ParamContext> param) {
+        return param
+                .stream()
+                .map(p -> getIdentifierText(p.IDENTIFIER()))
+                .collect(Collectors.toList());
     }
 
-    private Optional<ProcedureStructure> constructProcedureStructure(String procedureName, List<SchemeParser.ExpressionContext> expressions) {
-        SchemeParser.ExpressionContext expression1 = expressions.get(1);
-        SchemeParser.ExpressionContext expression2 = expressions.get(2);
-
-        boolean isFirstExpressionTailCall = Objects.nonNull(expression1.application())
-                && Objects.equals(procedureName, getIdentifierText(expression1.application().IDENTIFIER()));
-        boolean isSecondExpressionTailCall = Objects.nonNull(expression2.application())
-                && Objects.equals(procedureName, getIdentifierText(expression2.application().IDENTIFIER()));
-
-        if (isFirstExpressionTailCall) {
-            return Optional.of(new ProcedureStructure(false, expression1.application(), expression2));
-        } else if (isSecondExpressionTailCall) {
-            return Optional.of(new ProcedureStructure(true, expression2.application(), expression1));
-        }
-
-        return Optional.empty();
+    private String getIdentifierText(TerminalNode identifier) {
+        return identifier.getText();
     }
 
-    private String createWhileLoop(SchemeParser.ExpressionContext conditionalExpression, boolean negateCondition,
-                                   List<String> paramNames, List<String> tailCallExpressions) {
-        String assignments = createAssignments("%s=%s;", paramNames, tailCallExpressions);
-        for (String paramName : paramNames) {
-            assignments += String.format("vars[%d]=%s;", paramNames.indexOf(paramName), paramName);
-        }
-        String condition = expressionToCode().apply(conditionalExpression).getGeneratedCode();
-
-        String whileTemplate = negateCondition ? "while(!%s){%s}" : "while(%s){%s}";
-        return String.format(whileTemplate,
-                condition,
-                assignments);
+    private String getVariableName(TerminalNode identifier) {
+        return localNames.getOrDefault(identifier.getText(), identifier.getText());
     }
 
-    private List<String> getParamNames(List<SchemeParser.ParamContext> param) {
-        return param
-                .stream()
-                .map(p -> getIdentifierText(p.IDENTIFIER()))
-                .collect(Collectors.toList());
+    private static String createParams(List<String> paramNames) {
+        return paramNames.stream()
+                .map(paramName -> "Object " + paramName)
+                .collect(Collectors.joining(","));
     }
 
-    private List<String> getTailCallExpressions(SchemeParser.ApplicationContext tailCall, List<String> paramNames) {
-        for (String paramName : paramNames) {
-            substitutions.put(paramName, String.format("vars[%d]", paramNames.indexOf(paramName)));
+    private String createSimultaneousAssignments(List<String> paramNames, List<String> tailCallExpressions) {
+        StringBuilder temporaries = new StringBuilder();
+        StringBuilder assignments = new StringBuilder();
+        for (int i = 0; i < paramNames.size(); i++) {
+            if (!paramNames.get(i).equals(tailCallExpressions.get(i))) {
+                temporaries.append(String.format("Object tailArgument%d=%s;", i, tailCallExpressions.get(i)));
+                assignments.append(String.format("%s=tailArgument%d;", paramNames.get(i), i));
+            }
         }
-        List<String> tailCallExpressions = tailCall.expression()
-                .stream()
-                .map(expressionToCode())
-                .map(GeneratedCode.GeneratedCodeBuilder::getGeneratedCode)
-                .collect(Collectors.toList());
-        substitutions.clear();
-        return tailCallExpressions;
+        return temporaries.append(assignments).toString();
     }
 
-    private String getIdentifierText(TerminalNode identifier) {
-        String identifierText = identifier.getText();
-        return substitutions.containsKey(identifierText) ? substitutions.get(identifierText) : identifierText;
-    }
+    private static class Lambda {
+
+        private final String methodName;
+        private List<String> freeNames;
+        private final int arity;
+        private boolean mayReturnTailCall;
 
-    private String createAssignments(String template, List<String> paramDeclarations,
-                                     List<String> tailCallExpressions) {
-        String initialAssignments = "";
-        for (int i = 0; i < paramDeclarations.size(); i++) {
-            initialAssignments += String.format(template, paramDeclarations.get(i), tailCallExpressions.get(i));
+        private Lambda(String methodName, List<String> freeNames, int arity) {
+            this.methodName = methodName;
+            this.freeNames = freeNames;
+            this.arity = arity;
         }
-        return initialAssignments;
+
     }
 
-    private static boolean isApplication(SchemeParser.ExpressionContext expression) {
+    static boolean isApplication(SchemeParser.ExpressionContext expression) {
         return Objects.nonNull(expression.application());
     }
 
-    private static boolean isIdentifier(SchemeParser.ExpressionContext expression) {
+    static boolean isIdentifier(SchemeParser.ExpressionContext expression) {
         return Objects.nonNull(expression.IDENTIFIER());
     }
 
-    private static boolean isConstant(SchemeParser.ExpressionContext expression) {
+    static boolean isLet(SchemeParser.ExpressionContext expression) {
+        return Objects.nonNull(expression.let_expression());
+    }
+
+    static boolean isLambda(SchemeParser.ExpressionContext expression) {
+        return Objects.nonNull(expression.lambda_expression());
+    }
+
+    static boolean isConstant(SchemeParser.ExpressionContext expression) {
         return Objects.nonNull(expression.constant());
     }
 
-    private static boolean isCharacter(SchemeParser.ConstantContext constant) {
+    static boolean isCharacter(SchemeParser.ConstantContext constant) {
         return Objects.nonNull(constant.CHARACTER());
     }
 
-    private static boolean isBoolean(SchemeParser.ConstantContext constant) {
+    static boolean isBoolean(SchemeParser.ConstantContext constant) {
         return Objects.nonNull(constant.BOOLEAN());
     }
 
-    private static boolean isString(SchemeParser.ConstantContext constant) {
+    static boolean isString(SchemeParser.ConstantContext constant) {
         return Objects.nonNull(constant.STRING());
     }
 
-    private static boolean isNumber(SchemeParser.ConstantContext constant) {
+    static boolean isNumber(SchemeParser.ConstantContext constant) {
         return Objects.nonNull(constant.NUMBER());
     }
 
-    private static boolean isVariableDefinition(SchemeParser.DefinitionContext definition) {
+    static boolean isVariableDefinition(SchemeParser.DefinitionContext definition) {
         return Objects.nonNull(definition.variable_definition());
     }
 
-    private static class ProcedureStructure {
-        private final boolean negateCondition;
-        private final SchemeParser.ApplicationContext tailCall;
-        private final SchemeParser.ExpressionContext returnExpression;
-
-        private ProcedureStructure(boolean negateCondition, SchemeParser.ApplicationContext tailCall,
-                                   SchemeParser.ExpressionContext returnExpression) {
-            this.negateCondition = negateCondition;
-            this.tailCall = tailCall;
-            this.returnExpression = returnExpression;
-        }
-
-    }
-
 }
@@ -0,0 +1,99 @@
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class CompilationCache {
+
+    private static final String ENTRY_SUFFIX = ".jar";
+
+    private final Path directory;
+    private final long maximumSize;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public CompilationCache(Path directory, long maximumSize) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.maximumSize = maximumSize;
+    }
+
+    public boolean retrieve(String key, Path jarFile) throws IOException {
+        Path entry = directory.resolve(key + ENTRY_SUFFIX);
+
+        try {
+            Files.copy(entry, jarFile, StandardCopyOption.REPLACE_EXISTING);
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (NoSuchFileException e) {
+            misses.incrementAndGet();
+            return false;
+        }
+
+        hits.incrementAndGet();
+        return true;
+    }
+
+    public void store(String key, Path jarFile) throws IOException {
+        Path temporaryEntry = Files.createTempFile(directory, key, ".tmp");
+        try {
+            Files.copy(jarFile, temporaryEntry, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(temporaryEntry, directory.resolve(key + ENTRY_SUFFIX), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporaryEntry);
+        }
+
+        evict();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private synchronized void evict() throws IOException {
+        List<CacheEntry> entries = new ArrayList<>();
+        long size = 0;
+
+        try (DirectoryStream<Path> paths = Files.newDirectoryStream(directory, "*" + ENTRY_SUFFIX)) {
+            for (Path path : paths) {
+                try {
+                    CacheEntry entry = new CacheEntry(path, Files.size(path), Files.getLastModifiedTime(path));
+                    entries.add(entry);
+                    size += entry.size;
+                } catch (NoSuchFileException e) {
+                    // evicted concurrently
+                }
+            }
+        }
+
+        entries.sort(Comparator.comparing((CacheEntry entry) -> entry.lastAccess)
+                .thenComparing(entry -> entry.path));
+        for (CacheEntry entry : entries) {
+            if (size <= maximumSize) {
+                break;
+            }
+            Files.deleteIfExists(entry.path);
+            size -= entry.size;
+        }
+    }
+
+    private static class CacheEntry {
+        private final Path path;
+        private final long size;
+        private final FileTime lastAccess;
+
+        private CacheEntry(Path path, long size, FileTime lastAccess) {
+            this.path = path;
+            this.size = size;
+            this.lastAccess = lastAccess;
+        }
+
+    }
+
+}
@@ -0,0 +1,122 @@
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+public class CompilationStatistics {
+
+    public enum Phase {
+        LEXING, PARSING, CODE_GENERATION, CLASS_GENERATION, JAR_WRITING
+    }
+
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+    private final Map<Phase, Long> elapsedNanos = new EnumMap<>(Phase.class);
+    private final Map<Phase, Long> allocatedBytes = new EnumMap<>(Phase.class);
+    private long phaseStartNanos;
+    private long phaseStartAllocatedBytes;
+    private boolean cacheHit;
+    private int methodCount;
+    private int fieldCount;
+    private int bytecodeSize;
+    private int classFileSize;
+
+    void startPhase() {
+        phaseStartAllocatedBytes = currentThreadAllocatedBytes();
+        phaseStartNanos = System.nanoTime();
+    }
+
+    void endPhase(Phase phase) {
+        long nanos = System.nanoTime() - phaseStartNanos;
+        long bytes = currentThreadAllocatedBytes() - phaseStartAllocatedBytes;
+        elapsedNanos.merge(phase, nanos, Long::sum);
+        allocatedBytes.merge(phase, bytes, Long::sum);
+    }
+
+    void setCacheHit(boolean cacheHit) {
+        this.cacheHit = cacheHit;
+    }
+
+    void addClassStatistics(int methodCount, int fieldCount, int bytecodeSize) {
+        this.methodCount += methodCount;
+        this.fieldCount += fieldCount;
+        this.bytecodeSize += bytecodeSize;
+    }
+
+    void addClassFileSize(int size) {
+        classFileSize += size;
+    }
+
+    public long getElapsedNanos(Phase phase) {
+        return elapsedNanos.getOrDefault(phase, 0L);
+    }
+
+    public long getAllocatedBytes(Phase phase) {
+        return allocatedBytes.getOrDefault(phase, 0L);
+    }
+
+    public long getTotalElapsedNanos() {
+        return elapsedNanos.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    public long getTotalAllocatedBytes() {
+        return allocatedBytes.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    public boolean isCacheHit() {
+        return cacheHit;
+    }
+
+    public int getMethodCount() {
+        return methodCount;
+    }
+
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    public int getBytecodeSize() {
+        return bytecodeSize;
+    }
+
+    public int getClassFileSize() {
+        return classFileSize;
+    }
+
+    public void print(PrintStream out) {
+        if (cacheHit) {
+            out.println("Compilation cache hit, no phases were run");
+            return;
+        }
+
+        out.printf("%-18s %12s %16s%n", "Phase", "Time (ms)", "Allocated (KB)");
+        for (Phase phase : Phase.values()) {
+            printPhase(out, phase.name().toLowerCase().replace('_', ' '), getElapsedNanos(phase),
+                    getAllocatedBytes(phase));
+        }
+        printPhase(out, "total", getTotalElapsedNanos(), getTotalAllocatedBytes());
+        out.printf("Methods: %d, fields: %d, bytecode: %d bytes, class files: %d bytes%n", methodCount, fieldCount,
+                bytecodeSize, classFileSize);
+    }
+
+    private static void printPhase(PrintStream out, String name, long nanos, long bytes) {
+        out.printf("%-18s %12.3f %16s%n", name, nanos / (double) TimeUnit.MILLISECONDS.toNanos(1),
+                isAllocationTrackingSupported() ? Long.toString(bytes / 1024) : "n/a");
+    }
+
+    private static boolean isAllocationTrackingSupported() {
+        return THREAD_MX_BEAN instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) THREAD_MX_BEAN).isThreadAllocatedMemoryEnabled();
+    }
+
+    private static long currentThreadAllocatedBytes() {
+        if (!isAllocationTrackingSupported()) {
+            return 0;
+        }
+        return ((com.sun.management.ThreadMXBean) THREAD_MX_BEAN).getThreadAllocatedBytes(
+                Thread.currentThread().getId());
+    }
+
+}
@@ -1,96 +1,430 @@
 import javassist.*;
+import javassist.bytecode.BadBytecode;
+import javassist.bytecode.ClassFile;
+import javassist.bytecode.CodeAttribute;
+import javassist.bytecode.MethodInfo;
 import org.antlr.v4.runtime.ANTLRInputStream;
 import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
 import org.antlr.v4.runtime.tree.ParseTree;
 import parser.ErrorListener;
+import runtime.OutputPort;
 
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.jar.Attributes;
 import java.util.jar.JarOutputStream;
 import java.util.jar.Manifest;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.zip.ZipEntry;
 
 public class Compiler {
 
-    CodeGenVisitor codeGenVisitor;
-    private CtClass mainClassCt;
-    private ClassPool pool;
+    public enum Backend {
+        SOURCE, BYTECODE
+    }
+
+    public static final String VERSION = "0.0.1";
+
+    static final String MAIN_CLASS_NAME = "Main";
+    static final String CHUNK_CLASS_NAME = MAIN_CLASS_NAME + "$Chunk%d";
+    static final String MAIN_CHUNK_METHOD_NAME = "mainChunk%d";
+    static final String TAIL_CALL_DISPATCH_METHOD_NAME = "dispatchTailCalls%d";
+    static final int MAXIMUM_CONSTANT_POOL_SIZE = 32768;
+
+    private static final String[] RUNTIME_CLASS_NAMES = {"runtime.OutputFormatter", "runtime.PredefinedProcedures",
+            "runtime.ProcedureLinker", "runtime.ProcedureLinker$CallSites", "runtime.Closure", "runtime.TailCall",
+            "runtime.OutputPort", "lang.Pair", "lang.EmptyList", "lang.VectorWrapper", "lang.Bytevector"};
+
+    private final ClassPool pool;
     private File jarFile;
+    private Backend backend;
+    private CompilationCache compilationCache;
+    private byte[] compilerClassesDigest;
 
     public Compiler(File jarFile) {
+        this(jarFile, Backend.SOURCE);
+    }
+
+    public Compiler(File jarFile, Backend backend) {
         this.jarFile = jarFile;
-        pool = ClassPool.getDefault();
+        this.backend = backend;
+        pool = new ClassPool(true);
         pool.importPackage("runtime");
         pool.importPackage("lang");
         pool.importPackage("java.math.BigInteger");
-        mainClassCt = pool.makeClass("Main");
     }
 
-    public void compile(String input) {
-        GeneratedCode generatedCode = visitParseTreeForInput(input);
+    public CompilationStatistics compile(String input) {
+        return compile(input, jarFile);
+    }
 
+    public synchronized CompilationStatistics compile(String input, File jarFile) {
+        CompilationStatistics statistics = new CompilationStatistics();
         try {
-            createMainClassCt(generatedCode);
+            String cacheKey = null;
+            if (compilationCache != null) {
+                cacheKey = createCacheKey(input);
+                if (compilationCache.retrieve(cacheKey, jarFile.toPath())) {
+                    statistics.setCacheHit(true);
+                    return statistics;
+                }
+            }
+
+            Map<String, byte[]> classFiles = createClassFiles(input, statistics);
+            statistics.startPhase();
+            createJarFile(classFiles, jarFile);
+            statistics.endPhase(CompilationStatistics.Phase.JAR_WRITING);
+
+            if (compilationCache != null) {
+                compilationCache.store(cacheKey, jarFile.toPath());
+            }
+            return statistics;
+        } catch (CannotCompileException | NotFoundException e) {
+            throw new ParseCancellationException(e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 
-            createJarFile();
+    public void run(String input, PrintStream out) {
+        Map<String, byte[]> classFiles;
+        try {
+            synchronized (this) {
+                classFiles = createClassFiles(input, new CompilationStatistics());
+            }
         } catch (CannotCompileException | IOException | NotFoundException e) {
-            e.printStackTrace();
+            throw new ParseCancellationException(e);
+        }
+
+        Method mainMethod;
+        Method flushMethod;
+        Object outputPort;
+        try {
+            ClassLoader classLoader = new InMemoryClassLoader(classFiles, getClass().getClassLoader());
+            mainMethod = classLoader.loadClass(MAIN_CLASS_NAME).getMethod("main", String[].class);
+
+            Class<?> outputPortClass = classLoader.loadClass(OutputPort.class.getName());
+            outputPort = outputPortClass.getMethod("open", OutputStream.class, String.class)
+                    .invoke(null, out, OutputPort.FLUSH_ON_EXIT);
+            outputPortClass.getMethod("setCurrent", outputPortClass).invoke(null, outputPort);
+            flushMethod = outputPortClass.getMethod("flush");
+        } catch (ClassNotFoundException | NoSuchMethodException | IllegalAccessException |
+                InvocationTargetException e) {
+            throw new IllegalStateException("Could not load the generated main class", e);
+        }
+
+        try {
+            mainMethod.invoke(null, (Object) new String[0]);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Could not run the generated main class", e);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } finally {
+            try {
+                flushMethod.invoke(outputPort);
+            } catch (IllegalAccessException | InvocationTargetException e) {
+                throw new IllegalStateException("Could not flush the output of the generated main class", e);
+            }
+            out.flush();
+        }
+    }
+
+    public void setCompilationCache(CompilationCache compilationCache) {
+        this.compilationCache = compilationCache;
+    }
+
+    private String createCacheKey(String input) throws IOException {
+        MessageDigest digest = createDigest();
+        if (compilerClassesDigest == null) {
+            for (String runtimeClassName : RUNTIME_CLASS_NAMES) {
+                String resourceName = runtimeClassName.replace('.', '/') + ".class";
+                try (InputStream classFile = getClass().getClassLoader().getResourceAsStream(resourceName)) {
+                    if (classFile == null) {
+                        throw new FileNotFoundException(String.format("Could not find runtime class '%s'",
+                                runtimeClassName));
+                    }
+
+                    byte[] buffer = new byte[8192];
+                    int length;
+                    while ((length = classFile.read(buffer)) != -1) {
+                        digest.update(buffer, 0, length);
+                    }
+                }
+            }
+            digest.update(digestCodeSource(getCompilerLocation()));
+            compilerClassesDigest = digest.digest();
+        }
+
+        digest.update(VERSION.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(backend.name().getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(compilerClassesDigest);
+        digest.update(input.getBytes(StandardCharsets.UTF_8));
+
+        StringBuilder key = new StringBuilder();
+        for (byte digestByte : digest.digest()) {
+            key.append(String.format("%02x", digestByte));
+        }
+        return key.toString();
+    }
+
+    private static Path getCompilerLocation() throws IOException {
+        CodeSource codeSource = Compiler.class.getProtectionDomain().getCodeSource();
+        if (codeSource == null) {
+            throw new FileNotFoundException("Could not locate the compiler classes");
+        }
+
+        try {
+            return Paths.get(codeSource.getLocation().toURI());
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            throw new IOException("Could not locate the compiler classes", e);
+        }
+    }
+
+    static byte[] digestCodeSource(Path location) throws IOException {
+        MessageDigest digest = createDigest();
+        if (!Files.isDirectory(location)) {
+            digest.update(Files.readAllBytes(location));
+            return digest.digest();
+        }
+
+        List<Path> classFiles;
+        try (Stream<Path> files = Files.walk(location)) {
+            classFiles = files.filter(file -> file.getFileName().toString().endsWith(".class"))
+                    .sorted()
+                    .collect(Collectors.toList());
         }
+        for (Path classFile : classFiles) {
+            digest.update(location.relativize(classFile).toString().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(Files.readAllBytes(classFile));
+        }
+        return digest.digest();
+    }
+
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Map<String, byte[]> createClassFiles(String input, CompilationStatistics statistics)
+            throws CannotCompileException, IOException, NotFoundException {
+        ParseTree parseTree = parse(input, statistics);
+        Set<String> procedureNames = TailCallAnalysis.collectProcedureDefinitions(
+                (SchemeParser.ProgramContext) parseTree).keySet();
+
+        Map<String, byte[]> classFiles = new LinkedHashMap<>();
+        CtClass mainClassCt = pool.makeClass(MAIN_CLASS_NAME);
+        List<CtClass> chunkClassesCt = new ArrayList<>();
+        try {
+            mainClassCt.addConstructor(CtNewConstructor.defaultConstructor(mainClassCt));
+
+            if (backend == Backend.BYTECODE) {
+                statistics.startPhase();
+                BytecodeGenVisitor bytecodeGenVisitor = new BytecodeGenVisitor(pool, mainClassCt.getClassFile());
+                bytecodeGenVisitor.visit(parseTree);
+                chunkClassesCt.addAll(bytecodeGenVisitor.getChunkClasses());
+                eliminateDeadCode(mainClassCt, chunkClassesCt);
+                statistics.endPhase(CompilationStatistics.Phase.CODE_GENERATION);
+                statistics.startPhase();
+            } else {
+                statistics.startPhase();
+                GeneratedCode generatedCode = DeadCodeEliminator.eliminate(visitParseTree(parseTree));
+                statistics.endPhase(CompilationStatistics.Phase.CODE_GENERATION);
+                statistics.startPhase();
+                createMainClassCt(mainClassCt, generatedCode, chunkClassesCt);
+            }
+            linkProcedureCalls(mainClassCt, chunkClassesCt, procedureNames);
+
+            recordClassStatistics(mainClassCt.getClassFile(), statistics);
+            for (CtClass chunkClassCt : chunkClassesCt) {
+                recordClassStatistics(chunkClassCt.getClassFile(), statistics);
+            }
+            classFiles.put(MAIN_CLASS_NAME, mainClassCt.toBytecode());
+            for (CtClass chunkClassCt : chunkClassesCt) {
+                classFiles.put(chunkClassCt.getName(), chunkClassCt.toBytecode());
+            }
+            for (String runtimeClassName : RUNTIME_CLASS_NAMES) {
+                classFiles.put(runtimeClassName, pool.get(runtimeClassName).toBytecode());
+            }
+            statistics.endPhase(CompilationStatistics.Phase.CLASS_GENERATION);
+        } finally {
+            mainClassCt.detach();
+            chunkClassesCt.forEach(CtClass::detach);
+        }
+
+        for (byte[] classFile : classFiles.values()) {
+            statistics.addClassFileSize(classFile.length);
+        }
+
+        return classFiles;
+    }
+
+    private void eliminateDeadCode(CtClass mainClassCt, List<CtClass> chunkClassesCt) throws CannotCompileException {
+        try {
+            DeadCodeEliminator.eliminate(mainClassCt.getClassFile(), getClassFiles(chunkClassesCt));
+        } catch (BadBytecode e) {
+            throw new CannotCompileException(e);
+        }
+    }
 
-        mainClassCt.defrost();
+    private void linkProcedureCalls(CtClass mainClassCt, List<CtClass> chunkClassesCt, Set<String> procedureNames)
+            throws CannotCompileException {
+        try {
+            ProcedureCallLinker.link(mainClassCt.getClassFile(), getClassFiles(chunkClassesCt), procedureNames);
+        } catch (BadBytecode e) {
+            throw new CannotCompileException(e);
+        }
     }
 
-    private void createMainClassCt(GeneratedCode generatedCode) throws CannotCompileException {
-        mainClassCt.addConstructor(CtNewConstructor.defaultConstructor(mainClassCt));
+    private static List<ClassFile> getClassFiles(List<CtClass> classesCt) {
+        List<ClassFile> classFiles = new ArrayList<>();
+        classesCt.forEach(classCt -> classFiles.add(classCt.getClassFile()));
+        return classFiles;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void recordClassStatistics(ClassFile classFile, CompilationStatistics statistics) {
+        List<MethodInfo> methods = classFile.getMethods();
+        int bytecodeSize = 0;
+        for (MethodInfo method : methods) {
+            CodeAttribute codeAttribute = method.getCodeAttribute();
+            if (codeAttribute != null) {
+                bytecodeSize += codeAttribute.getCodeLength();
+            }
+        }
+        statistics.addClassStatistics(methods.size(), classFile.getFields().size(), bytecodeSize);
+    }
 
+    private void createMainClassCt(CtClass mainClassCt, GeneratedCode generatedCode, List<CtClass> chunkClassesCt)
+            throws CannotCompileException, NotFoundException {
         for (String variableDefinition : generatedCode.getVariableDefinitions()) {
             String escapedDefinition = variableDefinition.replace("\n", "\\n");
             mainClassCt.addField(CtField.make(escapedDefinition, mainClassCt));
         }
 
+        List<CtMethod> declarations = new ArrayList<>();
         for (String method : generatedCode.getMethodsToBeDeclared()) {
-            String escapedMethod = method.replace("\n", "\\n");
+            String signature = method.substring(0, method.indexOf('{'));
+            CtMethod declaration = CtMethod.make(signature + "{throw new IllegalStateException();}", mainClassCt);
+            mainClassCt.addMethod(declaration);
+            declarations.add(declaration);
+        }
+
+        List<String> methods = generatedCode.getMethodsToBeDeclared();
+        for (int i = 0; i < methods.size(); i++) {
+            String escapedMethod = methods.get(i).replace("\n", "\\n");
+            mainClassCt.removeMethod(declarations.get(i));
             mainClassCt.addMethod(CtMethod.make(escapedMethod, mainClassCt));
         }
+
+        List<String> mainChunks = generatedCode.getMainChunks();
+        if (mainChunks.isEmpty()) {
+            return;
+        }
+
+        StringBuilder mainMethod = new StringBuilder("public static void main(String[] args){");
+        CtClass chunkClassCt = mainClassCt;
+        for (int i = 0; i < mainChunks.size(); i++) {
+            if (chunkClassCt.getClassFile().getConstPool().getSize() > MAXIMUM_CONSTANT_POOL_SIZE) {
+                String chunkClassName = String.format(CHUNK_CLASS_NAME, chunkClassesCt.size() + 1);
+                chunkClassCt = pool.makeClass(chunkClassName, mainClassCt);
+                chunkClassesCt.add(chunkClassCt);
+            }
+
+            String chunkMethodName = String.format(MAIN_CHUNK_METHOD_NAME, i);
+            String escapedChunk = mainChunks.get(i).replace("\n", "\\n");
+            chunkClassCt.addMethod(CtMethod.make(
+                    String.format("public static void %s(){%s}", chunkMethodName, escapedChunk), chunkClassCt));
+            mainMethod.append(chunkClassCt.getName()).append('.').append(chunkMethodName).append("();");
+        }
+        mainMethod.append("}");
+
+        mainClassCt.addMethod(CtMethod.make(mainMethod.toString(), mainClassCt));
+
+        // Chunk classes extend the main class only while their methods are compiled, so that unqualified field and
+        // procedure names resolve. The compiled references already name the main class as the declaring class.
+        CtClass objectClassCt = pool.get(Object.class.getName());
+        for (CtClass compiledChunkClassCt : chunkClassesCt) {
+            compiledChunkClassCt.setSuperclass(objectClassCt);
+        }
     }
 
-    private void createJarFile() throws IOException, CannotCompileException, NotFoundException {
+    private void createJarFile(Map<String, byte[]> classFiles, File jarFile) throws IOException {
         Manifest manifest = new Manifest();
         manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
-        manifest.getMainAttributes().put(Attributes.Name.MAIN_CLASS, "Main");
+        manifest.getMainAttributes().put(Attributes.Name.MAIN_CLASS, MAIN_CLASS_NAME);
         FileOutputStream fileOutputStream = new FileOutputStream(jarFile);
         JarOutputStream jarOut = new JarOutputStream(fileOutputStream, manifest);
-        addEntryToJar(jarOut, "Main.class", mainClassCt.toBytecode());
-        addEntryToJar(jarOut, "runtime/OutputFormatter.class", pool.get("runtime.OutputFormatter").toBytecode());
-        addEntryToJar(jarOut, "runtime/PredefinedProcedures.class",
-                pool.get("runtime.PredefinedProcedures").toBytecode());
-        addEntryToJar(jarOut, "lang/ListWrapper.class", pool.get("lang.ListWrapper").toBytecode());
+        for (Map.Entry<String, byte[]> classFile : classFiles.entrySet()) {
+            addEntryToJar(jarOut, classFile.getKey().replace('.', '/') + ".class", classFile.getValue());
+        }
         jarOut.close();
         fileOutputStream.close();
     }
 
-    private void addEntryToJar(JarOutputStream jarOut, String entryPath, byte[] byteCode)
-            throws IOException, CannotCompileException, NotFoundException {
+    private void addEntryToJar(JarOutputStream jarOut, String entryPath, byte[] byteCode) throws IOException {
         jarOut.putNextEntry(new ZipEntry(entryPath));
         jarOut.write(byteCode);
         jarOut.closeEntry();
     }
 
-    private GeneratedCode visitParseTreeForInput(String input) {
+    private ParseTree parse(String input, CompilationStatistics statistics) {
+        statistics.startPhase();
         ANTLRInputStream inputStream = new ANTLRInputStream(input);
         SchemeLexer lexer = new SchemeLexer(inputStream);
         lexer.removeErrorListeners();
         lexer.addErrorListener(ErrorListener.INSTANCE);
 
         CommonTokenStream tokens = new CommonTokenStream(lexer);
+        tokens.fill();
+        statistics.endPhase(CompilationStatistics.Phase.LEXING);
+
+        statistics.startPhase();
         SchemeParser parser = new SchemeParser(tokens);
         parser.removeErrorListeners();
         parser.addErrorListener(ErrorListener.INSTANCE);
 
         ParseTree parseTree = parser.program();
-        codeGenVisitor = new CodeGenVisitor();
-        return codeGenVisitor.visit(parseTree).build();
+        statistics.endPhase(CompilationStatistics.Phase.PARSING);
+        return parseTree;
+    }
+
+    private GeneratedCode visitParseTree(ParseTree parseTree) {
+        return new CodeGenVisitor().visit(parseTree).build();
     }
 }
\ No newline at end of file
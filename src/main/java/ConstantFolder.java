@@ -0,0 +1,151 @@
+import runtime.PredefinedProcedures;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+public class ConstantFolder {
+
+    private static final Set<String> COMPARISONS = new HashSet<>(Arrays.asList("<", "<=", ">", ">="));
+
+    private final Set<String> userDefinedProcedures;
+    private final Inliner inliner;
+
+    public ConstantFolder(Set<String> userDefinedProcedures, Inliner inliner) {
+        this.userDefinedProcedures = userDefinedProcedures;
+        this.inliner = inliner;
+    }
+
+    /**
+     * Folds the expression to a constant value. Applications of names for which {@code isBound} holds refer to
+     * variables of the enclosing scope, which shadow procedures of the same name, and are never folded.
+     */
+    public Optional<Object> fold(SchemeParser.ExpressionContext expression, Predicate<String> isBound) {
+        return fold(expression, Collections.emptyMap(), isBound);
+    }
+
+    public Optional<Object> fold(SchemeParser.ApplicationContext application, Predicate<String> isBound) {
+        return fold(application, Collections.emptyMap(), isBound);
+    }
+
+    private Optional<Object> fold(SchemeParser.ExpressionContext expression, Map<String, Object> environment,
+                                  Predicate<String> isBound) {
+        if (CodeGenVisitor.isConstant(expression)) {
+            return foldConstant(expression.constant());
+        }
+        if (CodeGenVisitor.isIdentifier(expression)) {
+            return Optional.ofNullable(environment.get(expression.IDENTIFIER().getText()));
+        }
+        if (CodeGenVisitor.isApplication(expression)) {
+            return fold(expression.application(), environment, isBound);
+        }
+
+        return Optional.empty();
+    }
+
+    private Optional<Object> fold(SchemeParser.ApplicationContext application, Map<String, Object> environment,
+                                  Predicate<String> isBound) {
+        String identifier = application.IDENTIFIER().getText();
+        if (isBound.test(identifier)) {
+            return Optional.empty();
+        }
+
+        boolean isUserDefined = userDefinedProcedures.contains(identifier);
+        if (isUserDefined && !inliner.isInlinable(identifier, application.expression().size())) {
+            return Optional.empty();
+        }
+
+        List<Object> arguments = new ArrayList<>();
+        for (SchemeParser.ExpressionContext expression : application.expression()) {
+            Optional<Object> argument = fold(expression, environment, isBound);
+            if (!argument.isPresent()) {
+                return Optional.empty();
+            }
+            arguments.add(argument.get());
+        }
+
+        if (isUserDefined) {
+            Map<String, Object> parameters = new HashMap<>();
+            List<String> paramNames = inliner.getParamNames(identifier);
+            for (int i = 0; i < paramNames.size(); i++) {
+                parameters.put(paramNames.get(i), arguments.get(i));
+            }
+            return fold(inliner.getBody(identifier), parameters, parameters::containsKey);
+        }
+
+        if ("equal?".equals(identifier)) {
+            return arguments.size() == 2 ? Optional.of(Objects.equals(arguments.get(0), arguments.get(1))) :
+                    Optional.empty();
+        }
+
+        if (!arguments.stream().allMatch(argument -> argument instanceof Number)) {
+            return Optional.empty();
+        }
+
+        if (COMPARISONS.contains(identifier)) {
+            return arguments.size() < 2 ? Optional.empty() : Optional.of(foldComparison(identifier, arguments));
+        }
+
+        Object[] numbers = arguments.toArray();
+        switch (identifier) {
+            case "+":
+                return Optional.of(PredefinedProcedures.add(numbers));
+            case "*":
+                return Optional.of(PredefinedProcedures.multiply(numbers));
+            case "-":
+                if (numbers.length == 0) {
+                    return Optional.empty();
+                }
+                return Optional.of(numbers.length == 1 ? PredefinedProcedures.negate(numbers) :
+                        PredefinedProcedures.subtract(numbers));
+            case "quotient":
+                if (numbers.length != 2 || PredefinedProcedures.compare(numbers[1], 0L) == 0) {
+                    return Optional.empty();
+                }
+                return Optional.of(PredefinedProcedures.divide(numbers));
+            default:
+                return Optional.empty();
+        }
+    }
+
+    private Optional<Object> foldConstant(SchemeParser.ConstantContext constant) {
+        if (CodeGenVisitor.isNumber(constant)) {
+            return Optional.of(CodeGenVisitor.getNumberValue(constant));
+        }
+        if (CodeGenVisitor.isCharacter(constant)) {
+            return Optional.of(CodeGenVisitor.getCharacterValue(constant));
+        }
+        if (CodeGenVisitor.isBoolean(constant)) {
+            return Optional.of("#t".equals(constant.BOOLEAN().getText()));
+        }
+
+        return Optional.empty();
+    }
+
+    private static boolean foldComparison(String identifier, List<Object> arguments) {
+        for (int current = 0; current < arguments.size() - 1; current++) {
+            int comparison = PredefinedProcedures.compare(arguments.get(current), arguments.get(current + 1));
+
+            boolean holds;
+            switch (identifier) {
+                case "<":
+                    holds = comparison < 0;
+                    break;
+                case "<=":
+                    holds = comparison <= 0;
+                    break;
+                case ">":
+                    holds = comparison > 0;
+                    break;
+                default:
+                    holds = comparison >= 0;
+            }
+
+            if (!holds) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+}
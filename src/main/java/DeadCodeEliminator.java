@@ -0,0 +1,208 @@
+import javassist.bytecode.*;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class DeadCodeEliminator {
+
+    private static final Pattern IDENTIFIER_PATTERN = Pattern.compile("[A-Za-z_$][A-Za-z_$0-9]*");
+    private static final Set<String> ROOT_METHOD_NAMES = new HashSet<>(Arrays.asList("main", MethodInfo.nameInit,
+            MethodInfo.nameClinit));
+
+    public static GeneratedCode eliminate(GeneratedCode generatedCode) {
+        Map<String, String> methods = new LinkedHashMap<>();
+        for (String method : generatedCode.getMethodsToBeDeclared()) {
+            methods.put(getLastIdentifier(method.substring(0, method.indexOf('('))), method);
+        }
+        Map<String, String> variables = new LinkedHashMap<>();
+        List<String> unnamedVariables = new ArrayList<>();
+        for (String variable : generatedCode.getVariableDefinitions()) {
+            String fieldName = getFieldName(variable);
+            if (fieldName == null) {
+                unnamedVariables.add(variable);
+            } else {
+                variables.put(fieldName, variable);
+            }
+        }
+
+        Set<String> reachable = new HashSet<>();
+        Deque<String> pending = new ArrayDeque<>(generatedCode.getMainChunks());
+        if (methods.containsKey("main")) {
+            reachable.add("main");
+            pending.push(methods.get("main"));
+        }
+        while (!pending.isEmpty()) {
+            Matcher matcher = IDENTIFIER_PATTERN.matcher(pending.pop());
+            while (matcher.find()) {
+                String identifier = matcher.group();
+                if (methods.containsKey(identifier) && reachable.add(identifier)) {
+                    pending.push(methods.get(identifier));
+                } else if (variables.containsKey(identifier) && reachable.add(identifier)) {
+                    pending.push(variables.get(identifier));
+                }
+            }
+        }
+
+        methods.keySet().retainAll(reachable);
+        variables.keySet().retainAll(reachable);
+
+        List<String> remainingVariables = new ArrayList<>(variables.values());
+        remainingVariables.addAll(unnamedVariables);
+        return new GeneratedCode(new ArrayList<>(methods.values()), remainingVariables,
+                generatedCode.getMainChunks(), generatedCode.getGeneratedCode());
+    }
+
+    @SuppressWarnings("unchecked")
+    public static void eliminate(ClassFile mainClass, List<ClassFile> chunkClasses) throws BadBytecode {
+        List<MethodInfo> methods = mainClass.getMethods();
+        Set<String> reachableMethods = new HashSet<>();
+
+        Deque<MethodInfo> pending = new ArrayDeque<>();
+        for (MethodInfo method : methods) {
+            if (ROOT_METHOD_NAMES.contains(method.getName())) {
+                reachableMethods.add(method.getName());
+                pending.push(method);
+            }
+        }
+        List<MethodInfo> chunkMethods = new ArrayList<>();
+        for (ClassFile chunkClass : chunkClasses) {
+            List<MethodInfo> chunkClassMethods = chunkClass.getMethods();
+            chunkMethods.addAll(chunkClassMethods);
+        }
+        chunkMethods.forEach(pending::push);
+
+        while (!pending.isEmpty()) {
+            MethodInfo method = pending.pop();
+            ConstPool constPool = method.getConstPool();
+            CodeIterator iterator = method.getCodeAttribute().iterator();
+            while (iterator.hasNext()) {
+                int index = iterator.next();
+                int opcode = iterator.byteAt(index);
+                if (opcode == Opcode.INVOKESTATIC) {
+                    int methodref = iterator.u16bitAt(index + 1);
+                    String name = constPool.getMethodrefName(methodref);
+                    if (mainClass.getName().equals(constPool.getMethodrefClassName(methodref))
+                            && reachableMethods.add(name)) {
+                        pending.push(mainClass.getMethod(name));
+                    }
+                } else if (opcode == Opcode.LDC || opcode == Opcode.LDC_W) {
+                    int constant = opcode == Opcode.LDC ? iterator.byteAt(index + 1) : iterator.u16bitAt(index + 1);
+                    if (constPool.getTag(constant) == ConstPool.CONST_String) {
+                        String name = constPool.getStringInfo(constant);
+                        if (mainClass.getMethod(name) != null && reachableMethods.add(name)) {
+                            pending.push(mainClass.getMethod(name));
+                        }
+                    }
+                }
+            }
+        }
+        methods.removeIf(method -> !reachableMethods.contains(method.getName()));
+
+        List<MethodInfo> remainingMethods = new ArrayList<>(methods);
+        remainingMethods.addAll(chunkMethods);
+
+        Set<String> readFields;
+        boolean changed;
+        do {
+            readFields = new HashSet<>();
+            for (MethodInfo method : remainingMethods) {
+                collectReadFields(method, mainClass.getName(), readFields);
+            }
+
+            changed = false;
+            for (MethodInfo method : remainingMethods) {
+                changed |= removeUnreadFieldStores(method, mainClass.getName(), readFields);
+            }
+        } while (changed);
+
+        Set<String> liveFields = readFields;
+        List<FieldInfo> fields = mainClass.getFields();
+        fields.removeIf(field -> !liveFields.contains(field.getName()));
+    }
+
+    private static void collectReadFields(MethodInfo method, String className, Set<String> readFields)
+            throws BadBytecode {
+        ConstPool constPool = method.getConstPool();
+        CodeIterator iterator = method.getCodeAttribute().iterator();
+        while (iterator.hasNext()) {
+            int index = iterator.next();
+            if (iterator.byteAt(index) == Opcode.GETSTATIC
+                    && className.equals(constPool.getFieldrefClassName(iterator.u16bitAt(index + 1)))) {
+                readFields.add(constPool.getFieldrefName(iterator.u16bitAt(index + 1)));
+            }
+        }
+    }
+
+    private static boolean removeUnreadFieldStores(MethodInfo method, String className, Set<String> readFields)
+            throws BadBytecode {
+        ConstPool constPool = method.getConstPool();
+        Set<Integer> jumpTargets = collectJumpTargets(method);
+
+        boolean changed = false;
+        int previousIndex = -1;
+        CodeIterator iterator = method.getCodeAttribute().iterator();
+        while (iterator.hasNext()) {
+            int index = iterator.next();
+            int opcode = iterator.byteAt(index);
+
+            if (opcode == Opcode.PUTSTATIC) {
+                int fieldref = iterator.u16bitAt(index + 1);
+                if (className.equals(constPool.getFieldrefClassName(fieldref))
+                        && !readFields.contains(constPool.getFieldrefName(fieldref))) {
+                    iterator.writeByte(Opcode.POP, index);
+                    iterator.writeByte(Opcode.NOP, index + 1);
+                    iterator.writeByte(Opcode.NOP, index + 2);
+                    opcode = Opcode.POP;
+                    changed = true;
+                }
+            }
+
+            if (opcode == Opcode.POP && previousIndex >= 0 && !jumpTargets.contains(index)
+                    && iterator.byteAt(previousIndex) == Opcode.GETSTATIC
+                    && className.equals(constPool.getFieldrefClassName(iterator.u16bitAt(previousIndex + 1)))) {
+                for (int position = previousIndex; position <= index; position++) {
+                    iterator.writeByte(Opcode.NOP, position);
+                }
+                changed = true;
+            }
+
+            previousIndex = index;
+        }
+
+        return changed;
+    }
+
+    private static Set<Integer> collectJumpTargets(MethodInfo method) throws BadBytecode {
+        Set<Integer> jumpTargets = new HashSet<>();
+        CodeIterator iterator = method.getCodeAttribute().iterator();
+        while (iterator.hasNext()) {
+            int index = iterator.next();
+            int opcode = iterator.byteAt(index);
+            if (opcode >= Opcode.IFEQ && opcode <= Opcode.GOTO || opcode == Opcode.IFNULL
+                    || opcode == Opcode.IFNONNULL) {
+                jumpTargets.add(index + iterator.s16bitAt(index + 1));
+            } else if (opcode == Opcode.GOTO_W) {
+                jumpTargets.add(index + iterator.s32bitAt(index + 1));
+            }
+        }
+
+        return jumpTargets;
+    }
+
+    private static String getFieldName(String variable) {
+        int initializer = variable.indexOf('=');
+        return getLastIdentifier(initializer < 0 ? variable : variable.substring(0, initializer));
+    }
+
+    private static String getLastIdentifier(String code) {
+        Matcher matcher = IDENTIFIER_PATTERN.matcher(code);
+        String identifier = null;
+        while (matcher.find()) {
+            identifier = matcher.group();
+        }
+
+        return identifier;
+    }
+
+}
@@ -1,16 +1,24 @@
 import java.util.*;
-import java.util.stream.Collectors;
 
 public class GeneratedCode {
 
+    public static final int MAXIMUM_MAIN_CHUNK_LENGTH = 4000;
+
     private List<String> methodsToBeDeclared = new ArrayList<>();
 
     private List<String> variableDefinitions = new ArrayList<>();
+    private List<String> mainChunks = new ArrayList<>();
     private String generatedCode;
 
     public GeneratedCode(List<String> methodsToBeDeclared, List<String> variableDefinitions, String generatedCode) {
+        this(methodsToBeDeclared, variableDefinitions, Collections.emptyList(), generatedCode);
+    }
+
+    public GeneratedCode(List<String> methodsToBeDeclared, List<String> variableDefinitions, List<String> mainChunks,
+                         String generatedCode) {
         this.methodsToBeDeclared = methodsToBeDeclared;
         this.variableDefinitions = variableDefinitions;
+        this.mainChunks = mainChunks;
         this.generatedCode = generatedCode;
     }
 
@@ -22,6 +30,10 @@ public class GeneratedCode {
         return new ArrayList<>(variableDefinitions);
     }
 
+    public List<String> getMainChunks() {
+        return new ArrayList<>(mainChunks);
+    }
+
     public String getGeneratedCode() {
         return generatedCode;
     }
@@ -39,20 +51,38 @@ public class GeneratedCode {
         }
 
         public GeneratedCode build() {
-            mainMethod.add(0, "public static void main(String[] args){");
-            mainMethod.add("}");
-
             List<String> methods = new ArrayList<>();
 
             methodsToBeDeclared.values()
                     .stream()
                     .filter(Optional::isPresent)
                     .forEach(method -> methods.add(method.get()));
-            methods.add(mainMethod.stream().collect(Collectors.joining()));
+
+            List<String> mainChunks = splitMainMethod();
+            if (mainChunks.size() > 1) {
+                return new GeneratedCode(methods, variableDefinitions, mainChunks, generatedCode);
+            }
+
+            methods.add("public static void main(String[] args){" + String.join("", mainChunks) + "}");
 
             return new GeneratedCode(methods, variableDefinitions, generatedCode);
         }
 
+        private List<String> splitMainMethod() {
+            List<String> mainChunks = new ArrayList<>();
+            StringBuilder mainChunk = new StringBuilder();
+            for (String statement : mainMethod) {
+                if (mainChunk.length() > 0 && mainChunk.length() + statement.length() > MAXIMUM_MAIN_CHUNK_LENGTH) {
+                    mainChunks.add(mainChunk.toString());
+                    mainChunk.setLength(0);
+                }
+                mainChunk.append(statement);
+            }
+            mainChunks.add(mainChunk.toString());
+
+            return mainChunks;
+        }
+
         public GeneratedCodeBuilder setGeneratedCode(String generatedCode) {
             this.generatedCode = generatedCode;
 
@@ -70,20 +100,15 @@ public class GeneratedCode {
         }
 
         public GeneratedCodeBuilder mergeWith(GeneratedCodeBuilder other) {
-            GeneratedCodeBuilder merged = new GeneratedCodeBuilder();
-
-            merged.generatedCode = generatedCode != null ? generatedCode : other.generatedCode;
+            if (generatedCode == null) {
+                generatedCode = other.generatedCode;
+            }
 
-            merged.variableDefinitions.addAll(variableDefinitions);
-            merged.variableDefinitions.addAll(other.variableDefinitions);
+            variableDefinitions.addAll(other.variableDefinitions);
+            methodsToBeDeclared.putAll(other.methodsToBeDeclared);
+            mainMethod.addAll(other.mainMethod);
 
-            merged.methodsToBeDeclared.putAll(methodsToBeDeclared);
-            merged.methodsToBeDeclared.putAll(other.methodsToBeDeclared);
-
-            merged.mainMethod.addAll(mainMethod);
-            merged.mainMethod.addAll(other.mainMethod);
-
-            return merged;
+            return this;
         }
 
         public GeneratedCodeBuilder addStatementsToMainMethod(String... statements) {
@@ -0,0 +1,32 @@
+import java.util.Map;
+
+public class InMemoryClassLoader extends ClassLoader {
+
+    private final Map<String, byte[]> classFiles;
+
+    public InMemoryClassLoader(Map<String, byte[]> classFiles, ClassLoader parent) {
+        super(parent);
+        this.classFiles = classFiles;
+    }
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+        if (!classFiles.containsKey(name)) {
+            return super.loadClass(name, resolve);
+        }
+
+        synchronized (getClassLoadingLock(name)) {
+            Class<?> loadedClass = findLoadedClass(name);
+            if (loadedClass == null) {
+                byte[] classFile = classFiles.get(name);
+                loadedClass = defineClass(name, classFile, 0, classFile.length);
+            }
+            if (resolve) {
+                resolveClass(loadedClass);
+            }
+
+            return loadedClass;
+        }
+    }
+
+}
@@ -0,0 +1,122 @@
+import java.util.*;
+import java.util.stream.Collectors;
+
+public class Inliner {
+
+    static final int MAXIMUM_INLINE_SIZE = 12;
+    static final int MAXIMUM_INLINE_DEPTH = 3;
+
+    private final Map<String, SchemeParser.Procedure_definitionContext> procedureDefinitions;
+    private final Map<String, Set<String>> callees = new HashMap<>();
+    private final Set<String> inlinableProcedures = new HashSet<>();
+
+    public Inliner(Map<String, SchemeParser.Procedure_definitionContext> procedureDefinitions) {
+        this.procedureDefinitions = procedureDefinitions;
+
+        for (Map.Entry<String, SchemeParser.Procedure_definitionContext> entry : procedureDefinitions.entrySet()) {
+            Set<String> procedureCallees = new HashSet<>();
+            entry.getValue().expression().forEach(expression -> collectCallees(expression, procedureCallees));
+            callees.put(entry.getKey(), procedureCallees);
+        }
+
+        for (Map.Entry<String, SchemeParser.Procedure_definitionContext> entry : procedureDefinitions.entrySet()) {
+            SchemeParser.Procedure_definitionContext procedureDefinition = entry.getValue();
+            if (procedureDefinition.definition().isEmpty() && procedureDefinition.expression().size() == 1
+                    && getSize(procedureDefinition.expression(0)) <= MAXIMUM_INLINE_SIZE
+                    && !containsLambda(procedureDefinition.expression(0))
+                    && !isRecursive(entry.getKey())) {
+                inlinableProcedures.add(entry.getKey());
+            }
+        }
+    }
+
+    public boolean isInlinable(String procedureName, int argumentCount) {
+        return inlinableProcedures.contains(procedureName)
+                && procedureDefinitions.get(procedureName).param().size() == argumentCount;
+    }
+
+    public SchemeParser.ExpressionContext getBody(String procedureName) {
+        return procedureDefinitions.get(procedureName).expression(0);
+    }
+
+    public List<String> getParamNames(String procedureName) {
+        return procedureDefinitions.get(procedureName).param()
+                .stream()
+                .map(param -> param.IDENTIFIER().getText())
+                .collect(Collectors.toList());
+    }
+
+    public Set<String> getFreeVariables(String procedureName) {
+        Set<String> variables = new HashSet<>();
+        collectVariables(getBody(procedureName), variables);
+        variables.removeAll(getParamNames(procedureName));
+
+        return variables;
+    }
+
+    private boolean isRecursive(String procedureName) {
+        Set<String> visited = new HashSet<>();
+        Deque<String> pending = new ArrayDeque<>(callees.get(procedureName));
+        while (!pending.isEmpty()) {
+            String callee = pending.pop();
+            if (callee.equals(procedureName)) {
+                return true;
+            }
+            if (visited.add(callee)) {
+                pending.addAll(callees.get(callee));
+            }
+        }
+
+        return false;
+    }
+
+    private void collectCallees(SchemeParser.ExpressionContext expression, Set<String> procedureCallees) {
+        if (CodeGenVisitor.isApplication(expression)) {
+            String identifier = expression.application().IDENTIFIER().getText();
+            if (procedureDefinitions.containsKey(identifier)) {
+                procedureCallees.add(identifier);
+            }
+        }
+
+        getSubexpressions(expression).forEach(subexpression -> collectCallees(subexpression, procedureCallees));
+    }
+
+    private static void collectVariables(SchemeParser.ExpressionContext expression, Set<String> variables) {
+        if (CodeGenVisitor.isIdentifier(expression)) {
+            variables.add(expression.IDENTIFIER().getText());
+        }
+
+        getSubexpressions(expression).forEach(subexpression -> collectVariables(subexpression, variables));
+    }
+
+    private static int getSize(SchemeParser.ExpressionContext expression) {
+        return 1 + getSubexpressions(expression).stream()
+                .mapToInt(Inliner::getSize)
+                .sum();
+    }
+
+    private static boolean containsLambda(SchemeParser.ExpressionContext expression) {
+        return CodeGenVisitor.isLambda(expression)
+                || getSubexpressions(expression).stream().anyMatch(Inliner::containsLambda);
+    }
+
+    private static List<SchemeParser.ExpressionContext> getSubexpressions(SchemeParser.ExpressionContext expression) {
+        if (CodeGenVisitor.isApplication(expression)) {
+            return expression.application().expression();
+        }
+        if (CodeGenVisitor.isLet(expression)) {
+            List<SchemeParser.ExpressionContext> subexpressions = expression.let_expression().binding()
+                    .stream()
+                    .map(SchemeParser.BindingContext::expression)
+                    .collect(Collectors.toList());
+            subexpressions.addAll(expression.let_expression().expression());
+            return subexpressions;
+        }
+        if (CodeGenVisitor.isLambda(expression)) {
+            return expression.lambda_expression().expression();
+        }
+
+        return Collections.emptyList();
+    }
+
+}
@@ -0,0 +1,133 @@
+import org.antlr.v4.runtime.CommonToken;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.Vocabulary;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Rewrites internal procedure definitions {@code (define (name param ...) definition ... body ...)} into
+ * {@code (define name (lambda (param ...) body ...))}, so that they are compiled like local lambdas which see the
+ * variables of the enclosing procedure. Definitions nested in an internal procedure become a {@code letrec} around
+ * its body.
+ */
+public class InternalDefinitionRewriter {
+
+    private static final int INVOKING_STATE = -1;
+
+    public static void rewrite(SchemeParser.ProgramContext program) {
+        program.form()
+                .stream()
+                .map(SchemeParser.FormContext::definition)
+                .filter(definition -> Objects.nonNull(definition) && !CodeGenVisitor.isVariableDefinition(definition))
+                .forEach(definition -> rewriteInternalDefinitions(definition.procedure_definition()));
+    }
+
+    private static void rewriteInternalDefinitions(SchemeParser.Procedure_definitionContext procedureDefinition) {
+        for (SchemeParser.DefinitionContext definition : procedureDefinition.definition()) {
+            if (CodeGenVisitor.isVariableDefinition(definition)) {
+                continue;
+            }
+
+            SchemeParser.Procedure_definitionContext internalDefinition = definition.procedure_definition();
+            SchemeParser.Variable_definitionContext variableDefinition =
+                    new SchemeParser.Variable_definitionContext(definition, INVOKING_STATE);
+            setBounds(variableDefinition, internalDefinition);
+            variableDefinition.addChild(internalDefinition.getStart());
+            variableDefinition.addChild(createToken("define"));
+            variableDefinition.addChild(internalDefinition.proc_name().IDENTIFIER().getSymbol());
+            addChild(variableDefinition, createLambdaExpression(variableDefinition, internalDefinition));
+            variableDefinition.addChild(internalDefinition.getStop());
+
+            definition.children.clear();
+            addChild(definition, variableDefinition);
+        }
+    }
+
+    private static SchemeParser.ExpressionContext createLambdaExpression(
+            ParserRuleContext parent, SchemeParser.Procedure_definitionContext procedureDefinition) {
+        SchemeParser.ExpressionContext expression = new SchemeParser.ExpressionContext(parent, INVOKING_STATE);
+        SchemeParser.Lambda_expressionContext lambda = new SchemeParser.Lambda_expressionContext(expression,
+                INVOKING_STATE);
+        setBounds(expression, procedureDefinition);
+        setBounds(lambda, procedureDefinition);
+
+        lambda.addChild(createToken("("));
+        lambda.addChild(createToken("lambda"));
+        lambda.addChild(createToken("("));
+        procedureDefinition.param().forEach(param -> addChild(lambda, param));
+        lambda.addChild(createToken(")"));
+        if (procedureDefinition.definition().isEmpty()) {
+            procedureDefinition.expression().forEach(bodyExpression -> addChild(lambda, bodyExpression));
+        } else {
+            addChild(lambda, createLetrecExpression(lambda, procedureDefinition.definition(),
+                    procedureDefinition.expression(), procedureDefinition));
+        }
+        lambda.addChild(createToken(")"));
+
+        addChild(expression, lambda);
+        return expression;
+    }
+
+    private static SchemeParser.ExpressionContext createLetrecExpression(
+            ParserRuleContext parent, List<SchemeParser.DefinitionContext> definitions,
+            List<SchemeParser.ExpressionContext> body, SchemeParser.Procedure_definitionContext procedureDefinition) {
+        SchemeParser.ExpressionContext expression = new SchemeParser.ExpressionContext(parent, INVOKING_STATE);
+        SchemeParser.Let_expressionContext let = new SchemeParser.Let_expressionContext(expression, INVOKING_STATE);
+        SchemeParser.Let_keywordContext keyword = new SchemeParser.Let_keywordContext(let, INVOKING_STATE);
+        setBounds(expression, procedureDefinition);
+        setBounds(let, procedureDefinition);
+        setBounds(keyword, procedureDefinition);
+        keyword.addChild(createToken("letrec"));
+
+        let.addChild(createToken("("));
+        addChild(let, keyword);
+        let.addChild(createToken("("));
+        for (SchemeParser.DefinitionContext definition : definitions) {
+            SchemeParser.BindingContext binding = new SchemeParser.BindingContext(let, INVOKING_STATE);
+            setBounds(binding, procedureDefinition);
+            binding.addChild(createToken("("));
+            if (CodeGenVisitor.isVariableDefinition(definition)) {
+                binding.addChild(definition.variable_definition().IDENTIFIER().getSymbol());
+                addChild(binding, definition.variable_definition().expression());
+            } else {
+                SchemeParser.Procedure_definitionContext internalDefinition = definition.procedure_definition();
+                binding.addChild(internalDefinition.proc_name().IDENTIFIER().getSymbol());
+                addChild(binding, createLambdaExpression(binding, internalDefinition));
+            }
+            binding.addChild(createToken(")"));
+            addChild(let, binding);
+        }
+        let.addChild(createToken(")"));
+        body.forEach(bodyExpression -> addChild(let, bodyExpression));
+        let.addChild(createToken(")"));
+
+        addChild(expression, let);
+        return expression;
+    }
+
+    private static void addChild(ParserRuleContext parent, ParserRuleContext child) {
+        child.parent = parent;
+        parent.addChild(child);
+    }
+
+    private static void setBounds(ParserRuleContext context, ParserRuleContext original) {
+        context.start = original.getStart();
+        context.stop = original.getStop();
+    }
+
+    private static Token createToken(String literal) {
+        String literalName = "'" + literal + "'";
+        Vocabulary vocabulary = SchemeParser.VOCABULARY;
+        for (int type = Token.MIN_USER_TOKEN_TYPE; vocabulary.getLiteralName(type) != null
+                || vocabulary.getSymbolicName(type) != null; type++) {
+            if (literalName.equals(vocabulary.getLiteralName(type))) {
+                return new CommonToken(type, literal);
+            }
+        }
+
+        throw new IllegalArgumentException(String.format("Unknown literal '%s'", literal));
+    }
+
+}
@@ -0,0 +1,72 @@
+import java.util.*;
+import java.util.stream.Collectors;
+
+public class LambdaAnalysis {
+
+    public static Set<String> getFreeVariables(SchemeParser.Lambda_expressionContext lambda) {
+        Set<String> freeVariables = new LinkedHashSet<>();
+        collectFreeVariables(lambda.expression(), new HashSet<>(getParamNames(lambda)), true, freeVariables);
+
+        return freeVariables;
+    }
+
+    public static boolean isReferencedAsValue(String variable, List<SchemeParser.ExpressionContext> scope) {
+        Set<String> referencedVariables = new HashSet<>();
+        collectFreeVariables(scope, Collections.emptySet(), false, referencedVariables);
+
+        return referencedVariables.contains(variable);
+    }
+
+    public static List<String> getParamNames(SchemeParser.Lambda_expressionContext lambda) {
+        return lambda.param()
+                .stream()
+                .map(param -> param.IDENTIFIER().getText())
+                .collect(Collectors.toList());
+    }
+
+    private static void collectFreeVariables(List<SchemeParser.ExpressionContext> expressions,
+                                             Set<String> boundVariables, boolean includeOperators,
+                                             Set<String> freeVariables) {
+        expressions.forEach(expression -> collectFreeVariables(expression, boundVariables, includeOperators,
+                freeVariables));
+    }
+
+    private static void collectFreeVariables(SchemeParser.ExpressionContext expression, Set<String> boundVariables,
+                                             boolean includeOperators, Set<String> freeVariables) {
+        if (CodeGenVisitor.isIdentifier(expression)) {
+            addFreeVariable(expression.IDENTIFIER().getText(), boundVariables, freeVariables);
+        } else if (CodeGenVisitor.isApplication(expression)) {
+            if (includeOperators) {
+                addFreeVariable(expression.application().IDENTIFIER().getText(), boundVariables, freeVariables);
+            }
+            collectFreeVariables(expression.application().expression(), boundVariables, includeOperators,
+                    freeVariables);
+        } else if (CodeGenVisitor.isLet(expression)) {
+            SchemeParser.Let_expressionContext let = expression.let_expression();
+            String keyword = let.let_keyword().getText();
+
+            Set<String> bodyVariables = new HashSet<>(boundVariables);
+            if ("letrec".equals(keyword)) {
+                let.binding().forEach(binding -> bodyVariables.add(binding.IDENTIFIER().getText()));
+            }
+            for (SchemeParser.BindingContext binding : let.binding()) {
+                collectFreeVariables(binding.expression(), "let".equals(keyword) ? boundVariables : bodyVariables,
+                        includeOperators, freeVariables);
+                bodyVariables.add(binding.IDENTIFIER().getText());
+            }
+            collectFreeVariables(let.expression(), bodyVariables, includeOperators, freeVariables);
+        } else if (CodeGenVisitor.isLambda(expression)) {
+            Set<String> bodyVariables = new HashSet<>(boundVariables);
+            bodyVariables.addAll(getParamNames(expression.lambda_expression()));
+            collectFreeVariables(expression.lambda_expression().expression(), bodyVariables, includeOperators,
+                    freeVariables);
+        }
+    }
+
+    private static void addFreeVariable(String variable, Set<String> boundVariables, Set<String> freeVariables) {
+        if (!boundVariables.contains(variable)) {
+            freeVariables.add(variable);
+        }
+    }
+
+}
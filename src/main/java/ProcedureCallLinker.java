@@ -0,0 +1,88 @@
+import javassist.bytecode.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+public class ProcedureCallLinker {
+
+    private static final String LINKER_CLASS = "runtime.ProcedureLinker";
+    private static final String BOOTSTRAP_DESCRIPTOR = "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;" +
+            "Ljava/lang/invoke/MethodType;Ljava/lang/Class;)Ljava/lang/invoke/CallSite;";
+
+    @SuppressWarnings("unchecked")
+    public static void link(ClassFile mainClass, List<ClassFile> chunkClasses, Set<String> procedureNames)
+            throws BadBytecode {
+        List<ClassFile> classFiles = new ArrayList<>(chunkClasses);
+        classFiles.add(0, mainClass);
+
+        for (ClassFile classFile : classFiles) {
+            int bootstrapMethod = -1;
+            List<MethodInfo> methods = classFile.getMethods();
+            for (MethodInfo method : methods) {
+                List<Integer> calls = findProcedureCalls(method, mainClass.getName(), classFile.getName(),
+                        procedureNames);
+                if (calls.isEmpty()) {
+                    continue;
+                }
+                if (bootstrapMethod < 0) {
+                    bootstrapMethod = addBootstrapMethod(classFile, mainClass.getName());
+                }
+
+                replaceWithInvokedynamic(method, calls, bootstrapMethod);
+            }
+        }
+    }
+
+    private static List<Integer> findProcedureCalls(MethodInfo method, String ownerName, String className,
+                                                    Set<String> procedureNames) throws BadBytecode {
+        List<Integer> calls = new ArrayList<>();
+        ConstPool constPool = method.getConstPool();
+        CodeIterator iterator = method.getCodeAttribute().iterator();
+        while (iterator.hasNext()) {
+            int index = iterator.next();
+            if (iterator.byteAt(index) == Opcode.INVOKESTATIC) {
+                int methodref = iterator.u16bitAt(index + 1);
+                String methodClassName = constPool.getMethodrefClassName(methodref);
+                if ((ownerName.equals(methodClassName) || className.equals(methodClassName))
+                        && procedureNames.contains(constPool.getMethodrefName(methodref))) {
+                    calls.add(index);
+                }
+            }
+        }
+
+        return calls;
+    }
+
+    private static void replaceWithInvokedynamic(MethodInfo method, List<Integer> calls, int bootstrapMethod)
+            throws BadBytecode {
+        ConstPool constPool = method.getConstPool();
+        CodeIterator iterator = method.getCodeAttribute().iterator();
+        for (int i = calls.size() - 1; i >= 0; i--) {
+            int index = calls.get(i);
+            int methodref = iterator.u16bitAt(index + 1);
+            int nameAndType = constPool.addNameAndTypeInfo(constPool.getMethodrefName(methodref),
+                    constPool.getMethodrefType(methodref));
+
+            int position = iterator.insertGapAt(index, 2, false).position;
+            iterator.writeByte(Opcode.INVOKEDYNAMIC, position);
+            iterator.write16bit(constPool.addInvokeDynamicInfo(bootstrapMethod, nameAndType), position + 1);
+            iterator.write16bit(0, position + 3);
+        }
+    }
+
+    private static int addBootstrapMethod(ClassFile classFile, String ownerName) {
+        ConstPool constPool = classFile.getConstPool();
+        int bootstrap = constPool.addMethodrefInfo(constPool.addClassInfo(LINKER_CLASS), "bootstrap",
+                BOOTSTRAP_DESCRIPTOR);
+        int bootstrapHandle = constPool.addMethodHandleInfo(ConstPool.REF_invokeStatic, bootstrap);
+
+        BootstrapMethodsAttribute.BootstrapMethod method = new BootstrapMethodsAttribute.BootstrapMethod(
+                bootstrapHandle, new int[]{constPool.addClassInfo(ownerName)});
+        classFile.addAttribute(new BootstrapMethodsAttribute(constPool,
+                new BootstrapMethodsAttribute.BootstrapMethod[]{method}));
+
+        return 0;
+    }
+
+}
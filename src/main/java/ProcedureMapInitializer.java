@@ -1,5 +1,7 @@
+import lang.Util;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+
 import java.util.*;
-import java.util.stream.Collectors;
 
 public class ProcedureMapInitializer {
 
@@ -7,9 +9,10 @@ public class ProcedureMapInitializer {
     private static final String LIST_PROCEDURE_NAME = "list";
     private static final String CAR_PROCEDURE_NAME = "car";
     private static final String CDR_PROCEDURE_NAME = "cdr";
-    private static final int LESS_THAN = -1;
-    private static final int EQUAL = 0;
-    private static final int GREATER_THAN = 1;
+    private static final String CONS_PROCEDURE_NAME = "cons";
+    private static final int MAXIMUM_FIXED_ARITY = 3;
+    private static final List<String> NATIVE_BYTEVECTOR_TYPES = Arrays.asList("u16", "s16", "u32", "s32", "u64",
+            "s64");
     private CodeGenVisitor codeGenVisitor;
 
     public ProcedureMapInitializer(CodeGenVisitor codeGenVisitor) {
@@ -20,123 +23,146 @@ public class ProcedureMapInitializer {
         Map<String, CodeGenProcedure> procedureMap = new HashMap<>();
 
         procedureMap.put(DISPLAY_PROCEDURE_NAME, expressions -> {
-            GeneratedCode.GeneratedCodeBuilder codeBuilder = new GeneratedCode.GeneratedCodeBuilder();
-
-            if (expressions.size() == 1) {
-                SchemeParser.ExpressionContext argument = expressions.get(0);
-
-                String mainMethodStatement = "System.out.println(OutputFormatter.output(%s));";
-                GeneratedCode.GeneratedCodeBuilder genCodeBuilder = codeGenVisitor.expressionToCode().apply(argument);
-                codeBuilder.addStatementsToMainMethod(String.format(mainMethodStatement,
-                        genCodeBuilder.getGeneratedCode()));
-
-                codeBuilder = codeBuilder.mergeWith(genCodeBuilder);
-            }
+            Util.checkExactArity(expressions.size(), 1);
+            return codeGenVisitor.createProcedure("OutputPort.display", "%s(%s)").generateCode(expressions);
+        });
 
-            return codeBuilder;
+        procedureMap.put("write-string", expressions -> {
+            Util.checkExactArity(expressions.size(), 1);
+            return codeGenVisitor.createProcedure("OutputPort.writeString", "%s(%s)").generateCode(expressions);
+        });
+        procedureMap.put("newline", expressions -> {
+            Util.checkExactArity(expressions.size(), 0);
+            return new GeneratedCode.GeneratedCodeBuilder().setGeneratedCode("OutputPort.newline()");
         });
 
         procedureMap.put(LIST_PROCEDURE_NAME, expressions -> {
-            GeneratedCode.GeneratedCodeBuilder codeBuilder = new GeneratedCode.GeneratedCodeBuilder();
-
-            String listCode;
-            if (expressions.size() == 0) {
-                listCode = "ListWrapper.fromElements(new Object[0])";
-            } else {
-                String listArguments = expressions.stream()
-                        .map(codeGenVisitor.expressionToCode())
-                        .map(GeneratedCode.GeneratedCodeBuilder::getGeneratedCode)
-                        .collect(Collectors.joining(","));
-                listCode = String.format("ListWrapper.fromElements(new Object[]{%s})", listArguments);
+            if (expressions.isEmpty()) {
+                return new GeneratedCode.GeneratedCodeBuilder().setGeneratedCode("EmptyList.INSTANCE");
             }
-            codeBuilder.setGeneratedCode(listCode);
-
-            return codeBuilder;
+            return codeGenVisitor.createProcedure("Pair.fromElements", "%s(new Object[]{%s})")
+                    .generateCode(expressions);
         });
 
-        procedureMap.put(CAR_PROCEDURE_NAME, createListProcedure("car"));
-        procedureMap.put(CDR_PROCEDURE_NAME, createListProcedure("cdr"));
-
-        procedureMap.put("+", codeGenVisitor.createProcedure("PredefinedProcedures.add", "%s(new Object[]{%s})"));
+        procedureMap.put(CONS_PROCEDURE_NAME, createFixedArityProcedure("PredefinedProcedures.cons", 2));
+        procedureMap.put(CAR_PROCEDURE_NAME, createFixedArityProcedure("PredefinedProcedures.car", 1));
+        procedureMap.put(CDR_PROCEDURE_NAME, createFixedArityProcedure("PredefinedProcedures.cdr", 1));
+        procedureMap.put("set-car!", createFixedArityProcedure("PredefinedProcedures.setCar", 2));
+        procedureMap.put("set-cdr!", createFixedArityProcedure("PredefinedProcedures.setCdr", 2));
+        procedureMap.put("null?", createFixedArityProcedure("PredefinedProcedures.isNull", 1));
+        procedureMap.put("pair?", createFixedArityProcedure("PredefinedProcedures.isPair", 1));
+
+        procedureMap.put("vector", expressions -> {
+            if (expressions.isEmpty()) {
+                return new GeneratedCode.GeneratedCodeBuilder()
+                        .setGeneratedCode("PredefinedProcedures.vector(new Object[0])");
+            }
+            return codeGenVisitor.createProcedure("PredefinedProcedures.vector", "%s(new Object[]{%s})")
+                    .generateCode(expressions);
+        });
+        procedureMap.put("make-vector", createVariableArityProcedure("PredefinedProcedures.makeVector", 1, 2));
+        procedureMap.put("vector-ref", createFixedArityProcedure("PredefinedProcedures.vectorRef", 2));
+        procedureMap.put("vector-set!", createFixedArityProcedure("PredefinedProcedures.vectorSet", 3));
+        procedureMap.put("vector-length", createFixedArityProcedure("PredefinedProcedures.vectorLength", 1));
+        procedureMap.put("vector-fill!", createFixedArityProcedure("PredefinedProcedures.vectorFill", 2));
+        procedureMap.put("vector?", createFixedArityProcedure("PredefinedProcedures.isVector", 1));
+
+        procedureMap.put("bytevector", expressions -> {
+            if (expressions.isEmpty()) {
+                return new GeneratedCode.GeneratedCodeBuilder()
+                        .setGeneratedCode("PredefinedProcedures.bytevector(new Object[0])");
+            }
+            return codeGenVisitor.createProcedure("PredefinedProcedures.bytevector", "%s(new Object[]{%s})")
+                    .generateCode(expressions);
+        });
+        procedureMap.put("make-bytevector",
+                createVariableArityProcedure("PredefinedProcedures.makeBytevector", 1, 2));
+        procedureMap.put("open-mapped-bytevector",
+                createVariableArityProcedure("PredefinedProcedures.openMappedBytevector", 1, 2));
+        procedureMap.put("bytevector-length", createFixedArityProcedure("PredefinedProcedures.bytevectorLength", 1));
+        procedureMap.put("bytevector-u8-ref", createFixedArityProcedure("PredefinedProcedures.bytevectorU8Ref", 2));
+        procedureMap.put("bytevector-u8-set!", createFixedArityProcedure("PredefinedProcedures.bytevectorU8Set", 3));
+        procedureMap.put("bytevector-copy!", createVariableArityProcedure("PredefinedProcedures.bytevectorCopy", 3, 5));
+        procedureMap.put("bytevector?", createFixedArityProcedure("PredefinedProcedures.isBytevector", 1));
+
+        for (String type : NATIVE_BYTEVECTOR_TYPES) {
+            String methodName = "bytevector" + Character.toUpperCase(type.charAt(0)) + type.substring(1) + "Native";
+            procedureMap.put(String.format("bytevector-%s-native-ref", type),
+                    createFixedArityProcedure("PredefinedProcedures." + methodName + "Ref", 2));
+            procedureMap.put(String.format("bytevector-%s-native-set!", type),
+                    createFixedArityProcedure("PredefinedProcedures." + methodName + "Set", 3));
+        }
+
+        procedureMap.put("+", createArithmeticProcedure("PredefinedProcedures.add"));
         procedureMap.put("-", createChainedProcedure("PredefinedProcedures.subtract", "PredefinedProcedures.negate"));
-        procedureMap.put("*", codeGenVisitor.createProcedure("PredefinedProcedures.multiply", "%s(new Object[]{%s})"));
-        procedureMap.put("quotient", codeGenVisitor.createProcedure("PredefinedProcedures.divide",
-                "%s(new Object[]{%s})"));
-        procedureMap.put("<", createComparisonProcedure(LESS_THAN));
-        procedureMap.put("<=", createComparisonProcedure(LESS_THAN, EQUAL));
-        procedureMap.put(">", createComparisonProcedure(GREATER_THAN));
-        procedureMap.put(">=", createComparisonProcedure(GREATER_THAN, EQUAL));
+        procedureMap.put("*", createArithmeticProcedure("PredefinedProcedures.multiply"));
+        procedureMap.put("quotient", expressions -> {
+            Util.checkExactArity(expressions.size(), 2);
+            return createArithmeticProcedure("PredefinedProcedures.divide").generateCode(expressions);
+        });
+        procedureMap.put("<", createComparisonProcedure("<", "PredefinedProcedures.lessThan"));
+        procedureMap.put("<=", createComparisonProcedure("<=", "PredefinedProcedures.lessThanOrEqual"));
+        procedureMap.put(">", createComparisonProcedure(">", "PredefinedProcedures.greaterThan"));
+        procedureMap.put(">=", createComparisonProcedure(">=", "PredefinedProcedures.greaterThanOrEqual"));
 
         procedureMap.put("equal?", expressions -> {
-            GeneratedCode.GeneratedCodeBuilder codeBuilder = new GeneratedCode.GeneratedCodeBuilder();
-
             if (expressions.size() == 2) {
-                String firstArgument = codeGenVisitor.expressionToCode().apply(expressions.get(0)).getGeneratedCode();
-                String secondArgument = codeGenVisitor.expressionToCode().apply(expressions.get(1)).getGeneratedCode();
-
-                codeBuilder.setGeneratedCode(String.format("java.util.Objects.equals(%s,%s)", firstArgument,
-                        secondArgument));
+                return codeGenVisitor.createProcedure("java.util.Objects.equals", "%s(%s)").generateCode(expressions);
             }
 
-            return codeBuilder;
+            return new GeneratedCode.GeneratedCodeBuilder();
         });
 
         return procedureMap;
     }
 
-    private CodeGenProcedure createListProcedure(String procedureName) {
+    private CodeGenProcedure createFixedArityProcedure(String procedureName, int arity) {
         return expressions -> {
-            GeneratedCode.GeneratedCodeBuilder codeBuilder = new GeneratedCode.GeneratedCodeBuilder();
-
-            if (expressions.size() == 1) {
-                if (expressions.get(0).application() != null) {
-                    String list = codeGenVisitor.visitApplication(expressions.get(0).application()).getGeneratedCode();
+            Util.checkExactArity(expressions.size(), arity);
+            return codeGenVisitor.createProcedure(procedureName, "%s(%s)").generateCode(expressions);
+        };
+    }
 
-                    codeBuilder.setGeneratedCode(String.format("%s.%s()", list, procedureName));
-                }
+    private CodeGenProcedure createVariableArityProcedure(String procedureName, int minimumArity,
+                                                          int maximumArity) {
+        return expressions -> {
+            if (expressions.size() < minimumArity || expressions.size() > maximumArity) {
+                String message = "Arguments count %d does not match expected arity of %d to %d";
+                throw new ParseCancellationException(String.format(message, expressions.size(), minimumArity,
+                        maximumArity));
             }
-
-            return codeBuilder;
+            return codeGenVisitor.createProcedure(procedureName, "%s(%s)").generateCode(expressions);
         };
     }
 
-    private CodeGenProcedure createComparisonProcedure(Integer... expectedResults) {
+    private CodeGenProcedure createComparisonProcedure(String operator, String chainProcedureName) {
         return expressions -> {
-            GeneratedCode.GeneratedCodeBuilder generatedCodeBuilder = new GeneratedCode.GeneratedCodeBuilder();
-            List<Integer> results = Arrays.asList(expectedResults);
-            List<String> comparisons = new ArrayList<>();
-
-            for (int current = 0; current < expressions.size() - 1; current++) {
-                int next = current + 1;
-                String compareTo = String.format("((BigInteger) %s).compareTo(%s)",
-                        codeGenVisitor.expressionToCode().apply(expressions.get(current)).getGeneratedCode(),
-                        codeGenVisitor.expressionToCode().apply(expressions.get(next)).getGeneratedCode());
-
-                String comparison = results
-                        .stream()
-                        .map(expectedResult -> String.format("%s == %d", compareTo, expectedResult))
-                        .collect(Collectors.joining("||"));
-
-                comparisons.add(comparison);
+            if (expressions.size() == 2) {
+                return codeGenVisitor.createProcedure("PredefinedProcedures.compare", "(%s(%s) " + operator + " 0)")
+                        .generateCode(expressions);
+            } else {
+                return codeGenVisitor.createProcedure(chainProcedureName, "%s(new Object[]{%s})")
+                        .generateCode(expressions);
             }
+        };
+    }
 
-            String completeComparison = comparisons
-                    .stream()
-                    .collect(Collectors.joining("&&", "(", ")"));
-
-            generatedCodeBuilder.setGeneratedCode(completeComparison);
-
-            return generatedCodeBuilder;
+    private CodeGenProcedure createArithmeticProcedure(String procedureName) {
+        return expressions -> {
+            if (expressions.size() >= 1 && expressions.size() <= MAXIMUM_FIXED_ARITY) {
+                return codeGenVisitor.createProcedure(procedureName, "%s(%s)").generateCode(expressions);
+            } else {
+                return codeGenVisitor.createProcedure(procedureName, "%s(new Object[]{%s})").generateCode(expressions);
+            }
         };
     }
 
     private CodeGenProcedure createChainedProcedure(String procedureName, String singleArgumentProcedure) {
         return expressions -> {
             if (expressions.size() == 1) {
-                return codeGenVisitor.createProcedure(singleArgumentProcedure,
-                        "%s(new Object[]{%s})").generateCode(expressions);
+                return codeGenVisitor.createProcedure(singleArgumentProcedure, "%s(%s)").generateCode(expressions);
             } else {
-                return codeGenVisitor.createProcedure(procedureName, "%s(new Object[]{%s})").generateCode(expressions);
+                return createArithmeticProcedure(procedureName).generateCode(expressions);
             }
         };
     }
@@ -0,0 +1,200 @@
+import java.util.*;
+import java.util.function.Predicate;
+
+public class TailCallAnalysis {
+
+    private final Map<String, SchemeParser.Procedure_definitionContext> procedureDefinitions;
+    private final Map<String, Set<String>> tailCallees = new HashMap<>();
+    private final Map<String, List<String>> groups = new HashMap<>();
+    private final Predicate<String> isPredefined;
+    private final Set<String> returningTailCalls = new HashSet<>();
+
+    private final Map<String, Integer> indices = new HashMap<>();
+    private final Map<String, Integer> lowLinks = new HashMap<>();
+    private final Deque<String> stack = new ArrayDeque<>();
+    private final Set<String> onStack = new HashSet<>();
+
+    public TailCallAnalysis(Map<String, SchemeParser.Procedure_definitionContext> procedureDefinitions,
+                            Predicate<String> isPredefined) {
+        this.procedureDefinitions = procedureDefinitions;
+        this.isPredefined = isPredefined;
+
+        for (Map.Entry<String, SchemeParser.Procedure_definitionContext> entry : procedureDefinitions.entrySet()) {
+            Set<String> callees = new LinkedHashSet<>();
+            List<SchemeParser.ExpressionContext> expressions = entry.getValue().expression();
+            collectTailCallees(expressions.get(expressions.size() - 1), callees);
+            tailCallees.put(entry.getKey(), callees);
+        }
+
+        for (String procedureName : procedureDefinitions.keySet()) {
+            if (!indices.containsKey(procedureName)) {
+                findGroups(procedureName);
+            }
+        }
+
+        boolean changed;
+        do {
+            changed = false;
+            for (Map.Entry<String, SchemeParser.Procedure_definitionContext> entry : procedureDefinitions.entrySet()) {
+                if (!returningTailCalls.contains(entry.getKey()) && mayReturnTailCall(entry.getValue())) {
+                    returningTailCalls.add(entry.getKey());
+                    changed = true;
+                }
+            }
+        } while (changed);
+    }
+
+    public static Map<String, SchemeParser.Procedure_definitionContext> collectProcedureDefinitions(
+            SchemeParser.ProgramContext program) {
+        Map<String, SchemeParser.Procedure_definitionContext> procedureDefinitions = new LinkedHashMap<>();
+        program.form()
+                .stream()
+                .map(SchemeParser.FormContext::definition)
+                .filter(definition -> Objects.nonNull(definition) && !CodeGenVisitor.isVariableDefinition(definition))
+                .map(SchemeParser.DefinitionContext::procedure_definition)
+                .forEach(procedureDefinition -> procedureDefinitions.put(
+                        procedureDefinition.proc_name().IDENTIFIER().getText(), procedureDefinition));
+
+        return procedureDefinitions;
+    }
+
+    public List<String> getGroup(String procedureName) {
+        return groups.getOrDefault(procedureName, Collections.emptyList());
+    }
+
+    /**
+     * Returns whether a call to the procedure may return a {@code runtime.TailCall} which the caller has to force,
+     * because the procedure calls a closure or a lambda in tail position.
+     */
+    public boolean mayReturnTailCall(String procedureName) {
+        return returningTailCalls.contains(procedureName);
+    }
+
+    /**
+     * Returns whether a call to the lambda may return a {@code runtime.TailCall}. Lambdas which do are not called
+     * directly from tail positions either, so that cycles of lambdas bounce through the caller instead of growing the
+     * stack. Tail calls of the lambda to itself, named {@code name}, are loops; {@code isVariable} tells which
+     * operators are bound in the enclosing scope.
+     */
+    public boolean mayReturnTailCall(SchemeParser.Lambda_expressionContext lambda, String name,
+                                     Predicate<String> isVariable) {
+        List<SchemeParser.ExpressionContext> expressions = lambda.expression();
+        return hasTailCall(expressions.get(expressions.size() - 1), new HashSet<>(LambdaAnalysis.getParamNames(lambda)),
+                name, isVariable);
+    }
+
+    private boolean mayReturnTailCall(SchemeParser.Procedure_definitionContext procedureDefinition) {
+        Set<String> boundNames = new HashSet<>();
+        procedureDefinition.param().forEach(param -> boundNames.add(param.IDENTIFIER().getText()));
+        procedureDefinition.definition().forEach(definition -> boundNames.add(
+                definition.variable_definition().IDENTIFIER().getText()));
+
+        List<SchemeParser.ExpressionContext> expressions = procedureDefinition.expression();
+        return hasTailCall(expressions.get(expressions.size() - 1), boundNames, null, name -> false);
+    }
+
+    private boolean hasTailCall(SchemeParser.ExpressionContext expression, Set<String> boundNames, String name,
+                                Predicate<String> isVariable) {
+        if (CodeGenVisitor.isLet(expression)) {
+            SchemeParser.Let_expressionContext let = expression.let_expression();
+            Set<String> bodyNames = new HashSet<>(boundNames);
+            let.binding().forEach(binding -> bodyNames.add(binding.IDENTIFIER().getText()));
+
+            List<SchemeParser.ExpressionContext> body = let.expression();
+            return hasTailCall(body.get(body.size() - 1), bodyNames, name, isVariable);
+        }
+        if (!CodeGenVisitor.isApplication(expression)) {
+            return false;
+        }
+
+        List<SchemeParser.ExpressionContext> expressions = expression.application().expression();
+        if (isIf(expression)) {
+            return expressions.stream()
+                    .skip(1)
+                    .anyMatch(branch -> hasTailCall(branch, boundNames, name, isVariable));
+        }
+
+        String identifier = expression.application().IDENTIFIER().getText();
+        if (boundNames.contains(identifier)) {
+            return true;
+        }
+        if (identifier.equals(name)) {
+            return false;
+        }
+        if (isVariable.test(identifier)) {
+            return true;
+        }
+        if (procedureDefinitions.containsKey(identifier)) {
+            return returningTailCalls.contains(identifier);
+        }
+
+        return !isPredefined.test(identifier);
+    }
+
+    public static boolean isIf(SchemeParser.ExpressionContext expression) {
+        return CodeGenVisitor.isApplication(expression)
+                && "if".equalsIgnoreCase(expression.application().IDENTIFIER().getText());
+    }
+
+    private void collectTailCallees(SchemeParser.ExpressionContext expression, Set<String> callees) {
+        if (CodeGenVisitor.isLet(expression)) {
+            List<SchemeParser.ExpressionContext> body = expression.let_expression().expression();
+            collectTailCallees(body.get(body.size() - 1), callees);
+            return;
+        }
+        if (!CodeGenVisitor.isApplication(expression)) {
+            return;
+        }
+
+        List<SchemeParser.ExpressionContext> expressions = expression.application().expression();
+        if (isIf(expression)) {
+            expressions.stream()
+                    .skip(1)
+                    .forEach(branch -> collectTailCallees(branch, callees));
+            return;
+        }
+
+        String identifier = expression.application().IDENTIFIER().getText();
+        if (procedureDefinitions.containsKey(identifier)) {
+            callees.add(identifier);
+        }
+    }
+
+    private void findGroups(String procedureName) {
+        indices.put(procedureName, indices.size());
+        lowLinks.put(procedureName, indices.get(procedureName));
+        stack.push(procedureName);
+        onStack.add(procedureName);
+
+        for (String callee : tailCallees.get(procedureName)) {
+            if (!indices.containsKey(callee)) {
+                findGroups(callee);
+                lowLinks.put(procedureName, Math.min(lowLinks.get(procedureName), lowLinks.get(callee)));
+            } else if (onStack.contains(callee)) {
+                lowLinks.put(procedureName, Math.min(lowLinks.get(procedureName), indices.get(callee)));
+            }
+        }
+
+        if (!lowLinks.get(procedureName).equals(indices.get(procedureName))) {
+            return;
+        }
+
+        Set<String> component = new HashSet<>();
+        String member;
+        do {
+            member = stack.pop();
+            onStack.remove(member);
+            component.add(member);
+        } while (!member.equals(procedureName));
+
+        if (component.size() > 1 || tailCallees.get(procedureName).contains(procedureName)) {
+            List<String> group = new ArrayList<>();
+            procedureDefinitions.keySet()
+                    .stream()
+                    .filter(component::contains)
+                    .forEach(group::add);
+            group.forEach(groupMember -> groups.put(groupMember, group));
+        }
+    }
+
+}
@@ -2,7 +2,7 @@ import org.antlr.v4.runtime.misc.ParseCancellationException;
 
 public class VariableDefinition {
 
-    private static final String INTEGER_CONSTANT_VAR_DEFINITION = "static BigInteger %s = %s";
+    private static final String INTEGER_CONSTANT_VAR_DEFINITION = "static Number %s = %s";
     private static final String CHAR_CONSTANT_VAR_DEFINITION = "static Character %s = %s";
     private static final String STRING_CONSTANT_VAR_DEFINITION = "static String %s = %s";
     private static final String BOOLEAN_CONSTANT_VAR_DEFINITION = "static Boolean %s = %s";
@@ -18,8 +18,8 @@ public class VariableDefinition {
         this.value = value;
     }
 
-    public static VariableDefinition createForBigInteger(String identifier, String value) {
-        return new VariableDefinition(VariableType.BIG_INTEGER, identifier, value);
+    public static VariableDefinition createForInteger(String identifier, String value) {
+        return new VariableDefinition(VariableType.INTEGER, identifier, value);
     }
 
     public static VariableDefinition createForChar(String identifier, String value) {
@@ -39,7 +39,7 @@ public class VariableDefinition {
         String template;
 
         switch (type) {
-            case BIG_INTEGER:
+            case INTEGER:
                 template = INTEGER_CONSTANT_VAR_DEFINITION;
                 break;
             case CHAR:
@@ -67,7 +67,7 @@ public class VariableDefinition {
     }
 
     private enum VariableType {
-        BIG_INTEGER, CHAR, STRING, BOOLEAN
+        INTEGER, CHAR, STRING, BOOLEAN
     }
 
 }
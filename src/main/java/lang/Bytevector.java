@@ -0,0 +1,190 @@
+package lang;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+public class Bytevector {
+
+    private static final int SEGMENT_SHIFT = 30;
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+    private static final long SEGMENT_MASK = SEGMENT_SIZE - 1;
+    private static final int FILL_CHUNK_SIZE = 8192;
+
+    private final ByteBuffer[] segments;
+    private final long length;
+
+    private Bytevector(ByteBuffer[] segments, long length) {
+        this.segments = segments;
+        this.length = length;
+        for (ByteBuffer segment : segments) {
+            segment.order(ByteOrder.nativeOrder());
+        }
+    }
+
+    public static Bytevector allocate(long length) {
+        ByteBuffer[] segments = new ByteBuffer[getSegmentCount(length)];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = ByteBuffer.allocateDirect(getSegmentLength(length, i));
+        }
+
+        return new Bytevector(segments, length);
+    }
+
+    public static Bytevector map(String path, boolean isWritable) throws IOException {
+        StandardOpenOption[] options = isWritable ?
+                new StandardOpenOption[]{StandardOpenOption.READ, StandardOpenOption.WRITE} :
+                new StandardOpenOption[]{StandardOpenOption.READ};
+        FileChannel.MapMode mode = isWritable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY;
+
+        try (FileChannel channel = FileChannel.open(Paths.get(path), options)) {
+            long length = channel.size();
+            ByteBuffer[] segments = new ByteBuffer[getSegmentCount(length)];
+            for (int i = 0; i < segments.length; i++) {
+                segments[i] = channel.map(mode, (long) i << SEGMENT_SHIFT, getSegmentLength(length, i));
+            }
+
+            return new Bytevector(segments, length);
+        }
+    }
+
+    public long length() {
+        return length;
+    }
+
+    public int get(long index) {
+        return segments[(int) (index >>> SEGMENT_SHIFT)].get((int) (index & SEGMENT_MASK)) & 0xFF;
+    }
+
+    public void set(long index, int value) {
+        segments[(int) (index >>> SEGMENT_SHIFT)].put((int) (index & SEGMENT_MASK), (byte) value);
+    }
+
+    public void fill(int value) {
+        byte[] chunk = new byte[(int) Math.min(FILL_CHUNK_SIZE, length)];
+        Arrays.fill(chunk, (byte) value);
+        for (ByteBuffer segment : segments) {
+            ByteBuffer target = segment.duplicate();
+            while (target.hasRemaining()) {
+                target.put(chunk, 0, Math.min(chunk.length, target.remaining()));
+            }
+        }
+    }
+
+    public long getNative(long index, int size, boolean isSigned) {
+        int offset = (int) (index & SEGMENT_MASK);
+        ByteBuffer segment = segments[(int) (index >>> SEGMENT_SHIFT)];
+
+        long value;
+        if (offset + size > segment.limit()) {
+            value = 0;
+            for (int i = 0; i < size; i++) {
+                value |= (long) get(index + i) << (8 * getByteShift(i, size));
+            }
+        } else if (size == Short.BYTES) {
+            value = segment.getShort(offset) & 0xFFFFL;
+        } else if (size == Integer.BYTES) {
+            value = segment.getInt(offset) & 0xFFFFFFFFL;
+        } else {
+            return segment.getLong(offset);
+        }
+
+        int unusedBits = Long.SIZE - 8 * size;
+        return isSigned ? value << unusedBits >> unusedBits : value;
+    }
+
+    public void setNative(long index, int size, long value) {
+        int offset = (int) (index & SEGMENT_MASK);
+        ByteBuffer segment = segments[(int) (index >>> SEGMENT_SHIFT)];
+
+        if (offset + size > segment.limit()) {
+            for (int i = 0; i < size; i++) {
+                set(index + i, (int) (value >>> (8 * getByteShift(i, size))));
+            }
+        } else if (size == Short.BYTES) {
+            segment.putShort(offset, (short) value);
+        } else if (size == Integer.BYTES) {
+            segment.putInt(offset, (int) value);
+        } else {
+            segment.putLong(offset, value);
+        }
+    }
+
+    public static void copy(Bytevector target, long at, Bytevector source, long start, long end) {
+        if (target == source && at > start && at < end) {
+            for (long index = end - 1; index >= start; index--) {
+                target.set(at + index - start, source.get(index));
+            }
+            return;
+        }
+
+        long index = start;
+        while (index < end) {
+            ByteBuffer sourceSegment = source.slice(index, end);
+            ByteBuffer targetSegment = target.slice(at + index - start, at + end - start);
+            int count = Math.min(sourceSegment.remaining(), targetSegment.remaining());
+
+            sourceSegment.limit(sourceSegment.position() + count);
+            targetSegment.put(sourceSegment);
+            index += count;
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        Bytevector that = (Bytevector) o;
+        if (length != that.length) {
+            return false;
+        }
+        for (int i = 0; i < segments.length; i++) {
+            if (!segments[i].equals(that.segments[i])) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int hashCode = 1;
+        for (ByteBuffer segment : segments) {
+            hashCode = 31 * hashCode + segment.hashCode();
+        }
+
+        return hashCode;
+    }
+
+    private ByteBuffer slice(long start, long end) {
+        ByteBuffer segment = segments[(int) (start >>> SEGMENT_SHIFT)].duplicate();
+        int offset = (int) (start & SEGMENT_MASK);
+        segment.position(offset);
+        segment.limit((int) Math.min(segment.limit(), offset + end - start));
+
+        return segment;
+    }
+
+    private static int getByteShift(int byteIndex, int size) {
+        return ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN ? byteIndex : size - 1 - byteIndex;
+    }
+
+    private static int getSegmentCount(long length) {
+        return (int) ((length + SEGMENT_SIZE - 1) >>> SEGMENT_SHIFT);
+    }
+
+    private static int getSegmentLength(long length, int segment) {
+        return (int) Math.min(SEGMENT_SIZE, length - ((long) segment << SEGMENT_SHIFT));
+    }
+
+}
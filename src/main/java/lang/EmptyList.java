@@ -0,0 +1,15 @@
+package lang;
+
+public final class EmptyList {
+
+    public static final EmptyList INSTANCE = new EmptyList();
+
+    private EmptyList() {
+    }
+
+    @Override
+    public String toString() {
+        return "()";
+    }
+
+}
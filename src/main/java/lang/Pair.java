@@ -0,0 +1,116 @@
+package lang;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+
+public class Pair {
+
+    private Object car;
+    private Object cdr;
+
+    public Pair(Object car, Object cdr) {
+        this.car = car;
+        this.cdr = cdr;
+    }
+
+    public static Object fromElements(Object[] elements) {
+        Object list = EmptyList.INSTANCE;
+        for (int i = elements.length - 1; i >= 0; i--) {
+            list = new Pair(elements[i], list);
+        }
+
+        return list;
+    }
+
+    public Object car() {
+        return car;
+    }
+
+    public Object cdr() {
+        return cdr;
+    }
+
+    public void setCar(Object car) {
+        this.car = car;
+    }
+
+    public void setCdr(Object cdr) {
+        this.cdr = cdr;
+    }
+
+    public List<Object> getElements() {
+        List<Object> elements = new ArrayList<>();
+        Object current = this;
+        while (current instanceof Pair) {
+            elements.add(((Pair) current).car);
+            current = ((Pair) current).cdr;
+        }
+
+        return elements;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof Pair)) {
+            return false;
+        }
+
+        Deque<Pair> pending = new ArrayDeque<>();
+        pending.push((Pair) o);
+        pending.push(this);
+        while (!pending.isEmpty()) {
+            Object left = pending.pop();
+            Object right = pending.pop();
+            while (left instanceof Pair && right instanceof Pair && left != right) {
+                Pair leftPair = (Pair) left;
+                Pair rightPair = (Pair) right;
+                if (leftPair.car instanceof Pair && rightPair.car instanceof Pair) {
+                    pending.push((Pair) rightPair.car);
+                    pending.push((Pair) leftPair.car);
+                } else if (!isEqualAtom(leftPair.car, rightPair.car)) {
+                    return false;
+                }
+
+                left = leftPair.cdr;
+                right = rightPair.cdr;
+            }
+
+            if (left != right && !isEqualAtom(left, right)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int hashCode = 1;
+        Deque<Pair> pending = new ArrayDeque<>();
+        pending.push(this);
+        while (!pending.isEmpty()) {
+            Object current = pending.pop();
+            while (current instanceof Pair) {
+                Object car = ((Pair) current).car;
+                if (car instanceof Pair) {
+                    pending.push((Pair) car);
+                } else {
+                    hashCode = 31 * hashCode + Objects.hashCode(car);
+                }
+                current = ((Pair) current).cdr;
+            }
+
+            hashCode = 31 * hashCode + Objects.hashCode(current);
+        }
+
+        return hashCode;
+    }
+
+    private static boolean isEqualAtom(Object left, Object right) {
+        return !(left instanceof Pair) && !(right instanceof Pair) && Objects.equals(left, right);
+    }
+
+}
@@ -0,0 +1,122 @@
+package lang;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+public class VectorWrapper {
+
+    private Object[] objects;
+    private long[] fixnums;
+
+    private VectorWrapper(Object[] objects, long[] fixnums) {
+        this.objects = objects;
+        this.fixnums = fixnums;
+    }
+
+    public static VectorWrapper fromElements(Object[] elements) {
+        long[] fixnums = new long[elements.length];
+        for (int i = 0; i < elements.length; i++) {
+            if (!(elements[i] instanceof Long)) {
+                return new VectorWrapper(elements, null);
+            }
+            fixnums[i] = (Long) elements[i];
+        }
+
+        return new VectorWrapper(null, fixnums);
+    }
+
+    public static VectorWrapper withLength(int length, Object fill) {
+        if (fill instanceof Long) {
+            long[] fixnums = new long[length];
+            Arrays.fill(fixnums, (Long) fill);
+            return new VectorWrapper(null, fixnums);
+        }
+
+        Object[] objects = new Object[length];
+        Arrays.fill(objects, fill);
+        return new VectorWrapper(objects, null);
+    }
+
+    public boolean isFixnumVector() {
+        return fixnums != null;
+    }
+
+    public int length() {
+        return fixnums != null ? fixnums.length : objects.length;
+    }
+
+    public Object get(int index) {
+        return fixnums != null ? Long.valueOf(fixnums[index]) : objects[index];
+    }
+
+    public void set(int index, Object value) {
+        if (fixnums != null) {
+            if (value instanceof Long) {
+                fixnums[index] = (Long) value;
+                return;
+            }
+            generalize();
+        }
+        objects[index] = value;
+    }
+
+    public void fill(Object value) {
+        if (value instanceof Long) {
+            if (fixnums == null) {
+                fixnums = new long[objects.length];
+                objects = null;
+            }
+            Arrays.fill(fixnums, (Long) value);
+        } else {
+            if (objects == null) {
+                objects = new Object[fixnums.length];
+                fixnums = null;
+            }
+            Arrays.fill(objects, value);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        VectorWrapper that = (VectorWrapper) o;
+        if (fixnums != null && that.fixnums != null) {
+            return Arrays.equals(fixnums, that.fixnums);
+        }
+        if (length() != that.length()) {
+            return false;
+        }
+        for (int i = 0; i < length(); i++) {
+            if (!Objects.equals(get(i), that.get(i))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int hashCode = 1;
+        for (int i = 0; i < length(); i++) {
+            hashCode = 31 * hashCode + (fixnums != null ? Long.hashCode(fixnums[i]) : Objects.hashCode(objects[i]));
+        }
+
+        return hashCode;
+    }
+
+    private void generalize() {
+        objects = new Object[fixnums.length];
+        for (int i = 0; i < fixnums.length; i++) {
+            objects[i] = fixnums[i];
+        }
+        fixnums = null;
+    }
+
+}
@@ -0,0 +1,119 @@
+package runtime;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+public class Closure {
+
+    private final MethodHandle target;
+
+    private Closure(MethodHandle target) {
+        this.target = target;
+    }
+
+    public static MethodHandle findMethod(MethodHandles.Lookup lookup, String name, int parameterCount) {
+        try {
+            return lookup.findStatic(lookup.lookupClass(), name, MethodType.genericMethodType(parameterCount));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalStateException(String.format("Could not find procedure '%s'", name), e);
+        }
+    }
+
+    public static Closure create(MethodHandle method, Object[] freeVariables) {
+        return new Closure(MethodHandles.insertArguments(method, 0, freeVariables));
+    }
+
+    public static Object apply(Object closure) {
+        try {
+            return TailCall.force((Object) getTarget(closure, 0).invokeExact());
+        } catch (Throwable throwable) {
+            throw rethrow(throwable);
+        }
+    }
+
+    public static Object apply(Object closure, Object first) {
+        try {
+            return TailCall.force((Object) getTarget(closure, 1).invokeExact(first));
+        } catch (Throwable throwable) {
+            throw rethrow(throwable);
+        }
+    }
+
+    public static Object apply(Object closure, Object first, Object second) {
+        try {
+            return TailCall.force((Object) getTarget(closure, 2).invokeExact(first, second));
+        } catch (Throwable throwable) {
+            throw rethrow(throwable);
+        }
+    }
+
+    public static Object apply(Object closure, Object first, Object second, Object third) {
+        try {
+            return TailCall.force((Object) getTarget(closure, 3).invokeExact(first, second, third));
+        } catch (Throwable throwable) {
+            throw rethrow(throwable);
+        }
+    }
+
+    public static Object apply(Object closure, Object[] arguments) {
+        try {
+            return TailCall.force(getTarget(closure, arguments.length).invokeWithArguments(arguments));
+        } catch (Throwable throwable) {
+            throw rethrow(throwable);
+        }
+    }
+
+    public static Object tailApply(Object closure) {
+        return TailCall.create(getTarget(closure, 0), new Object[0]);
+    }
+
+    public static Object tailApply(Object closure, Object first) {
+        return TailCall.create(getTarget(closure, 1), new Object[]{first});
+    }
+
+    public static Object tailApply(Object closure, Object first, Object second) {
+        return TailCall.create(getTarget(closure, 2), new Object[]{first, second});
+    }
+
+    public static Object tailApply(Object closure, Object first, Object second, Object third) {
+        return TailCall.create(getTarget(closure, 3), new Object[]{first, second, third});
+    }
+
+    public static Object tailApply(Object closure, Object[] arguments) {
+        return TailCall.create(getTarget(closure, arguments.length), arguments);
+    }
+
+    private static MethodHandle getTarget(Object closure, int argumentCount) {
+        if (!(closure instanceof Closure)) {
+            throw new IllegalArgumentException(String.format("Attempt to apply non-procedure '%s'",
+                    OutputFormatter.output(closure)));
+        }
+
+        MethodHandle target = ((Closure) closure).target;
+        if (target.type().parameterCount() != argumentCount) {
+            String message = "Arguments count %d does not match expected arity of %d";
+            throw new IllegalArgumentException(String.format(message, argumentCount,
+                    target.type().parameterCount()));
+        }
+
+        return target;
+    }
+
+    static RuntimeException rethrow(Throwable throwable) {
+        if (throwable instanceof RuntimeException) {
+            return (RuntimeException) throwable;
+        }
+        if (throwable instanceof Error) {
+            throw (Error) throwable;
+        }
+
+        return new IllegalStateException(throwable);
+    }
+
+    @Override
+    public String toString() {
+        return "#<procedure>";
+    }
+
+}
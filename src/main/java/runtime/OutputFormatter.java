@@ -1,12 +1,49 @@
 package runtime;
 
-import lang.ListWrapper;
+import lang.Bytevector;
+import lang.EmptyList;
+import lang.Pair;
+import lang.VectorWrapper;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigInteger;
-import java.util.List;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
 
 public class OutputFormatter {
 
+    private static final int OTHER = 0;
+    private static final int BOOLEAN = 1;
+    private static final int CHARACTER = 2;
+    private static final int STRING = 3;
+    private static final int FIXNUM = 4;
+    private static final int BIGNUM = 5;
+    private static final int PAIR = 6;
+    private static final int EMPTY_LIST = 7;
+    private static final int PROCEDURE = 8;
+    private static final int VECTOR = 9;
+    private static final int BYTEVECTOR = 10;
+    private static final Object CLOSE_LIST = new Object();
+    private static final Object NEXT_VECTOR_ELEMENT = new Object();
+    private static final Object END_OF_OUTPUT = new Object();
+    private static final Map<Class<?>, Integer> TYPE_CODES = new HashMap<>();
+
+    static {
+        TYPE_CODES.put(Boolean.class, BOOLEAN);
+        TYPE_CODES.put(Character.class, CHARACTER);
+        TYPE_CODES.put(String.class, STRING);
+        TYPE_CODES.put(Long.class, FIXNUM);
+        TYPE_CODES.put(BigInteger.class, BIGNUM);
+        TYPE_CODES.put(Pair.class, PAIR);
+        TYPE_CODES.put(EmptyList.class, EMPTY_LIST);
+        TYPE_CODES.put(Closure.class, PROCEDURE);
+        TYPE_CODES.put(VectorWrapper.class, VECTOR);
+        TYPE_CODES.put(Bytevector.class, BYTEVECTOR);
+    }
+
     public static String output(Boolean value) {
         return value ? "#t" : "#f";
     }
@@ -23,42 +60,159 @@ public class OutputFormatter {
         return string;
     }
 
+    public static String output(Long fixnum) {
+        return String.valueOf(fixnum);
+    }
+
     public static String output(BigInteger bigInteger) {
         return String.valueOf(bigInteger);
     }
 
     public static String output(Object object) {
-        if (object instanceof Boolean) {
-            return output((boolean) object);
-        } else if (object instanceof Character) {
-            return output((char) object);
-        } else if (object instanceof String) {
-            return output((String) object);
-        } else if (object instanceof BigInteger) {
-            return output((BigInteger) object);
-        } else if (object instanceof ListWrapper) {
-            return output((ListWrapper) object);
+        StringBuilder output = new StringBuilder();
+        try {
+            print(object, output);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
 
-        return "";
+        return output.toString();
     }
 
-    public static String output(ListWrapper listWrapper) {
-        StringBuilder output = new StringBuilder();
+    public static String output(Pair pair) {
+        return output((Object) pair);
+    }
 
-        output.append("(");
-        List<Object> elements = listWrapper.getElements();
-        for (int i = 0; i < elements.size(); i++) {
-            Object element = elements.get(i);
-            output.append(output(element));
+    public static void print(Object object, Appendable output) throws IOException {
+        Deque<Object> pending = new ArrayDeque<>();
+        Object current = object;
+        while (true) {
+            switch (getTypeCode(current)) {
+                case PAIR:
+                    Pair pair = (Pair) current;
+                    output.append('(');
+                    pending.push(pair.cdr());
+                    current = pair.car();
+                    continue;
+                case VECTOR:
+                    VectorWrapper vector = (VectorWrapper) current;
+                    output.append("#(");
+                    if (vector.length() > 0) {
+                        pending.push(1);
+                        pending.push(vector);
+                        pending.push(NEXT_VECTOR_ELEMENT);
+                        current = vector.get(0);
+                        continue;
+                    }
+                    output.append(')');
+                    break;
+                default:
+                    printAtom(current, output);
+                    break;
+            }
 
-            if (i < elements.size() - 1) {
-                output.append(" ");
+            current = next(pending, output);
+            if (current == END_OF_OUTPUT) {
+                return;
             }
         }
-        output.append(")");
+    }
 
-        return output.toString();
+    private static Object next(Deque<Object> pending, Appendable output) throws IOException {
+        while (!pending.isEmpty()) {
+            Object tail = pending.pop();
+            if (tail == CLOSE_LIST) {
+                output.append(')');
+            } else if (tail == NEXT_VECTOR_ELEMENT) {
+                VectorWrapper vector = (VectorWrapper) pending.pop();
+                int index = (Integer) pending.pop();
+                if (index < vector.length()) {
+                    output.append(' ');
+                    pending.push(index + 1);
+                    pending.push(vector);
+                    pending.push(NEXT_VECTOR_ELEMENT);
+                    return vector.get(index);
+                }
+                output.append(')');
+            } else {
+                switch (getTypeCode(tail)) {
+                    case PAIR:
+                        Pair pair = (Pair) tail;
+                        output.append(' ');
+                        pending.push(pair.cdr());
+                        return pair.car();
+                    case EMPTY_LIST:
+                        output.append(')');
+                        break;
+                    default:
+                        output.append(" . ");
+                        pending.push(CLOSE_LIST);
+                        return tail;
+                }
+            }
+        }
+
+        return END_OF_OUTPUT;
+    }
+
+    private static void printAtom(Object object, Appendable output) throws IOException {
+        switch (getTypeCode(object)) {
+            case BOOLEAN:
+                output.append((Boolean) object ? "#t" : "#f");
+                break;
+            case CHARACTER:
+                output.append((Character) object);
+                break;
+            case STRING:
+                output.append((String) object);
+                break;
+            case FIXNUM:
+                printFixnum((Long) object, output);
+                break;
+            case BIGNUM:
+                output.append(object.toString());
+                break;
+            case EMPTY_LIST:
+                output.append("()");
+                break;
+            case PROCEDURE:
+                output.append(object.toString());
+                break;
+            case BYTEVECTOR:
+                Bytevector bytevector = (Bytevector) object;
+                output.append("#u8(");
+                for (long i = 0; i < bytevector.length(); i++) {
+                    if (i > 0) {
+                        output.append(' ');
+                    }
+                    printFixnum(bytevector.get(i), output);
+                }
+                output.append(')');
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static void printFixnum(long value, Appendable output) throws IOException {
+        long magnitude = value;
+        if (value < 0) {
+            output.append('-');
+        } else {
+            magnitude = -value;
+        }
+
+        long divisor = 1;
+        while (magnitude / divisor <= -10) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            output.append((char) ('0' - magnitude / divisor % 10));
+        }
+    }
+
+    private static int getTypeCode(Object object) {
+        return object == null ? OTHER : TYPE_CODES.getOrDefault(object.getClass(), OTHER);
     }
 
 }
@@ -0,0 +1,208 @@
+package runtime;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+public class OutputPort implements Appendable {
+
+    public static final String FLUSH_POLICY_PROPERTY = "bytescheme.output.flush";
+    public static final String FLUSH_SIZE_PROPERTY = "bytescheme.output.flushSize";
+    public static final String FLUSH_ON_EXIT = "exit";
+    public static final String FLUSH_ON_NEWLINE = "newline";
+    public static final String FLUSH_BY_SIZE = "size";
+
+    private static final int CHARACTER_BUFFER_SIZE = 8192;
+    private static final int BYTE_BUFFER_SIZE = 65536;
+    private static final int DEFAULT_FLUSH_SIZE = 8192;
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    private static volatile OutputPort current;
+
+    private final WritableByteChannel channel;
+    private final CharsetEncoder encoder = Charset.defaultCharset()
+            .newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final CharBuffer characters = CharBuffer.allocate(CHARACTER_BUFFER_SIZE);
+    private final ByteBuffer bytes = ByteBuffer.allocate(BYTE_BUFFER_SIZE);
+    private final boolean isFlushingOnNewline;
+    private final int flushSize;
+
+    public OutputPort(WritableByteChannel channel, String flushPolicy, int flushSize) {
+        if (flushSize < 1) {
+            throw new IllegalArgumentException(String.format("Invalid flush size %d", flushSize));
+        }
+
+        this.channel = channel;
+        switch (flushPolicy) {
+            case FLUSH_ON_EXIT:
+                this.isFlushingOnNewline = false;
+                this.flushSize = BYTE_BUFFER_SIZE;
+                break;
+            case FLUSH_ON_NEWLINE:
+                this.isFlushingOnNewline = true;
+                this.flushSize = BYTE_BUFFER_SIZE;
+                break;
+            case FLUSH_BY_SIZE:
+                this.isFlushingOnNewline = false;
+                this.flushSize = Math.min(flushSize, BYTE_BUFFER_SIZE);
+                break;
+            default:
+                throw new IllegalArgumentException(String.format("Unknown flush policy '%s'", flushPolicy));
+        }
+    }
+
+    public static OutputPort open(OutputStream stream, String flushPolicy) {
+        return new OutputPort(Channels.newChannel(stream), flushPolicy, DEFAULT_FLUSH_SIZE);
+    }
+
+    public static OutputPort getCurrent() {
+        OutputPort port = current;
+        return port != null ? port : openStandardOutput();
+    }
+
+    public static synchronized void setCurrent(OutputPort port) {
+        current = port;
+    }
+
+    public static Object display(Object object) {
+        OutputPort port = getCurrent();
+        synchronized (port) {
+            try {
+                OutputFormatter.print(object, port);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            port.writeNewline();
+        }
+
+        return null;
+    }
+
+    public static Object display(boolean value) {
+        return display((Object) value);
+    }
+
+    public static Object writeString(Object string) {
+        if (!(string instanceof String)) {
+            throw new IllegalArgumentException(String.format("The object '%s', passed as the first argument to " +
+                    "write-string, is not a string", OutputFormatter.output(string)));
+        }
+        getCurrent().write((String) string);
+
+        return null;
+    }
+
+    public static Object newline() {
+        getCurrent().writeNewline();
+
+        return null;
+    }
+
+    public void write(String string) {
+        append(string, 0, string.length());
+    }
+
+    @Override
+    public synchronized OutputPort append(CharSequence sequence) {
+        return append(sequence, 0, sequence.length());
+    }
+
+    @Override
+    public synchronized OutputPort append(CharSequence sequence, int start, int end) {
+        int position = start;
+        while (position < end) {
+            int count = Math.min(characters.remaining(), end - position);
+            if (sequence instanceof String) {
+                characters.put((String) sequence, position, position + count);
+            } else {
+                for (int i = position; i < position + count; i++) {
+                    characters.put(sequence.charAt(i));
+                }
+            }
+            position += count;
+
+            if (!characters.hasRemaining()) {
+                encode();
+            }
+        }
+        flushIfFull();
+
+        return this;
+    }
+
+    @Override
+    public synchronized OutputPort append(char character) {
+        if (!characters.hasRemaining()) {
+            encode();
+        }
+        characters.put(character);
+        flushIfFull();
+
+        return this;
+    }
+
+    public synchronized void writeNewline() {
+        write(LINE_SEPARATOR);
+
+        if (isFlushingOnNewline) {
+            flush();
+        }
+    }
+
+    public synchronized void flush() {
+        encode();
+        drain();
+    }
+
+    private static synchronized OutputPort openStandardOutput() {
+        if (current == null) {
+            OutputPort standardOutput = new OutputPort(new FileOutputStream(FileDescriptor.out).getChannel(),
+                    System.getProperty(FLUSH_POLICY_PROPERTY, FLUSH_ON_EXIT),
+                    Integer.getInteger(FLUSH_SIZE_PROPERTY, DEFAULT_FLUSH_SIZE));
+            Runtime.getRuntime().addShutdownHook(new Thread(standardOutput::flush));
+            current = standardOutput;
+        }
+
+        return current;
+    }
+
+    private void flushIfFull() {
+        if (bytes.position() + characters.position() >= flushSize) {
+            flush();
+        }
+    }
+
+    private void encode() {
+        characters.flip();
+        while (encoder.encode(characters, bytes, false) == CoderResult.OVERFLOW) {
+            drain();
+        }
+        characters.compact();
+    }
+
+    private void drain() {
+        bytes.flip();
+        try {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            bytes.clear();
+        }
+    }
+
+}
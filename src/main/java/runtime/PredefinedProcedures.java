@@ -1,44 +1,466 @@
 package runtime;
 
+import lang.Bytevector;
+import lang.EmptyList;
+import lang.Pair;
+import lang.VectorWrapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigInteger;
-import java.util.Arrays;
 
 public class PredefinedProcedures {
 
-    public static BigInteger add(Object[] arguments) {
-        BigInteger sum = BigInteger.ZERO;
+    private static final Long ZERO = 0L;
+    private static final Long ONE = 1L;
+    private static final BigInteger TWO_TO_THE_64 = BigInteger.ONE.shiftLeft(Long.SIZE);
+
+    public static Number add(Object[] arguments) {
+        Number sum = ZERO;
         for (Object argument : arguments) {
-            java.math.BigInteger argumentAsBigInteger = (BigInteger) argument;
-            sum = sum.add(argumentAsBigInteger);
+            sum = add(sum, argument);
         }
 
         return sum;
     }
 
-    public static BigInteger subtract(Object[] arguments) {
-        BigInteger firstArgument = (BigInteger) arguments[0];
-        return firstArgument.subtract(add(Arrays.copyOfRange(arguments, 1, arguments.length)));
+    public static Number add(Object argument) {
+        return (Number) argument;
+    }
+
+    public static Number add(Object first, Object second, Object third) {
+        return add(add(first, second), third);
+    }
+
+    public static Number add(Object first, Object second) {
+        if (first instanceof Long && second instanceof Long) {
+            long x = (Long) first;
+            long y = (Long) second;
+            long sum = x + y;
+            if (((x ^ sum) & (y ^ sum)) >= 0) {
+                return sum;
+            }
+        }
+
+        return normalize(toBigInteger(first).add(toBigInteger(second)));
+    }
+
+    public static Number subtract(Object[] arguments) {
+        Number difference = (Number) arguments[0];
+        for (int i = 1; i < arguments.length; i++) {
+            difference = subtract(difference, arguments[i]);
+        }
+
+        return difference;
+    }
+
+    public static Number subtract(Object first, Object second, Object third) {
+        return subtract(subtract(first, second), third);
     }
 
-    public static BigInteger negate(Object[] arguments) {
-        return ((BigInteger) arguments[0]).negate();
+    public static Number subtract(Object first, Object second) {
+        if (first instanceof Long && second instanceof Long) {
+            long x = (Long) first;
+            long y = (Long) second;
+            long difference = x - y;
+            if (((x ^ y) & (x ^ difference)) >= 0) {
+                return difference;
+            }
+        }
+
+        return normalize(toBigInteger(first).subtract(toBigInteger(second)));
+    }
+
+    public static Number negate(Object[] arguments) {
+        return negate(arguments[0]);
+    }
+
+    public static Number negate(Object argument) {
+        if (argument instanceof Long && (Long) argument != Long.MIN_VALUE) {
+            return -(Long) argument;
+        }
+
+        return normalize(toBigInteger(argument).negate());
     }
 
-    public static BigInteger multiply(Object[] arguments) {
-        BigInteger product = BigInteger.ONE;
+    public static Number multiply(Object[] arguments) {
+        Number product = ONE;
         for (Object argument : arguments) {
-            java.math.BigInteger argumentAsBigInteger = (BigInteger) argument;
-            product = product.multiply(argumentAsBigInteger);
+            product = multiply(product, argument);
         }
 
         return product;
     }
 
-    public static BigInteger divide(Object[] arguments) {
-        BigInteger firstArgument = (BigInteger) arguments[0];
-        BigInteger secondArgument = (BigInteger) arguments[1];
+    public static Number multiply(Object argument) {
+        return (Number) argument;
+    }
+
+    public static Number multiply(Object first, Object second, Object third) {
+        return multiply(multiply(first, second), third);
+    }
+
+    public static Number multiply(Object first, Object second) {
+        if (first instanceof Long && second instanceof Long) {
+            long x = (Long) first;
+            long y = (Long) second;
+            long product = x * y;
+            long absoluteX = Math.abs(x);
+            long absoluteY = Math.abs(y);
+            if ((absoluteX | absoluteY) >>> 31 == 0
+                    || (y == 0 || product / y == x) && !(x == Long.MIN_VALUE && y == -1)) {
+                return product;
+            }
+        }
+
+        return normalize(toBigInteger(first).multiply(toBigInteger(second)));
+    }
+
+    public static Number divide(Object[] arguments) {
+        return divide(arguments[0], arguments[1]);
+    }
+
+    public static Number divide(Object first, Object second) {
+        if (first instanceof Long && second instanceof Long) {
+            long x = (Long) first;
+            long y = (Long) second;
+            if (!(x == Long.MIN_VALUE && y == -1)) {
+                return x / y;
+            }
+        }
+
+        return normalize(toBigInteger(first).divide(toBigInteger(second)));
+    }
+
+    public static int compare(Object first, Object second) {
+        if (first instanceof Long && second instanceof Long) {
+            return Long.compare((Long) first, (Long) second);
+        }
+
+        return toBigInteger(first).compareTo(toBigInteger(second));
+    }
+
+    public static boolean lessThan(Object[] operands) {
+        return isOrdered(operands, -1, -1);
+    }
+
+    public static boolean lessThanOrEqual(Object[] operands) {
+        return isOrdered(operands, -1, 0);
+    }
+
+    public static boolean greaterThan(Object[] operands) {
+        return isOrdered(operands, 1, 1);
+    }
+
+    public static boolean greaterThanOrEqual(Object[] operands) {
+        return isOrdered(operands, 0, 1);
+    }
+
+    public static Number normalize(BigInteger value) {
+        if (value.bitLength() < Long.SIZE) {
+            return value.longValue();
+        }
+
+        return value;
+    }
+
+    /**
+     * Returns its second argument. Generated code uses it to evaluate a binding or a discarded body expression
+     * before the rest of a let form without leaving the enclosing expression.
+     */
+    public static Object sequence(Object first, Object second) {
+        return second;
+    }
+
+    public static Object cons(Object car, Object cdr) {
+        return new Pair(car, cdr);
+    }
+
+    public static Object car(Object pair) {
+        return toPair(pair, "car").car();
+    }
+
+    public static Object cdr(Object pair) {
+        return toPair(pair, "cdr").cdr();
+    }
+
+    public static Object setCar(Object pair, Object car) {
+        toPair(pair, "set-car!").setCar(car);
+        return null;
+    }
+
+    public static Object setCdr(Object pair, Object cdr) {
+        toPair(pair, "set-cdr!").setCdr(cdr);
+        return null;
+    }
+
+    public static boolean isNull(Object object) {
+        return object == EmptyList.INSTANCE;
+    }
+
+    public static boolean isPair(Object object) {
+        return object instanceof Pair;
+    }
+
+    public static Object vector(Object[] elements) {
+        return VectorWrapper.fromElements(elements);
+    }
+
+    public static Object makeVector(Object length) {
+        return makeVector(length, ZERO);
+    }
+
+    public static Object makeVector(Object length, Object fill) {
+        return VectorWrapper.withLength(toIndex(length, Integer.MAX_VALUE, 1, "make-vector"), fill);
+    }
+
+    public static Object vectorRef(Object vector, Object index) {
+        VectorWrapper vectorWrapper = toVector(vector, "vector-ref");
+        return vectorWrapper.get(toIndex(index, vectorWrapper.length() - 1, 2, "vector-ref"));
+    }
+
+    public static Object vectorSet(Object vector, Object index, Object value) {
+        VectorWrapper vectorWrapper = toVector(vector, "vector-set!");
+        vectorWrapper.set(toIndex(index, vectorWrapper.length() - 1, 2, "vector-set!"), value);
+        return null;
+    }
+
+    public static Object vectorLength(Object vector) {
+        return (long) toVector(vector, "vector-length").length();
+    }
+
+    public static Object vectorFill(Object vector, Object value) {
+        toVector(vector, "vector-fill!").fill(value);
+        return null;
+    }
+
+    public static boolean isVector(Object object) {
+        return object instanceof VectorWrapper;
+    }
+
+    public static Object bytevector(Object[] elements) {
+        Bytevector bytevector = Bytevector.allocate(elements.length);
+        for (int i = 0; i < elements.length; i++) {
+            bytevector.set(i, toByte(elements[i], i + 1, "bytevector"));
+        }
+
+        return bytevector;
+    }
+
+    public static Object makeBytevector(Object length) {
+        return makeBytevector(length, ZERO);
+    }
+
+    public static Object makeBytevector(Object length, Object fill) {
+        Bytevector bytevector = Bytevector.allocate(toOffset(length, Long.MAX_VALUE, 1, "make-bytevector"));
+        bytevector.fill(toByte(fill, 2, "make-bytevector"));
+
+        return bytevector;
+    }
+
+    public static Object openMappedBytevector(Object path) {
+        return openMappedBytevector(path, false);
+    }
+
+    public static Object openMappedBytevector(Object path, Object isWritable) {
+        if (!(path instanceof String)) {
+            throw new IllegalArgumentException(String.format("The object '%s', passed as the first argument to " +
+                    "open-mapped-bytevector, is not a string", OutputFormatter.output(path)));
+        }
+
+        try {
+            return Bytevector.map((String) path, !Boolean.FALSE.equals(isWritable));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static Object bytevectorLength(Object bytevector) {
+        return toBytevector(bytevector, 1, "bytevector-length").length();
+    }
+
+    public static Object bytevectorU8Ref(Object bytevector, Object index) {
+        Bytevector target = toBytevector(bytevector, 1, "bytevector-u8-ref");
+        return (long) target.get(toOffset(index, target.length() - 1, 2, "bytevector-u8-ref"));
+    }
+
+    public static Object bytevectorU8Set(Object bytevector, Object index, Object value) {
+        Bytevector target = toBytevector(bytevector, 1, "bytevector-u8-set!");
+        target.set(toOffset(index, target.length() - 1, 2, "bytevector-u8-set!"),
+                toByte(value, 3, "bytevector-u8-set!"));
+        return null;
+    }
+
+    public static Object bytevectorCopy(Object to, Object at, Object from) {
+        return bytevectorCopy(to, at, from, ZERO);
+    }
+
+    public static Object bytevectorCopy(Object to, Object at, Object from, Object start) {
+        return bytevectorCopy(to, at, from, start, toBytevector(from, 3, "bytevector-copy!").length());
+    }
+
+    public static Object bytevectorCopy(Object to, Object at, Object from, Object start, Object end) {
+        Bytevector target = toBytevector(to, 1, "bytevector-copy!");
+        Bytevector source = toBytevector(from, 3, "bytevector-copy!");
+        long endOffset = toOffset(end, source.length(), 5, "bytevector-copy!");
+        long startOffset = toOffset(start, endOffset, 4, "bytevector-copy!");
+        long atOffset = toOffset(at, target.length() - (endOffset - startOffset), 2, "bytevector-copy!");
+
+        Bytevector.copy(target, atOffset, source, startOffset, endOffset);
+        return null;
+    }
+
+    public static Object bytevectorU16NativeRef(Object bytevector, Object index) {
+        return nativeRef(bytevector, index, 2, false, "bytevector-u16-native-ref");
+    }
+
+    public static Object bytevectorU16NativeSet(Object bytevector, Object index, Object value) {
+        return nativeSet(bytevector, index, value, 2, false, "bytevector-u16-native-set!");
+    }
+
+    public static Object bytevectorS16NativeRef(Object bytevector, Object index) {
+        return nativeRef(bytevector, index, 2, true, "bytevector-s16-native-ref");
+    }
+
+    public static Object bytevectorS16NativeSet(Object bytevector, Object index, Object value) {
+        return nativeSet(bytevector, index, value, 2, true, "bytevector-s16-native-set!");
+    }
+
+    public static Object bytevectorU32NativeRef(Object bytevector, Object index) {
+        return nativeRef(bytevector, index, 4, false, "bytevector-u32-native-ref");
+    }
+
+    public static Object bytevectorU32NativeSet(Object bytevector, Object index, Object value) {
+        return nativeSet(bytevector, index, value, 4, false, "bytevector-u32-native-set!");
+    }
+
+    public static Object bytevectorS32NativeRef(Object bytevector, Object index) {
+        return nativeRef(bytevector, index, 4, true, "bytevector-s32-native-ref");
+    }
+
+    public static Object bytevectorS32NativeSet(Object bytevector, Object index, Object value) {
+        return nativeSet(bytevector, index, value, 4, true, "bytevector-s32-native-set!");
+    }
+
+    public static Object bytevectorU64NativeRef(Object bytevector, Object index) {
+        return nativeRef(bytevector, index, 8, false, "bytevector-u64-native-ref");
+    }
+
+    public static Object bytevectorU64NativeSet(Object bytevector, Object index, Object value) {
+        return nativeSet(bytevector, index, value, 8, false, "bytevector-u64-native-set!");
+    }
+
+    public static Object bytevectorS64NativeRef(Object bytevector, Object index) {
+        return nativeRef(bytevector, index, 8, true, "bytevector-s64-native-ref");
+    }
+
+    public static Object bytevectorS64NativeSet(Object bytevector, Object index, Object value) {
+        return nativeSet(bytevector, index, value, 8, true, "bytevector-s64-native-set!");
+    }
+
+    public static boolean isBytevector(Object object) {
+        return object instanceof Bytevector;
+    }
+
+    private static boolean isOrdered(Object[] operands, int lowestResult, int highestResult) {
+        for (int i = 0; i < operands.length - 1; i++) {
+            int result = compare(operands[i], operands[i + 1]);
+            if (result < lowestResult || result > highestResult) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static BigInteger toBigInteger(Object number) {
+        if (number instanceof Long) {
+            return BigInteger.valueOf((Long) number);
+        }
+
+        return (BigInteger) number;
+    }
+
+    private static Pair toPair(Object object, String procedureName) {
+        if (!(object instanceof Pair)) {
+            throw new IllegalArgumentException(String.format("The object '%s', passed as the first argument to " +
+                    "%s, is not a pair", OutputFormatter.output(object), procedureName));
+        }
+
+        return (Pair) object;
+    }
+
+    private static VectorWrapper toVector(Object object, String procedureName) {
+        if (!(object instanceof VectorWrapper)) {
+            throw new IllegalArgumentException(String.format("The object '%s', passed as the first argument to " +
+                    "%s, is not a vector", OutputFormatter.output(object), procedureName));
+        }
+
+        return (VectorWrapper) object;
+    }
+
+    private static int toIndex(Object object, int maximum, int argumentPosition, String procedureName) {
+        return (int) toOffset(object, maximum, argumentPosition, procedureName);
+    }
+
+    private static long toOffset(Object object, long maximum, int argumentPosition, String procedureName) {
+        if (!(object instanceof Long) || (Long) object < 0 || (Long) object > maximum) {
+            throw createRangeException(object, argumentPosition, procedureName);
+        }
+
+        return (Long) object;
+    }
+
+    private static int toByte(Object object, int argumentPosition, String procedureName) {
+        return (int) toOffset(object, 255, argumentPosition, procedureName);
+    }
+
+    private static Bytevector toBytevector(Object object, int argumentPosition, String procedureName) {
+        if (!(object instanceof Bytevector)) {
+            throw new IllegalArgumentException(String.format("The object '%s', passed as argument %d to %s, is " +
+                    "not a bytevector", OutputFormatter.output(object), argumentPosition, procedureName));
+        }
+
+        return (Bytevector) object;
+    }
+
+    private static Object nativeRef(Object bytevector, Object index, int size, boolean isSigned,
+                                    String procedureName) {
+        Bytevector source = toBytevector(bytevector, 1, procedureName);
+        long value = source.getNative(toOffset(index, source.length() - size, 2, procedureName), size, isSigned);
+
+        return isSigned || value >= 0 ? value : BigInteger.valueOf(value).add(TWO_TO_THE_64);
+    }
+
+    private static Object nativeSet(Object bytevector, Object index, Object value, int size, boolean isSigned,
+                                    String procedureName) {
+        Bytevector target = toBytevector(bytevector, 1, procedureName);
+        long offset = toOffset(index, target.length() - size, 2, procedureName);
+
+        int bits = 8 * size;
+        long bitsValue;
+        if (value instanceof Long) {
+            bitsValue = (Long) value;
+            boolean isInRange = isSigned ? bitsValue >> (bits - 1) == bitsValue >> 63 :
+                    bitsValue >= 0 && (bits == Long.SIZE || bitsValue >>> bits == 0);
+            if (!isInRange) {
+                throw createRangeException(value, 3, procedureName);
+            }
+        } else if (value instanceof BigInteger && !isSigned && bits == Long.SIZE
+                && ((BigInteger) value).signum() >= 0 && ((BigInteger) value).bitLength() <= Long.SIZE) {
+            bitsValue = ((BigInteger) value).longValue();
+        } else {
+            throw createRangeException(value, 3, procedureName);
+        }
+
+        target.setNative(offset, size, bitsValue);
+        return null;
+    }
 
-        return firstArgument.divide(secondArgument);
+    private static IllegalArgumentException createRangeException(Object object, int argumentPosition,
+                                                                 String procedureName) {
+        return new IllegalArgumentException(String.format("The object '%s', passed as argument %d to %s, is " +
+                "not in the correct range", OutputFormatter.output(object), argumentPosition, procedureName));
     }
 
 }
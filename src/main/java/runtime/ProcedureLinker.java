@@ -0,0 +1,49 @@
+package runtime;
+
+import java.lang.invoke.*;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class ProcedureLinker {
+
+    private static final CallSites CALL_SITES = new CallSites();
+
+    public static CallSite bootstrap(MethodHandles.Lookup lookup, String procedureName, MethodType type,
+                                     Class<?> owner) {
+        return getCallSites(owner).computeIfAbsent(procedureName, name -> {
+            try {
+                return new MutableCallSite(lookup.findStatic(owner, name, type));
+            } catch (NoSuchMethodException | IllegalAccessException e) {
+                throw new IllegalStateException(String.format("Could not link procedure '%s'", name), e);
+            }
+        });
+    }
+
+    /**
+     * Rebinds every linked call site of the procedure. Calls which the compiler inlined or constant folded no
+     * longer exist as call sites and keep the behaviour of the original definition.
+     */
+    public static void redefine(Class<?> owner, String procedureName, MethodHandle procedure) {
+        MethodType type = MethodType.genericMethodType(procedure.type().parameterCount());
+        MethodHandle target = procedure.asType(type);
+
+        MutableCallSite callSite = getCallSites(owner).computeIfAbsent(procedureName,
+                name -> new MutableCallSite(target));
+        callSite.setTarget(target);
+        MutableCallSite.syncAll(new MutableCallSite[]{callSite});
+    }
+
+    private static Map<String, MutableCallSite> getCallSites(Class<?> owner) {
+        return CALL_SITES.get(owner);
+    }
+
+    private static class CallSites extends ClassValue<Map<String, MutableCallSite>> {
+
+        @Override
+        protected Map<String, MutableCallSite> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+
+    }
+
+}
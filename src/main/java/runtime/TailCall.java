@@ -0,0 +1,50 @@
+package runtime;
+
+import java.lang.invoke.MethodHandle;
+
+/**
+ * A call in tail position which is returned to the nearest enclosing non-tail call instead of being made, so that
+ * tail calls through closures and between local lambdas run in constant stack space.
+ */
+public final class TailCall {
+
+    private final MethodHandle target;
+    private final Object[] arguments;
+
+    private TailCall(MethodHandle target, Object[] arguments) {
+        this.target = target;
+        this.arguments = arguments;
+    }
+
+    public static TailCall create(MethodHandle target, Object[] arguments) {
+        return new TailCall(target, arguments);
+    }
+
+    public static Object force(Object result) {
+        while (result instanceof TailCall) {
+            result = ((TailCall) result).invoke();
+        }
+
+        return result;
+    }
+
+    private Object invoke() {
+        try {
+            switch (arguments.length) {
+                case 0:
+                    return (Object) target.invokeExact();
+                case 1:
+                    return (Object) target.invokeExact(arguments[0]);
+                case 2:
+                    return (Object) target.invokeExact(arguments[0], arguments[1]);
+                case 3:
+                    return (Object) target.invokeExact(arguments[0], arguments[1], arguments[2]);
+                default:
+                    return target.invokeWithArguments(arguments);
+            }
+        } catch (Throwable throwable) {
+            throw Closure.rethrow(throwable);
+        }
+    }
+
+}
@@ -0,0 +1,107 @@
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class BatchCompilerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void directories_are_searched_for_source_files() throws IOException {
+        Path sourceDirectory = folder.newFolder("sources").toPath();
+        Files.createDirectories(sourceDirectory.resolve("nested"));
+        writeSourceFile(sourceDirectory.resolve("a.scm"), "(display 1)");
+        writeSourceFile(sourceDirectory.resolve("nested/b.scm"), "(display 2)");
+        writeSourceFile(sourceDirectory.resolve("notes.txt"), "not a source file");
+
+        List<Path> sourceFiles = BatchCompiler.collectSourceFiles(Collections.singletonList(sourceDirectory));
+
+        assertThat(sourceFiles, is(Arrays.asList(sourceDirectory.resolve("a.scm"),
+                sourceDirectory.resolve("nested/b.scm"))));
+    }
+
+    @Test
+    public void every_source_file_is_compiled_to_its_own_jar() throws IOException, InterruptedException {
+        Path sourceDirectory = folder.newFolder("sources").toPath();
+        Path outputDirectory = folder.getRoot().toPath().resolve("output");
+        for (int i = 0; i < 8; i++) {
+            writeSourceFile(sourceDirectory.resolve("program" + i + ".scm"), "(display (+ " + i + " 1))");
+        }
+
+        BatchCompiler batchCompiler = new BatchCompiler(Compiler.Backend.SOURCE, outputDirectory, 4);
+        List<BatchCompiler.Result> results = batchCompiler.compile(
+                BatchCompiler.collectSourceFiles(Collections.singletonList(sourceDirectory)));
+
+        assertThat(results.size(), is(8));
+        for (int i = 0; i < 8; i++) {
+            BatchCompiler.Result result = results.get(i);
+            assertThat(result.isSuccessful(), is(true));
+            assertThat(result.getJarFile().toPath(), is(outputDirectory.resolve("program" + i + ".scm.jar")));
+            assertThat(result.getJarFile().exists(), is(true));
+        }
+    }
+
+    @Test
+    public void output_jars_mirror_the_source_tree() throws IOException, InterruptedException {
+        Path sourceDirectory = folder.newFolder("sources").toPath();
+        Path outputDirectory = folder.getRoot().toPath().resolve("output");
+        Files.createDirectories(sourceDirectory.resolve("a"));
+        Files.createDirectories(sourceDirectory.resolve("b"));
+        writeSourceFile(sourceDirectory.resolve("a/x.scm"), "(display 1)");
+        writeSourceFile(sourceDirectory.resolve("b/x.scm"), "(display 2)");
+
+        BatchCompiler batchCompiler = new BatchCompiler(Compiler.Backend.SOURCE, outputDirectory, 2);
+        List<BatchCompiler.Result> results = batchCompiler.compile(
+                BatchCompiler.collectSourceFiles(Collections.singletonList(sourceDirectory)));
+
+        List<Path> jarFiles = results.stream()
+                .map(result -> result.getJarFile().toPath())
+                .collect(Collectors.toList());
+        assertThat(jarFiles, is(Arrays.asList(outputDirectory.resolve("a/x.scm.jar"),
+                outputDirectory.resolve("b/x.scm.jar"))));
+        assertThat(Files.exists(jarFiles.get(0)) && Files.exists(jarFiles.get(1)), is(true));
+    }
+
+    @Test
+    public void failures_are_reported_without_aborting_the_batch() throws IOException, InterruptedException {
+        Path validFile = folder.getRoot().toPath().resolve("valid.scm");
+        Path invalidFile = folder.getRoot().toPath().resolve("invalid.scm");
+        writeSourceFile(validFile, "(display \"valid\")");
+        writeSourceFile(invalidFile, "(display (undefined_procedure 1))");
+
+        BatchCompiler batchCompiler = new BatchCompiler(Compiler.Backend.BYTECODE,
+                folder.newFolder("output").toPath(), 2);
+        List<BatchCompiler.Result> results = batchCompiler.compile(Arrays.asList(validFile, invalidFile));
+
+        List<Boolean> successes = results.stream().map(BatchCompiler.Result::isSuccessful).collect(Collectors.toList());
+        assertThat(successes, is(Arrays.asList(true, false)));
+
+        ByteArrayOutputStream summary = new ByteArrayOutputStream();
+        batchCompiler.printSummary(results, 0, new PrintStream(summary, true, "UTF-8"));
+        String summaryText = summary.toString("UTF-8");
+        assertThat(summaryText, containsString("FAILED " + invalidFile));
+        assertThat(summaryText, containsString("Undefined procedure 'undefined_procedure'"));
+        assertThat(summaryText, containsString("Compiled 2 files in 0 ms: 1 succeeded, 1 failed"));
+    }
+
+    private void writeSourceFile(Path path, String input) throws IOException {
+        Files.write(path, input.getBytes(StandardCharsets.UTF_8));
+    }
+
+}
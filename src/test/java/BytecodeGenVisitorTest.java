@@ -0,0 +1,106 @@
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.bytecode.*;
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import parser.ErrorListener;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.CoreMatchers.hasItems;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class BytecodeGenVisitorTest {
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    @Test
+    public void procedures_and_variables_are_emitted_as_static_members() {
+        ClassFile classFile = visitParseTreeForInput("(define foo 123) (define (bar x) (+ x foo)) (display (bar 1))");
+
+        List<String> methodNames = ((List<MethodInfo>) classFile.getMethods())
+                .stream()
+                .map(MethodInfo::getName)
+                .collect(Collectors.toList());
+        assertThat(methodNames, hasItems("bar", "main"));
+        assertThat(classFile.getMethod("bar").getDescriptor(), is("(Ljava/lang/Object;)Ljava/lang/Object;"));
+
+        FieldInfo field = (FieldInfo) classFile.getFields().get(0);
+        assertThat(field.getName(), is("foo"));
+        assertThat(field.getDescriptor(), is("Ljava/lang/Object;"));
+    }
+
+    @Test
+    public void if_expressions_are_compiled_to_branches_instead_of_methods() {
+        ClassFile classFile = visitParseTreeForInput("(display (if (equal? 42 42) \"equal\" \"not equal\"))");
+
+        assertThat(classFile.getMethods().size(), is(1));
+    }
+
+    @Test
+    public void self_calls_in_tail_position_are_compiled_to_loops() throws BadBytecode {
+        String input = "(define (count_down n) (if (equal? n 0) \"done\" (if (< n 0) \"negative\" " +
+                "(count_down (- n 1)))))";
+        ClassFile classFile = visitParseTreeForInput(input);
+
+        assertThat(countInvocationsOf(classFile.getMethod("count_down"), "count_down"), is(0));
+    }
+
+    @Test
+    public void non_tail_self_calls_remain_method_invocations() throws BadBytecode {
+        ClassFile classFile = visitParseTreeForInput("(define (fac n) (if (equal? n 0) 1 (* n (fac (- n 1)))))");
+
+        assertThat(countInvocationsOf(classFile.getMethod("fac"), "fac"), is(1));
+    }
+
+    @Test
+    public void calling_an_undefined_procedure_causes_an_exception() {
+        expectedException.expect(ParseCancellationException.class);
+        expectedException.expectMessage("Undefined procedure 'undefined_procedure'");
+
+        visitParseTreeForInput("(display (undefined_procedure 1))");
+    }
+
+    private int countInvocationsOf(MethodInfo method, String methodName) throws BadBytecode {
+        ConstPool constPool = method.getConstPool();
+        CodeIterator iterator = method.getCodeAttribute().iterator();
+
+        int invocations = 0;
+        while (iterator.hasNext()) {
+            int index = iterator.next();
+            if (iterator.byteAt(index) == Opcode.INVOKESTATIC
+                    && methodName.equals(constPool.getMethodrefName(iterator.u16bitAt(index + 1)))) {
+                invocations++;
+            }
+        }
+
+        return invocations;
+    }
+
+    private ClassFile visitParseTreeForInput(String input) {
+        ANTLRInputStream inputStream = new ANTLRInputStream(input);
+        SchemeLexer lexer = new SchemeLexer(inputStream);
+        lexer.removeErrorListeners();
+        lexer.addErrorListener(ErrorListener.INSTANCE);
+
+        CommonTokenStream tokens = new CommonTokenStream(lexer);
+        SchemeParser parser = new SchemeParser(tokens);
+        parser.removeErrorListeners();
+        parser.addErrorListener(ErrorListener.INSTANCE);
+
+        ParseTree parseTree = parser.program();
+        ClassPool pool = ClassPool.getDefault();
+        CtClass mainClassCt = pool.makeClass("BytecodeGenVisitorTestMain");
+        new BytecodeGenVisitor(pool, mainClassCt.getClassFile()).visit(parseTree);
+        return mainClassCt.getClassFile();
+    }
+
+}
@@ -6,6 +6,7 @@ import org.junit.Test;
 import parser.ErrorListener;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import static org.hamcrest.CoreMatchers.is;
@@ -18,7 +19,7 @@ public class CodeGenVisitorTest {
     @Test
     public void constant_expressions_are_processed_correctly() {
         String[] inputs = {"20414342334", "\"a string\"", "#\\λ", "#t", "#f", "#\\newline", "#\\space"};
-        String[] expectedOutputs = {"new BigInteger(\"20414342334\");", "new String(\"a string\");",
+        String[] expectedOutputs = {"Long.valueOf(20414342334L);", "new String(\"a string\");",
                 "new Character('λ');", "new Boolean(true);", "new Boolean(false);", "new Character('\\n');",
                 "new Character(' ');"};
         for (int i = 0; i < inputs.length; i++) {
@@ -35,7 +36,7 @@ public class CodeGenVisitorTest {
         GeneratedCode generatedCode = visitParseTreeForInput(input);
 
         List<String> expectedOutput = new ArrayList<>();
-        expectedOutput.add("static BigInteger var0 = new BigInteger(\"51\");");
+        expectedOutput.add("static Number var0 = Long.valueOf(51L);");
         expectedOutput.add("static String var1 = new String(\"a string\");");
         expectedOutput.add("static Character var2 = new Character('λ');");
         expectedOutput.add("static Character var3 = new Character('\\n');");
@@ -65,12 +66,14 @@ public class CodeGenVisitorTest {
         GeneratedCode generatedCode = visitParseTreeForInput(input);
 
         assertThat(generatedCode.getVariableDefinitions().get(0),
-                is("static BigInteger var = new BigInteger(\"14334234\");"));
+                is("static final String LITERAL_0 = \"a string\";"));
+        assertThat(generatedCode.getVariableDefinitions().get(1),
+                is("static Number var = Long.valueOf(14334234L);"));
 
         assertThat(generatedCode.getMethodsToBeDeclared().size(), is(1));
         assertThat(generatedCode.getMethodsToBeDeclared().get(0), is("public static void main(String[] args){" +
-                "System.out.println(OutputFormatter.output(new String(\"a string\")));" +
-                "System.out.println(OutputFormatter.output(var));}"));
+                "OutputPort.display(LITERAL_0);" +
+                "OutputPort.display(var);}"));
     }
 
     @Test
@@ -78,10 +81,17 @@ public class CodeGenVisitorTest {
         String input = "(list 15 7 #\\u #f \"a string\")";
 
         GeneratedCode generatedCode = visitParseTreeForInput(input);
-        String expectedOutput = "ListWrapper.fromElements(new Object[]{new BigInteger(\"15\")," +
-                "new BigInteger(\"7\"),new Character('u'),new Boolean(false),new String(\"a string\")})";
+        String expectedOutput = "Pair.fromElements(new Object[]{LITERAL_0,LITERAL_1,LITERAL_2,Boolean.FALSE," +
+                "LITERAL_3})";
 
         assertThat(generatedCode.getGeneratedCode(), is(expectedOutput));
+
+        List<String> expectedLiterals = new ArrayList<>();
+        expectedLiterals.add("static final Number LITERAL_0 = Long.valueOf(15L);");
+        expectedLiterals.add("static final Number LITERAL_1 = Long.valueOf(7L);");
+        expectedLiterals.add("static final Character LITERAL_2 = new Character('u');");
+        expectedLiterals.add("static final String LITERAL_3 = \"a string\";");
+        assertThat(generatedCode.getVariableDefinitions(), is(expectedLiterals));
     }
 
     @Test
@@ -89,8 +99,7 @@ public class CodeGenVisitorTest {
         String input = "(define a_variable \"a string\") (list #\\u #f a_variable)";
 
         GeneratedCode generatedCode = visitParseTreeForInput(input);
-        String expectedOutput = "ListWrapper.fromElements(new Object[]{new Character('u'),new Boolean(false)," +
-                "a_variable})";
+        String expectedOutput = "Pair.fromElements(new Object[]{LITERAL_0,Boolean.FALSE,a_variable})";
 
         assertThat(generatedCode.getGeneratedCode(), is(expectedOutput));
     }
@@ -100,66 +109,111 @@ public class CodeGenVisitorTest {
         String input = "(list 15 (list \"abc\" #t) 7 (list #\\u #f) 2 \"a string\")";
 
         GeneratedCode generatedCode = visitParseTreeForInput(input);
-        String expectedOutput = "ListWrapper.fromElements(new Object[]{new BigInteger(\"15\")," +
-                "ListWrapper.fromElements(new Object[]{new String(\"abc\"),new Boolean(true)}),new BigInteger(\"7\")," +
-                "ListWrapper.fromElements(new Object[]{new Character('u'),new Boolean(false)})," +
-                "new BigInteger(\"2\"),new String(\"a string\")})";
+        String expectedOutput = "Pair.fromElements(new Object[]{LITERAL_0," +
+                "Pair.fromElements(new Object[]{LITERAL_1,Boolean.TRUE}),LITERAL_2," +
+                "Pair.fromElements(new Object[]{LITERAL_3,Boolean.FALSE}),LITERAL_4,LITERAL_5})";
 
         assertThat(generatedCode.getGeneratedCode(), is(expectedOutput));
     }
 
     @Test
     public void predefined_procedures_can_be_called() {
-        String input = "(+ 2 3 (+ 3 7) 6)";
+        String input = "(define x 1) (+ 2 x (+ x 7) 6)";
+        assertThat(visitParseTreeForInput(input).getGeneratedCode(),
+                Matchers.is("PredefinedProcedures.add(new Object[]{LITERAL_0,x," +
+                        "PredefinedProcedures.add(x,LITERAL_1),LITERAL_2})"));
+
+        input = "(define x 1) (- 10 (- x 200) 375 (- x))";
         assertThat(visitParseTreeForInput(input).getGeneratedCode(),
-                Matchers.is("PredefinedProcedures.add(new Object[]{new BigInteger(\"2\")," +
-                        "new BigInteger(\"3\")," +
-                        "PredefinedProcedures.add(new Object[]{new BigInteger(\"3\")," +
-                        "new BigInteger(\"7\")}),new BigInteger(\"6\")})"));
+                Matchers.is("PredefinedProcedures.subtract(new Object[]{LITERAL_0," +
+                        "PredefinedProcedures.subtract(x,LITERAL_1),LITERAL_2," +
+                        "PredefinedProcedures.negate(x)})"));
 
-        input = "(- 10 (- 5 200) 375 (- 20))";
+        input = "(define x 1) (* 2 x (* 3 x))";
         assertThat(visitParseTreeForInput(input).getGeneratedCode(),
-                Matchers.is("PredefinedProcedures.subtract(new Object[]{new BigInteger(\"10\")," +
-                        "PredefinedProcedures.subtract(new Object[]{new BigInteger(\"5\")," +
-                        "new BigInteger(\"200\")}),new BigInteger(\"375\")," +
-                        "PredefinedProcedures.negate(new Object[]{new BigInteger(\"20\")})})"));
+                Matchers.is("PredefinedProcedures.multiply(LITERAL_0,x," +
+                        "PredefinedProcedures.multiply(LITERAL_1,x))"));
 
-        input = "(* 2 10 (* 3 7))";
+        input = "(define x 1) (* x 2 x 3)";
         assertThat(visitParseTreeForInput(input).getGeneratedCode(),
-                Matchers.is("PredefinedProcedures.multiply(new Object[]{new BigInteger(\"2\")," +
-                        "new BigInteger(\"10\")," +
-                        "PredefinedProcedures.multiply(new Object[]{new BigInteger(\"3\")," +
-                        "new BigInteger(\"7\")})})"));
+                Matchers.is("PredefinedProcedures.multiply(new Object[]{x,LITERAL_0,x,LITERAL_1})"));
 
-        input = "(quotient 10 (quotient 7 3))";
+        input = "(define x 1) (quotient 10 (quotient x 3))";
         assertThat(visitParseTreeForInput(input).getGeneratedCode(),
-                Matchers.is("PredefinedProcedures.divide(new Object[]{new BigInteger(\"10\")," +
-                        "PredefinedProcedures.divide(new Object[]{new BigInteger(\"7\")," +
-                        "new BigInteger(\"3\")})})"));
+                Matchers.is("PredefinedProcedures.divide(LITERAL_0," +
+                        "PredefinedProcedures.divide(x,LITERAL_1))"));
+    }
+
+    @Test
+    public void every_operand_of_a_comparison_chain_is_evaluated_once() {
+        String input = "(define a 1) (<= a (f a) 3)";
+        assertThat(visitParseTreeForInput(input).getGeneratedCode(),
+                is("PredefinedProcedures.lessThanOrEqual(new Object[]{a,f(a),LITERAL_0})"));
+
+        input = "(define a 1) (> (f a) a)";
+        assertThat(visitParseTreeForInput(input).getGeneratedCode(),
+                is("(PredefinedProcedures.compare(f(a),a) > 0)"));
+    }
+
+    @Test
+    public void constant_applications_are_folded_at_compile_time() {
+        GeneratedCode generatedCode = visitParseTreeForInput("(+ 2 3 (+ 3 7) (* 2 (- 10 (quotient 7 3))))");
+        assertThat(generatedCode.getGeneratedCode(), is("LITERAL_0"));
+        assertThat(generatedCode.getVariableDefinitions().get(0),
+                is("static final Number LITERAL_0 = Long.valueOf(31L);"));
+
+        generatedCode = visitParseTreeForInput("(* 9223372036854775807 2)");
+        assertThat(generatedCode.getVariableDefinitions().get(0),
+                is("static final Number LITERAL_0 = new BigInteger(\"18446744073709551614\");"));
+
+        assertThat(visitParseTreeForInput("(< 1 2 3)").getGeneratedCode(), is("true"));
+        assertThat(visitParseTreeForInput("(>= 1 2)").getGeneratedCode(), is("false"));
+        assertThat(visitParseTreeForInput("(equal? (+ 1 1) 2)").getGeneratedCode(), is("true"));
+    }
+
+    @Test
+    public void applications_which_cannot_be_evaluated_safely_are_not_folded() {
+        assertThat(visitParseTreeForInput("(quotient 1 0)").getGeneratedCode(),
+                is("PredefinedProcedures.divide(LITERAL_0,LITERAL_1)"));
+        assertThat(visitParseTreeForInput("(+ 1 #t)").getGeneratedCode(),
+                is("PredefinedProcedures.add(LITERAL_0,Boolean.TRUE)"));
+        GeneratedCode generatedCode = visitParseTreeForInput("(define (+ x y) x) (+ 1 2)");
+        assertThat(generatedCode.getGeneratedCode(), is("LITERAL_0"));
+        assertThat(generatedCode.getVariableDefinitions().get(0),
+                is("static final Number LITERAL_0 = Long.valueOf(1L);"));
+    }
+
+    @Test
+    public void identical_literals_share_one_hoisted_field() {
+        GeneratedCode generatedCode = visitParseTreeForInput("(define (f x) (list x 5 #\\a \"s\" 5 #\\a \"s\"))");
+
+        assertThat(generatedCode.getMethodsToBeDeclared().get(0), is("public static Object f(Object x)" +
+                "{return Pair.fromElements(new Object[]{x,LITERAL_0,LITERAL_1,LITERAL_2,LITERAL_0,LITERAL_1," +
+                "LITERAL_2});}"));
+        assertThat(generatedCode.getVariableDefinitions().size(), is(3));
     }
 
     @Test
     public void an_empty_list_can_be_created() {
         assertThat(visitParseTreeForInput("(list)").getGeneratedCode(),
-                is("ListWrapper.fromElements(new Object[0])"));
+                is("EmptyList.INSTANCE"));
     }
 
     @Test
     public void the_equal_procedure_is_implemented_by_the_equals_method_defined_in_the_Objects_class() {
         String input = "(equal? 42 \"forty-two\")";
         assertThat(visitParseTreeForInput(input).getGeneratedCode(),
-                Matchers.is("java.util.Objects.equals(new BigInteger(\"42\")," +
-                        "new String(\"forty-two\"))"));
+                Matchers.is("java.util.Objects.equals(LITERAL_0,LITERAL_1)"));
     }
 
     @Test
     public void it_is_possible_to_define_a_procedure_which_returns_a_constant() {
         String input = "(define (the_answer) 42) (display (the_answer))";
         assertThat(visitParseTreeForInput(input).getMethodsToBeDeclared().get(0),
-                Matchers.is("public static Object the_answer(){return new BigInteger(\"42\");}"));
+                Matchers.is("public static Object the_answer(){return LITERAL_0;}"));
         assertThat(visitParseTreeForInput(input).getMethodsToBeDeclared().get(1),
                 Matchers.is("public static void main(String[] args)" +
-                        "{System.out.println(OutputFormatter.output(the_answer()));}"));
+                        "{OutputPort.display(LITERAL_0);}"));
     }
 
     @Test
@@ -169,7 +223,7 @@ public class CodeGenVisitorTest {
                 Matchers.is("public static Object bar(){return foo;}"));
         assertThat(visitParseTreeForInput(input).getMethodsToBeDeclared().get(1),
                 Matchers.is("public static void main(String[] args)" +
-                        "{System.out.println(OutputFormatter.output(bar()));}"));
+                        "{OutputPort.display(foo);}"));
     }
 
     @Test
@@ -177,10 +231,10 @@ public class CodeGenVisitorTest {
         String input = "(define (double_arg x) (* x 2)) (display (double_arg 20))";
         assertThat(visitParseTreeForInput(input).getMethodsToBeDeclared().get(0),
                 Matchers.is("public static Object double_arg(Object x)" +
-                        "{return PredefinedProcedures.multiply(new Object[]{x,new BigInteger(\"2\")});}"));
+                        "{return PredefinedProcedures.multiply(x,LITERAL_0);}"));
         assertThat(visitParseTreeForInput(input).getMethodsToBeDeclared().get(1),
                 Matchers.is("public static void main(String[] args)" +
-                        "{System.out.println(OutputFormatter.output(double_arg(new BigInteger(\"20\"))));}"));
+                        "{OutputPort.display(LITERAL_1);}"));
     }
 
     @Test
@@ -188,8 +242,8 @@ public class CodeGenVisitorTest {
         String input = "(define (is_42 x) (if (equal? x 42) \"yes\" \"no\"))";
         assertThat(visitParseTreeForInput(input).getMethodsToBeDeclared().get(0),
                 Matchers.is("public static Object is_42(Object x)" +
-                        "{if(java.util.Objects.equals(x,new BigInteger(\"42\"))){return new String(\"yes\");}" +
-                        "else{return new String(\"no\");}}"));
+                        "{if(java.util.Objects.equals(x,LITERAL_0)){return LITERAL_1;}" +
+                        "else{return LITERAL_2;}}"));
     }
 
     @Test
@@ -198,17 +252,35 @@ public class CodeGenVisitorTest {
         input += "(define (fib n) (if (< n 3) 1 (+ (fib (- n 1)) (fib (- n 2)))))";
         assertThat(visitParseTreeForInput(input).getMethodsToBeDeclared().get(0),
                 Matchers.is("public static Object fac(Object n)" +
-                        "{if(java.util.Objects.equals(n,new BigInteger(\"0\")))" +
-                        "{return new BigInteger(\"1\");}" +
-                        "else{return PredefinedProcedures.multiply(new Object[]{n," +
-                        "fac(PredefinedProcedures.subtract(new Object[]{n,new BigInteger(\"1\")}))});}}"));
+                        "{if(java.util.Objects.equals(n,LITERAL_0))" +
+                        "{return LITERAL_1;}" +
+                        "else{return PredefinedProcedures.multiply(n," +
+                        "fac(PredefinedProcedures.subtract(n,LITERAL_1)));}}"));
         assertThat(visitParseTreeForInput(input).getMethodsToBeDeclared().get(1),
                 Matchers.is("public static Object fib(Object n)" +
-                        "{if((((BigInteger) n).compareTo(new BigInteger(\"3\")) == -1))" +
-                        "{return new BigInteger(\"1\");}" +
-                        "else{return PredefinedProcedures.add(new Object[]{" +
-                        "fib(PredefinedProcedures.subtract(new Object[]{n,new BigInteger(\"1\")}))," +
-                        "fib(PredefinedProcedures.subtract(new Object[]{n,new BigInteger(\"2\")}))});}}"));
+                        "{if((PredefinedProcedures.compare(n,LITERAL_2) < 0))" +
+                        "{return LITERAL_1;}" +
+                        "else{return PredefinedProcedures.add(" +
+                        "fib(PredefinedProcedures.subtract(n,LITERAL_1))," +
+                        "fib(PredefinedProcedures.subtract(n,LITERAL_3)));}}"));
+    }
+
+    @Test
+    public void mutually_tail_recursive_procedures_share_a_dispatch_loop() {
+        String input = "(define (is_even n) (if (equal? n 0) #t (is_odd (- n 1))))";
+        input += "(define (is_odd n) (if (equal? n 0) #f (is_even (- n 1))))";
+        List<String> methods = visitParseTreeForInput(input).getMethodsToBeDeclared();
+
+        assertThat(methods.size(), is(4));
+        assertThat(methods.get(0), is("private static Object dispatchTailCalls0(int dispatchTarget," +
+                "Object dispatchArgument0){while(true){switch(dispatchTarget){" +
+                "case 0:{Object n=dispatchArgument0;if(java.util.Objects.equals(n,LITERAL_0)){return Boolean.TRUE;}" +
+                "else{dispatchArgument0=PredefinedProcedures.subtract(n,LITERAL_1);dispatchTarget=1;break;}}" +
+                "case 1:{Object n=dispatchArgument0;if(java.util.Objects.equals(n,LITERAL_0)){return Boolean.FALSE;}" +
+                "else{dispatchArgument0=PredefinedProcedures.subtract(n,LITERAL_1);dispatchTarget=0;break;}}" +
+                "default:throw new IllegalStateException();}}}"));
+        assertThat(methods.get(1), is("public static Object is_even(Object n){return dispatchTailCalls0(0,n);}"));
+        assertThat(methods.get(2), is("public static Object is_odd(Object n){return dispatchTailCalls0(1,n);}"));
     }
 
     @Test
@@ -217,22 +289,159 @@ public class CodeGenVisitorTest {
         input += "(define (fib_acc n acc1 acc2) (if (>= n 3) (fib_acc (- n 1) acc2 (+ acc1 acc2)) acc2))";
         assertThat(visitParseTreeForInput(input).getMethodsToBeDeclared().get(0),
                 Matchers.is("public static Object fac_acc(Object n,Object acc){" +
-                        "Object[] vars={n,acc};" +
-                        "while(!java.util.Objects.equals(n,new BigInteger(\"0\"))){" +
-                        "n=PredefinedProcedures.subtract(new Object[]{vars[0],new BigInteger(\"1\")});" +
-                        "acc=PredefinedProcedures.multiply(new Object[]{vars[0],vars[1]});" +
-                        "vars[0]=n;vars[1]=acc;}" +
-                        "return acc;}"));
+                        "while(true){if(java.util.Objects.equals(n,LITERAL_0)){return acc;}else{" +
+                        "Object tailArgument0=PredefinedProcedures.subtract(n,LITERAL_1);" +
+                        "Object tailArgument1=PredefinedProcedures.multiply(n,acc);" +
+                        "n=tailArgument0;acc=tailArgument1;}}}"));
         assertThat(visitParseTreeForInput(input).getMethodsToBeDeclared().get(1),
                 Matchers.is("public static Object fib_acc(Object n,Object acc1,Object acc2){" +
-                        "Object[] vars={n,acc1,acc2};" +
-                        "while((((BigInteger) n).compareTo(new BigInteger(\"3\")) == 1" +
-                        "||((BigInteger) n).compareTo(new BigInteger(\"3\")) == 0)){" +
-                        "n=PredefinedProcedures.subtract(new Object[]{vars[0],new BigInteger(\"1\")});" +
-                        "acc1=vars[2];" +
-                        "acc2=PredefinedProcedures.add(new Object[]{vars[1],vars[2]});" +
-                        "vars[0]=n;vars[1]=acc1;vars[2]=acc2;}" +
-                        "return acc2;}"));
+                        "while(true){if((PredefinedProcedures.compare(n,LITERAL_2) >= 0)){" +
+                        "Object tailArgument0=PredefinedProcedures.subtract(n,LITERAL_1);" +
+                        "Object tailArgument1=acc2;" +
+                        "Object tailArgument2=PredefinedProcedures.add(acc1,acc2);" +
+                        "n=tailArgument0;acc1=tailArgument1;acc2=tailArgument2;}else{return acc2;}}}"));
+        assertThat(visitParseTreeForInput("(define (spin n acc) (if (< n 1) acc (spin (- n 1) acc)))")
+                        .getMethodsToBeDeclared().get(0),
+                Matchers.is("public static Object spin(Object n,Object acc){" +
+                        "while(true){if((PredefinedProcedures.compare(n,LITERAL_0) < 0)){return acc;}else{" +
+                        "Object tailArgument0=PredefinedProcedures.subtract(n,LITERAL_0);n=tailArgument0;}}}"));
+    }
+
+    @Test
+    public void generated_method_names_are_numbered_per_visitor() {
+        String input = "(define (f x) (+ 1 (if (equal? x 2) (+ " + String.join(" ", Collections.nCopies(1000, "x")) +
+                ") 2)))";
+
+        assertThat(visitParseTreeForInput(input).getMethodsToBeDeclared().get(0),
+                Matchers.startsWith("public static Object evaluateIf0(Object x)"));
+        assertThat(visitParseTreeForInput(input).getMethodsToBeDeclared().get(0),
+                Matchers.startsWith("public static Object evaluateIf0(Object x)"));
+        assertThat(visitParseTreeForInput(input).getMethodsToBeDeclared().get(1),
+                is("public static Object f(Object x){return PredefinedProcedures.add(LITERAL_0,evaluateIf0(x));}"));
+    }
+
+    @Test
+    public void conditionals_outside_of_tail_positions_are_compiled_inline() {
+        String input = "(define (f x) (+ 1 (if (< x 2) x (if x 2))))";
+
+        GeneratedCode generatedCode = visitParseTreeForInput(input);
+        assertThat(generatedCode.getMethodsToBeDeclared().size(), is(2));
+        assertThat(generatedCode.getMethodsToBeDeclared().get(0), is("public static Object f(Object x)" +
+                "{return PredefinedProcedures.add(LITERAL_0,((PredefinedProcedures.compare(x,LITERAL_1) < 0)" +
+                "?(Object)x:(Object)(!Boolean.FALSE.equals(x)?(Object)LITERAL_1:(Object)null)));}"));
+    }
+
+    @Test
+    public void lets_outside_of_tail_positions_are_compiled_inline() {
+        String input = "(define (f x) (+ 1 (let ((y (* x 2))) y)))";
+        input += "(define (g x) (+ 1 (let ((y x)) (+ " + String.join(" ", Collections.nCopies(1000, "y")) + "))))";
+
+        List<String> methods = visitParseTreeForInput(input).getMethodsToBeDeclared();
+        assertThat(methods.get(0), is("public static Object f(Object x){Object yLocal0=null;" +
+                "return PredefinedProcedures.add(LITERAL_0,PredefinedProcedures.sequence(" +
+                "yLocal0=PredefinedProcedures.multiply(x,LITERAL_1),yLocal0));}"));
+        assertThat(methods.get(1), Matchers.startsWith("public static Object evaluateLet0(Object x)" +
+                "{Object yLocal1=null;return PredefinedProcedures.sequence(yLocal1=x,"));
+        assertThat(methods.get(2), is("public static Object g(Object x)" +
+                "{return PredefinedProcedures.add(LITERAL_0,evaluateLet0(x));}"));
+    }
+
+    @Test
+    public void local_definitions_and_let_bindings_are_compiled_to_method_locals() {
+        String input = "(define (f x) (define y (* x 2)) (let ((x (+ y 1))) x)) (display (let* ((a 1) (b a)) b))";
+
+        GeneratedCode generatedCode = visitParseTreeForInput(input);
+        assertThat(generatedCode.getVariableDefinitions(), Matchers.everyItem(Matchers.startsWith("static final")));
+        assertThat(generatedCode.getMethodsToBeDeclared().get(0), is("public static Object f(Object x)" +
+                "{Object y=PredefinedProcedures.multiply(x,LITERAL_0);" +
+                "{Object xLocal0=PredefinedProcedures.add(y,LITERAL_1);return xLocal0;}}"));
+        assertThat(generatedCode.getMethodsToBeDeclared().get(1),
+                is("public static Object evaluateLet0(){Object a=LITERAL_1;Object b=a;return b;}"));
+    }
+
+    @Test
+    public void small_non_recursive_procedures_are_inlined() {
+        String input = "(define (square x) (* x x)) (define (f y) (square y)) (define (g y) (square (+ y 1)))" +
+                "(define (h y) (+ 1 (square (+ y 1)))) (display (square 3))";
+
+        GeneratedCode generatedCode = visitParseTreeForInput(input);
+        assertThat(generatedCode.getMethodsToBeDeclared().get(1),
+                is("public static Object f(Object y){return PredefinedProcedures.multiply(y,y);}"));
+        assertThat(generatedCode.getMethodsToBeDeclared().get(2), is("public static Object g(Object y)" +
+                "{{Object x=PredefinedProcedures.add(y,LITERAL_0);return PredefinedProcedures.multiply(x,x);}}"));
+        assertThat(generatedCode.getMethodsToBeDeclared().get(3), is("public static Object h(Object y)" +
+                "{return PredefinedProcedures.add(LITERAL_0,square(PredefinedProcedures.add(y,LITERAL_0)));}"));
+        assertThat(generatedCode.getVariableDefinitions(), Matchers.hasItem("static final Number LITERAL_1 = " +
+                "Long.valueOf(9L);"));
+    }
+
+    @Test
+    public void procedures_are_not_inlined_where_their_free_variables_are_shadowed() {
+        String input = "(define n 5) (define (add_n x) (+ x n)) (define (f n) (add_n n))";
+
+        assertThat(visitParseTreeForInput(input).getMethodsToBeDeclared().get(1),
+                is("public static Object f(Object n){return add_n(n);}"));
+    }
+
+    @Test
+    public void lambdas_capture_only_the_free_variables_they_use() {
+        String input = "(define (make_adder n unused) (lambda (x) (+ x n)))";
+
+        GeneratedCode generatedCode = visitParseTreeForInput(input);
+        assertThat(generatedCode.getMethodsToBeDeclared(), Matchers.hasItems(
+                "public static Object make_adder(Object n,Object unused)" +
+                        "{return Closure.create(HANDLE_evaluateLambda0,new Object[]{n});}",
+                "public static Object evaluateLambda0(Object n,Object x){return PredefinedProcedures.add(x,n);}"));
+        assertThat(generatedCode.getVariableDefinitions(), Matchers.hasItem("static final " +
+                "java.lang.invoke.MethodHandle HANDLE_evaluateLambda0 = Closure.findMethod(" +
+                "java.lang.invoke.MethodHandles.lookup(), \"evaluateLambda0\", 2);"));
+    }
+
+    @Test
+    public void non_escaping_lambdas_are_called_directly_without_a_closure() {
+        String input = "(define (sum_to n) (letrec ((loop (lambda (i acc) (if (> i n) acc " +
+                "(loop (+ i 1) (+ acc i)))))) (loop 1 0)))";
+
+        GeneratedCode generatedCode = visitParseTreeForInput(input);
+        assertThat(generatedCode.getMethodsToBeDeclared(), Matchers.hasItems(
+                "public static Object sum_to(Object n){{return evaluateLambda0(n,LITERAL_0,LITERAL_1);}}",
+                "public static Object evaluateLambda0(Object n,Object i,Object acc){while(true){" +
+                        "if((PredefinedProcedures.compare(i,n) > 0)){return acc;}else{" +
+                        "Object tailArgument0=PredefinedProcedures.add(i,LITERAL_0);" +
+                        "Object tailArgument1=PredefinedProcedures.add(acc,i);i=tailArgument0;acc=tailArgument1;}}}"));
+        assertThat(generatedCode.getVariableDefinitions().stream().anyMatch(field -> field.contains("HANDLE_")),
+                is(false));
+    }
+
+    @Test
+    public void closures_bound_to_local_variables_are_applied_through_the_closure_class() {
+        String input = "(define (twice f x) (f (f x)))";
+
+        assertThat(visitParseTreeForInput(input).getMethodsToBeDeclared().get(0),
+                is("public static Object twice(Object f,Object x){return Closure.tailApply(f,Closure.apply(f,x));}"));
+    }
+
+    @Test
+    public void expressions_before_the_last_one_of_a_body_become_statements_of_the_method() {
+        String input = "(define (f x) (display x) x (+ x 1))";
+
+        assertThat(visitParseTreeForInput(input).getMethodsToBeDeclared().get(0),
+                is("public static Object f(Object x){OutputPort.display(x);{Object discardedValue=x;}" +
+                        "return PredefinedProcedures.add(x,LITERAL_0);}"));
+    }
+
+    @Test
+    public void tail_calls_between_sibling_lambdas_are_returned_to_the_nearest_non_tail_call() {
+        String input = "(define (odd n) (letrec ((ev (lambda (k) (if (< k 1) #t (od (- k 1))))) " +
+                "(od (lambda (k) (if (< k 1) #f (ev (- k 1)))))) (od n))) (define (f n) (list (odd n)))";
+
+        GeneratedCode generatedCode = visitParseTreeForInput(input);
+        assertThat(generatedCode.getMethodsToBeDeclared(), Matchers.hasItems(
+                "public static Object odd(Object n){{return TailCall.create(HANDLE_evaluateLambda1,new Object[]{n});}}",
+                "public static Object f(Object n){return Pair.fromElements(new Object[]{TailCall.force(odd(n))});}",
+                "public static Object evaluateLambda0(Object k){if((PredefinedProcedures.compare(k,LITERAL_0) < 0))" +
+                        "{return Boolean.TRUE;}else{return TailCall.create(HANDLE_evaluateLambda1," +
+                        "new Object[]{PredefinedProcedures.subtract(k,LITERAL_0)});}}"));
     }
 
     private GeneratedCode visitParseTreeForInput(String input) {
@@ -0,0 +1,98 @@
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class CompilationCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path cacheDirectory;
+
+    @Before
+    public void setup() throws IOException {
+        cacheDirectory = folder.newFolder("cache").toPath();
+    }
+
+    @Test
+    public void compiling_the_same_source_twice_returns_the_cached_jar() throws IOException {
+        CompilationCache compilationCache = new CompilationCache(cacheDirectory, Long.MAX_VALUE);
+        File firstJarFile = folder.newFile("first.jar");
+        File secondJarFile = folder.newFile("second.jar");
+
+        Compiler compiler = new Compiler(firstJarFile);
+        compiler.setCompilationCache(compilationCache);
+        compiler.compile("(display (+ 1 2))");
+        compiler.compile("(display (+ 1 2))", secondJarFile);
+
+        assertThat(compilationCache.getMisses(), is(1L));
+        assertThat(compilationCache.getHits(), is(1L));
+        assertThat(Files.readAllBytes(secondJarFile.toPath()), is(Files.readAllBytes(firstJarFile.toPath())));
+    }
+
+    @Test
+    public void the_cache_key_depends_on_source_and_backend() throws IOException {
+        CompilationCache compilationCache = new CompilationCache(cacheDirectory, Long.MAX_VALUE);
+        File jarFile = folder.newFile("output.jar");
+
+        Compiler sourceCompiler = new Compiler(jarFile, Compiler.Backend.SOURCE);
+        sourceCompiler.setCompilationCache(compilationCache);
+        sourceCompiler.compile("(display 1)");
+        sourceCompiler.compile("(display 2)");
+
+        Compiler bytecodeCompiler = new Compiler(jarFile, Compiler.Backend.BYTECODE);
+        bytecodeCompiler.setCompilationCache(compilationCache);
+        bytecodeCompiler.compile("(display 1)");
+
+        assertThat(compilationCache.getMisses(), is(3L));
+        assertThat(compilationCache.getHits(), is(0L));
+    }
+
+    @Test
+    public void the_cache_key_depends_on_the_compiler_classes() throws IOException {
+        Path classDirectory = folder.newFolder("classes").toPath();
+        Files.createDirectories(classDirectory.resolve("runtime"));
+        Files.write(classDirectory.resolve("CodeGenVisitor.class"), new byte[]{1, 2, 3});
+        Files.write(classDirectory.resolve("runtime/Closure.class"), new byte[]{4, 5});
+        Files.write(classDirectory.resolve("notes.txt"), new byte[]{6});
+        byte[] digest = Compiler.digestCodeSource(classDirectory);
+
+        Files.write(classDirectory.resolve("notes.txt"), new byte[]{7});
+        assertThat(Compiler.digestCodeSource(classDirectory), is(digest));
+
+        Files.write(classDirectory.resolve("CodeGenVisitor.class"), new byte[]{1, 2, 4});
+        assertThat(Arrays.equals(Compiler.digestCodeSource(classDirectory), digest), is(false));
+    }
+
+    @Test
+    public void least_recently_used_entries_are_evicted_when_the_size_limit_is_exceeded() throws IOException {
+        Path jarFile = folder.newFile("output.jar").toPath();
+        Files.write(jarFile, new byte[100]);
+
+        CompilationCache compilationCache = new CompilationCache(cacheDirectory, 250);
+        compilationCache.store("first", jarFile);
+        compilationCache.store("second", jarFile);
+        Files.setLastModifiedTime(cacheDirectory.resolve("first.jar"), FileTime.fromMillis(1000));
+        Files.setLastModifiedTime(cacheDirectory.resolve("second.jar"), FileTime.fromMillis(2000));
+
+        compilationCache.retrieve("first", jarFile);
+        compilationCache.store("third", jarFile);
+
+        assertThat(Files.exists(cacheDirectory.resolve("first.jar")), is(true));
+        assertThat(Files.exists(cacheDirectory.resolve("second.jar")), is(false));
+        assertThat(Files.exists(cacheDirectory.resolve("third.jar")), is(true));
+        assertThat(compilationCache.retrieve("second", jarFile), is(false));
+    }
+
+}
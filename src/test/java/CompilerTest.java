@@ -4,13 +4,28 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.junit.rules.TemporaryFolder;
-
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.IOException;
-import java.io.InputStreamReader;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import runtime.OutputFormatter;
+import runtime.ProcedureLinker;
+
+import java.io.*;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
@@ -20,8 +35,17 @@ import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
 
+@RunWith(Parameterized.class)
 public class CompilerTest {
 
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> backends() {
+        return Arrays.asList(new Object[][]{{Compiler.Backend.SOURCE}, {Compiler.Backend.BYTECODE}});
+    }
+
+    @Parameterized.Parameter
+    public Compiler.Backend backend;
+
     @Rule
     public ExpectedException expectedException = ExpectedException.none();
 
@@ -44,7 +68,7 @@ public class CompilerTest {
     @Before
     public void setup() throws IOException {
         File jarFile = folder.newFile("output.jar");
-        compiler = new Compiler(jarFile);
+        compiler = new Compiler(jarFile, backend);
         directory = folder.getRoot();
     }
 
@@ -104,6 +128,14 @@ public class CompilerTest {
         compiler.compile("(define a_variable undefined_variable)");
     }
 
+    @Test
+    public void using_a_predefined_procedure_as_a_value_causes_an_exception() {
+        expectedException.expect(ParseCancellationException.class);
+        expectedException.expectMessage("Predefined procedure '+' cannot be used as a value");
+
+        compiler.compile("(define (apply2 f a b) (f a b)) (display (apply2 + 1 2))");
+    }
+
     @Test
     public void a_list_is_outputted_correctly() throws IOException {
         String input = "(display (list 15 (list \"abc\" #t) 7 (list #\\u #f) 2 \"a string\"))";
@@ -132,6 +164,69 @@ public class CompilerTest {
         assertThat(runJarFile(), is("(abc #t)\n"));
     }
 
+    @Test
+    public void pairs_can_be_consed_and_mutated() throws IOException {
+        String input = "(define (numbers) (cons 1 (cons 2 (list)))) ";
+        input += "(display (numbers)) (display (cons 1 2)) (display (list)) ";
+        input += "(display (let ((x (numbers))) (set-car! x 3) (set-cdr! (cdr x) 4) x)) ";
+        input += "(display (if (null? (cdr (cdr (numbers)))) (pair? (numbers)) 0))";
+
+        compiler.compile(input);
+
+        assertThat(runJarFile(), is("(1 2)\n(1 . 2)\n()\n(3 2 . 4)\n#t\n"));
+    }
+
+    @Test
+    public void long_lists_are_processed_in_linear_time() throws IOException {
+        String input = "(define (iota n acc) (if (< n 1) acc (iota (- n 1) (cons n acc)))) ";
+        input += "(define (sum xs acc) (if (null? xs) acc (sum (cdr xs) (+ acc (car xs))))) ";
+        input += "(display (sum (iota 1000000 (list)) 0)) ";
+        input += "(display (equal? (iota 1000000 (list)) (iota 1000000 (list))))";
+
+        compiler.compile(input);
+
+        assertThat(runJarFile(), is("500000500000\n#t\n"));
+    }
+
+    @Test
+    public void vectors_can_be_created_read_and_updated() throws IOException {
+        String input = "(define (sum v i acc) ";
+        input += "(if (< i (vector-length v)) (sum v (+ i 1) (+ acc (vector-ref v i))) acc)) ";
+        input += "(display (sum (make-vector 1000 2) 0 0)) ";
+        input += "(display (let ((w (vector 1 2 3))) (vector-set! w 1 \"two\") w)) ";
+        input += "(display (let ((w (make-vector 2))) (vector-fill! w #\\x) w)) ";
+        input += "(display (if (vector? (vector)) (equal? (vector 1 (list 2)) (vector 1 (list 2))) 0))";
+
+        compiler.compile(input);
+
+        assertThat(runJarFile(), is("2000\n#(1 two 3)\n#(x x)\n#t\n"));
+    }
+
+    @Test
+    public void bytevectors_can_be_allocated_copied_and_accessed_natively() throws IOException {
+        String input = "(display (let ((b (make-bytevector 8 1))) (bytevector-u8-set! b 0 255) b)) ";
+        input += "(display (let ((b (bytevector 1 2 3 4 5))) (bytevector-copy! b 1 b 0 3) b)) ";
+        input += "(display (let ((b (make-bytevector 8))) (bytevector-s32-native-set! b 4 -5) ";
+        input += "(list (bytevector-s32-native-ref b 4) (bytevector-u16-native-ref b 0) (bytevector-length b)))) ";
+        input += "(display (let ((b (make-bytevector 8 255))) (bytevector-u64-native-ref b 0)))";
+
+        compiler.compile(input);
+
+        assertThat(runJarFile(), is("#u8(255 1 1 1 1 1 1 1)\n#u8(1 1 2 3 5)\n(-5 0 8)\n18446744073709551615\n"));
+    }
+
+    @Test
+    public void files_can_be_mapped_as_bytevectors() throws IOException {
+        File file = new File(directory, "input.bin");
+        Files.write(file.toPath(), new byte[]{1, 2, 3, (byte) 200});
+        String input = String.format("(display (let ((b (open-mapped-bytevector \"%s\"))) ", file.getName());
+        input += "(list (bytevector-length b) (bytevector-u8-ref b 3) (bytevector? b))))";
+
+        compiler.compile(input);
+
+        assertThat(runJarFile(), is("(4 200 #t)\n"));
+    }
+
     @Test
     public void integers_can_be_added() throws IOException {
         String input = "(display (+ 2 3 (+ 3 7) 6))";
@@ -294,6 +389,125 @@ public class CompilerTest {
         assertThat(runJarFile(), is("a_string\n"));
     }
 
+    @Test
+    public void internal_procedure_definitions_see_the_variables_of_the_enclosing_procedure() throws IOException {
+        String input = "(define (f n) (define (scale y) (* y n)) (scale 3)) (display (f 2))";
+        input += "(define (g n) (define (h y) y) (h n)) (define (h z) 99) (display (g 4))";
+        input += "(define (sum n) (define (loop i acc) (define step 1) (if (> i n) acc (loop (+ i step) (+ acc i))))" +
+                " (loop 1 0)) (display (sum 1000000))";
+        input += "(define (k n) (define (outer y) (define (inner z) (+ z n y)) (inner 1)) (outer 10)) (display (k 100))";
+
+        compiler.compile(input);
+
+        assertThat(runJarFile(), is("6\n4\n500000500000\n111\n"));
+    }
+
+    @Test
+    public void local_definitions_are_not_shared_between_invocations() throws IOException {
+        String input = "(define (f n) (define m (* n 2)) (if (< n 1) m (+ (f (- n 1)) m))) (display (f 3))";
+
+        compiler.compile(input);
+
+        assertThat(runJarFile(), is("12\n"));
+    }
+
+    @Test
+    public void let_forms_bind_local_variables() throws IOException {
+        String input = "(define (f x) (let ((x (+ x 1)) (y x)) (+ (* x 10) y))) (display (f 1))";
+        input += "(define (g x) (let* ((x (+ x 1)) (y x)) (+ (* x 10) y))) (display (g 1))";
+        input += "(display (letrec ((a 1) (b (+ a 1))) b))";
+        input += "(display (+ 1 (let ((x 1)) (let ((x (+ x 1))) (* x x)))))";
+
+        compiler.compile(input);
+
+        assertThat(runJarFile(), is("21\n22\n2\n5\n"));
+    }
+
+    @Test
+    public void let_forms_outside_of_tail_positions_are_evaluated_in_order() throws IOException {
+        String input = "(define (sum n acc) (if (< n 1) acc (sum (- n 1) (+ acc (let ((d (* n 2))) (- d n))))))";
+        input += "(display (sum 1000 0))";
+        input += "(define (f x) (list (let ((y x)) (let ((x (+ y 1))) (* x y))) (letrec ((z x)) z)" +
+                " (let* ((a x) (g (lambda (b) (+ a b)))) (g 1))))";
+        input += "(display (f 4))";
+        input += "(define (big x) (+ 1 (let ((y x)) (+ " + String.join(" ", Collections.nCopies(500, "y")) + "))))";
+        input += "(display (big 2))";
+
+        compiler.compile(input);
+
+        assertThat(runJarFile(), is("500500\n(20 4 5)\n1001\n"));
+    }
+
+    @Test
+    public void bodies_can_contain_several_expressions_with_side_effects() throws IOException {
+        String input = "(define (f x) (display x) (+ x 0)) (display (f 3))";
+        input += "(display (let ((x 1)) (display x) 2))";
+        input += "(define (g v) (vector-set! v 0 5) (display (vector-ref v 0)) (let ((y 6)) (display y)" +
+                " (write-string \"w\") (newline) (lambda () y)))";
+        input += "(define (h n) (if (< n 1) 0 (begin2 n)))";
+        input += "(define (begin2 n) (display n) (h (- n 1)))";
+        input += "(display (h 2))";
+        input += "(let ((k (lambda (a) (display a) (list a a)))) (display (k 4)))";
+        input += "(g (make-vector 1 0))";
+
+        compiler.compile(input);
+
+        assertThat(runJarFile(), is("3\n3\n1\n2\n2\n1\n0\n4\n(4 4)\n5\n6\nw\n"));
+    }
+
+    @Test
+    public void let_forms_and_lambdas_can_be_operands_of_comparisons() throws IOException {
+        String input = "(define (f a) (equal? (let ((b a)) b) 1)) (display (f 1))";
+        input += "(define (g a) (< (let ((b a)) b) 5)) (display (g 1))";
+        input += "(define (h a) (>= (let ((b (+ a 4))) b) (let ((c 2)) c) 1)) (display (h 1))";
+        input += "(define (k a) (equal? (lambda (x) (+ x a)) a)) (display (k 1))";
+
+        compiler.compile(input);
+
+        assertThat(runJarFile(), is("#t\n#t\n#t\n#f\n"));
+    }
+
+    @Test
+    public void tail_calls_inside_let_bodies_are_eliminated() throws IOException {
+        String input = "(define (sum n acc) (if (< n 1) acc (let ((next (- n 1))) (sum next (+ acc n)))))";
+        input += "(display (sum 1000000 0))";
+
+        compiler.compile(input);
+
+        assertThat(runJarFile(), is("500000500000\n"));
+    }
+
+    @Test
+    public void tail_calls_through_closures_do_not_cause_the_stack_to_overflow() throws IOException {
+        String input = "(define (loop f n) (if (< n 1) 0 (f f (- n 1))))";
+        input += "(display (loop (lambda (g m) (loop g m)) 1000000))";
+        input += "(define (countdown n k) (if (< n 1) (k n) (let ((next (lambda (m) (k (+ m 1))))) " +
+                "(countdown (- n 1) (lambda (m) (next m))))))";
+        input += "(display (+ 1 (countdown 10 (lambda (m) m))))";
+
+        compiler.compile(input);
+
+        assertThat(runJarFile(), is("0\n11\n"));
+    }
+
+    @Test
+    public void tail_calls_between_mutually_recursive_lambdas_do_not_cause_the_stack_to_overflow()
+            throws IOException {
+        String input = "(define (odd n) (letrec ((ev (lambda (k) (if (< k 1) #t (od (- k 1)))))" +
+                " (od (lambda (k) (if (< k 1) #f (ev (- k 1)))))) (od n)))";
+        input += "(display (odd 100001))";
+        input += "(define (countto n) (define (up k) (if (< k n) (again (+ k 1)) k)) (define (again k) (up k))" +
+                " (up 0))";
+        input += "(display (countto 100001))";
+        input += "(define ev (lambda (k) (if (< k 1) #t (od (- k 1)))))";
+        input += "(define od (lambda (k) (if (< k 1) #f (ev (- k 1)))))";
+        input += "(display (list (ev 100001) (od 100001)))";
+
+        compiler.compile(input);
+
+        assertThat(runJarFile(), is("#t\n100001\n(#f #t)\n"));
+    }
+
     @Test
     public void a_procedure_can_call_predefined_procedures_in_its_body() throws IOException {
         String input = "(define (double_arg x) (* x 2)) (display (double_arg 12))";
@@ -339,7 +553,7 @@ public class CompilerTest {
     @Test
     public void non_tail_recursive_procedures_cause_the_stack_to_overflow_for_large_input_values_1() throws IOException {
         String input = "(define (fac n) (if (equal? n 0) 1 (* n (fac (- n 1)))))";
-        input += "(display (fac 5000))";
+        input += "(display (fac 100000))";
 
         compiler.compile(input);
 
@@ -349,7 +563,7 @@ public class CompilerTest {
     @Test
     public void non_tail_recursive_procedures_cause_the_stack_to_overflow_for_large_input_values_2() throws IOException {
         String input = "(define (fib n) (if (< n 3) 1 (+ (fib (- n 1)) (fib (- n 2)))))";
-        input += "(display (fib 5000))";
+        input += "(display (fib 100000))";
 
         compiler.compile(input);
 
@@ -370,6 +584,304 @@ public class CompilerTest {
         assertThat(runJarFile(), is(expectedOutput));
     }
 
+    @Test
+    public void strings_and_newlines_can_be_written_without_formatting() throws IOException {
+        String input = "(write-string \"a \") (write-string \"line\") (newline) (display 42)";
+
+        compiler.compile(input);
+
+        assertThat(runJarFile(), is("a line\n42\n"));
+    }
+
+    @Test
+    public void strings_and_newlines_are_written_each_time_a_procedure_writing_them_is_called() throws IOException {
+        String input = "(define (g) (write-string \"hi\") 5) (display 1) (display (g)) (display (g))";
+        input += "(define (h x) (if x (newline) (write-string \"no\"))) (display 7) (h #f) (display 8) (h #t)";
+        input += "(display (if (h #f) (newline) 9))";
+
+        compiler.compile(input);
+
+        assertThat(runJarFile(), is("1\nhi5\nhi5\n7\nno8\n\nno\n\n"));
+    }
+
+    @Test
+    public void a_program_can_be_run_in_memory_without_writing_a_jar_file() throws IOException {
+        String input = "(define (fac_acc n acc) (if (equal? n 0) acc (fac_acc (- n 1) (* n acc))))";
+        input += "(display (fac_acc 10 1))";
+        input += "(display (list 1 \"abc\" #t))";
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        compiler.run(input, new PrintStream(output, true, "utf8"));
+
+        assertThat(output.toString("utf8"), is("3628800\n(1 abc #t)\n"));
+        assertThat(new File(directory, "output.jar").length(), is(0L));
+    }
+
+    @Test
+    public void exceptions_thrown_by_a_program_run_in_memory_are_propagated() {
+        expectedException.expect(ClassCastException.class);
+
+        compiler.run("(display (+ 1 (list 2)))", new PrintStream(new ByteArrayOutputStream()));
+    }
+
+    @Test
+    public void a_compiler_can_be_reused_for_several_programs() throws IOException {
+        compiler.compile("(define (foo) 1) (display (foo))");
+        assertThat(runJarFile(), is("1\n"));
+
+        compiler.compile("(define (foo x) (+ x 1)) (display (if (equal? 1 1) (foo 41) 0))");
+        assertThat(runJarFile(), is("42\n"));
+    }
+
+    @Test
+    public void separate_compilers_can_compile_programs_concurrently() throws Exception {
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> outputs = IntStream.range(0, 16)
+                    .mapToObj(index -> executorService.submit(() -> {
+                        String input = String.format("(define (twice x) (* x 2)) (display (if (< %d 8) " +
+                                "(twice %d) %d))", index, index, index);
+
+                        ByteArrayOutputStream output = new ByteArrayOutputStream();
+                        new Compiler(null, backend).run(input, new PrintStream(output, true, "utf8"));
+                        return output.toString("utf8");
+                    }))
+                    .collect(Collectors.toList());
+
+            for (int index = 0; index < outputs.size(); index++) {
+                int expectedResult = index < 8 ? index * 2 : index;
+                assertThat(outputs.get(index).get(), is(expectedResult + "\n"));
+            }
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    @Test
+    public void integer_arithmetic_is_promoted_to_arbitrary_precision_on_overflow() throws IOException {
+        String input = "(define big 9223372036854775807) (display (* big 2)) (display (- (+ big 1) 1)) " +
+                "(display (< big (+ big 1))) (display (equal? (- (+ big 1) 1) big)) " +
+                "(display (quotient 123456789012345678901234567890 -1))";
+
+        compiler.compile(input);
+        String output = runJarFile();
+
+        assertThat(output, is("18446744073709551614\n9223372036854775807\n#t\n#t\n" +
+                "-123456789012345678901234567890\n"));
+    }
+
+    @Test
+    public void arithmetic_procedures_accept_any_number_of_arguments() throws IOException {
+        String input = "(define x 6) (display (+ x)) (display (- x)) (display (* x 2 x)) (display (- x 1 2)) " +
+                "(display (+ x x x x)) (display (* x x x x x)) (display (quotient x 4))";
+
+        compiler.compile(input);
+        String output = runJarFile();
+
+        assertThat(output, is("6\n-6\n72\n3\n24\n7776\n1\n"));
+    }
+
+    @Test
+    public void comparison_chains_can_be_evaluated_at_run_time() throws IOException {
+        String input = "(define x 5) (display (< 1 x 10)) (display (<= x x 4)) (display (> 10 x 5)) " +
+                "(display (>= x 5 5)) (display (< x 6))";
+
+        compiler.compile(input);
+        String output = runJarFile();
+
+        assertThat(output, is("#t\n#f\n#f\n#t\n#t\n"));
+    }
+
+    @Test
+    public void mutually_recursive_tail_calls_do_not_grow_the_stack() throws IOException {
+        String input = "(define (is_even n) (if (equal? n 0) #t (is_odd (- n 1)))) " +
+                "(define (is_odd n) (if (equal? n 0) #f (is_even (- n 1)))) " +
+                "(display (is_even 1000000)) (display (is_odd 7))";
+
+        compiler.compile(input);
+        String output = runJarFile();
+
+        assertThat(output, is("#t\n#t\n"));
+    }
+
+    @Test
+    public void tail_calls_in_nested_branches_are_eliminated() throws IOException {
+        String input = "(define (a n acc) (if (< n 1) acc (b (- n 1) acc 1))) " +
+                "(define (b n acc step) (if (> n 0) (c (- n 1) (+ acc step)) acc)) " +
+                "(define (c n acc) (if (< n 1) acc (if (> n 3) (a (- n 1) (+ acc 10)) (c (- n 1) (+ acc 100))))) " +
+                "(define (count n acc) (if (< n 1) acc (if (equal? (quotient n 2) 0) (count (- n 1) acc) " +
+                "(count (- n 1) (+ acc 1))))) " +
+                "(display (a 1000000 0)) (display (+ 1 (a 10 0))) (display (count 1000000 0))";
+
+        compiler.compile(input);
+        String output = runJarFile();
+
+        assertThat(output, is("3666853\n224\n999999\n"));
+    }
+
+    @Test
+    public void conditionals_can_be_nested_inside_expressions() throws IOException {
+        String input = "(define (sign x) (+ 0 (if (< x 0) -1 (if (> x 0) 1 0)))) " +
+                "(define (many x) (+ 0 (if (> x 0) (+ " + String.join(" ", Collections.nCopies(1100, "x")) +
+                ") #f))) " +
+                "(display (sign -5)) (display (sign 0)) (display (sign 7)) (display (many 2)) " +
+                "(display (list (if (< (sign 3) 1) \"no\" \"yes\") (if (sign 0) (equal? (sign 0) 0))))";
+
+        compiler.compile(input);
+        String output = runJarFile();
+
+        assertThat(output, is("-1\n0\n1\n2200\n(yes #t)\n"));
+    }
+
+    @Test
+    public void inlined_procedures_compute_the_same_results_as_calls() throws IOException {
+        String input = "(define (square x) (* x x)) (define (sum_of_squares a b) (+ (square a) (square b)))";
+        input += "(define (f y) (sum_of_squares (+ y 1) (- y 1))) (display (f 3))";
+        input += "(define n 5) (define (add_n x) (+ x n)) (define (g n) (add_n n)) (display (g 1))";
+        input += "(define (second a b) b) (define (h x) (second (f x) x)) (display (h 3))";
+        input += "(display (square (square 3)))";
+
+        compiler.compile(input);
+
+        assertThat(runJarFile(), is("20\n6\n3\n81\n"));
+    }
+
+    @Test
+    public void lambdas_can_be_passed_to_and_returned_from_procedures() throws IOException {
+        String input = "(define square (lambda (x) (* x x))) (define (make_adder n) (lambda (x) (+ x n)))";
+        input += "(define (compose f g) (lambda (x) (f (g x)))) (define (twice f x) (f (f x)))";
+        input += "(display (let ((h (compose square (make_adder 1)))) (h 4)))";
+        input += "(display (twice (make_adder 3) 10)) (display (twice square 3))";
+        input += "(define (many a b c d e) (list a b c d e)) (display (let ((m many)) (m 1 2 3 4 5)))";
+        input += "(display square)";
+
+        compiler.compile(input);
+
+        assertThat(runJarFile(), is("25\n16\n81\n(1 2 3 4 5)\n#<procedure>\n"));
+    }
+
+    @Test
+    public void local_lambdas_see_their_defining_environment_and_loop_in_tail_position() throws IOException {
+        String input = "(define (shadow x) (let ((f (lambda (y) (+ x y)))) (let ((x 100)) (f 1))))";
+        input += "(define (count n) (letrec ((loop (lambda (i acc) (if (> i n) acc (loop (+ i 1) (+ acc 1))))))" +
+                " (loop 1 0)))";
+        input += "(define (parity n) (define even (lambda (k) (if (< k 1) #t (odd (- k 1)))))" +
+                " (define odd (lambda (k) (if (< k 1) #f (even (- k 1))))) (even n))";
+        input += "(display (shadow 5)) (display (count 1000000)) (display (parity 11))";
+
+        compiler.compile(input);
+
+        assertThat(runJarFile(), is("6\n1000000\n#f\n"));
+    }
+
+    @Test
+    public void local_variables_shadow_procedures_which_could_be_folded_or_inlined() throws IOException {
+        String input = "(define (sq x) (* x x)) (define (add_one x) (+ x 1))";
+        input += "(display (let ((sq (lambda (x) (+ x 1)))) (sq 3)))";
+        input += "(define (apply_to_three sq) (sq 3)) (display (apply_to_three add_one))";
+        input += "(define (f y) (let ((sq (lambda (x) (+ x y)))) (sq 3))) (display (f 1))";
+        input += "(define (g y) (let ((sq (lambda (x) (+ x y)))) (if (< (sq 3) 5) (sq 3) 0))) (display (g 1))";
+
+        compiler.compile(input);
+
+        assertThat(runJarFile(), is("4\n4\n4\n4\n"));
+    }
+
+    @Test
+    public void programs_exceeding_the_method_and_constant_pool_limits_are_split() throws Exception {
+        String input = IntStream.range(0, 20000)
+                .mapToObj(index -> String.format("(display \"line %d\")", index))
+                .collect(Collectors.joining(" "));
+
+        CompilationStatistics statistics = compiler.compile(input);
+        String[] outputLines = runJarFile().split("\n");
+
+        assertThat(statistics.getBytecodeSize() > 20000 * 6, is(true));
+        assertThat(outputLines.length, is(20000));
+        assertThat(outputLines[0], is("line 0"));
+        assertThat(outputLines[19999], is("line 19999"));
+
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{new File(directory, "output.jar").toURI()
+                .toURL()}, getClass().getClassLoader())) {
+            assertThat(classLoader.loadClass("Main$Chunk1").getSuperclass(), is((Object) Object.class));
+        }
+    }
+
+    @Test
+    public void unused_definitions_are_not_compiled_into_the_program() throws IOException {
+        String prelude = "(define unused_variable 42) (define (unused_procedure x) (list x (unused_helper x)))" +
+                "(define (unused_helper x) (if (< x 1) unused_variable (unused_helper (- x 1))))";
+        String program = "(define greeting \"hello\") (define (greet x) (if (< x 1) greeting (greet (- x 1))))" +
+                "(display (greet 3))";
+
+        CompilationStatistics programStatistics = compiler.compile(program);
+        CompilationStatistics statistics = compiler.compile(prelude + program);
+
+        assertThat(statistics.getMethodCount(), is(programStatistics.getMethodCount()));
+        assertThat(statistics.getFieldCount(), is(programStatistics.getFieldCount()));
+        assertThat(runJarFile(), is("hello\n"));
+    }
+
+    @Test
+    public void procedures_can_be_redefined_while_a_program_is_running() throws Exception {
+        String input = "(define (f x) (if (< x 1) x (f (- x 1))))";
+        input += "(define (g x) (if (< x 0) (g x) (list (f x) x))) (display (g 3))";
+
+        compiler.compile(input);
+
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{new File(directory, "output.jar").toURI()
+                .toURL()}, getClass().getClassLoader())) {
+            Class<?> mainClass = classLoader.loadClass("Main");
+            Method procedure = mainClass.getMethod("g", Object.class);
+            assertThat(OutputFormatter.output(procedure.invoke(null, 3L)), is("(0 3)"));
+
+            ProcedureLinker.redefine(mainClass, "f", MethodHandles.dropArguments(
+                    MethodHandles.constant(Object.class, "redefined"), 0, Object.class));
+            assertThat(OutputFormatter.output(procedure.invoke(null, 3L)), is("(redefined 3)"));
+        }
+    }
+
+    @Test
+    public void redefining_a_procedure_does_not_affect_calls_which_were_inlined() throws Exception {
+        String input = "(define (f x) (list x 1)) (define (h x) (if (< x 1) x (h (- x 1))))";
+        input += "(define (g x) (if (< x 0) (g x) (list (f x) (h x)))) (display (g 3))";
+
+        compiler.compile(input);
+
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{new File(directory, "output.jar").toURI()
+                .toURL()}, getClass().getClassLoader())) {
+            Class<?> mainClass = classLoader.loadClass("Main");
+            Method procedure = mainClass.getMethod("g", Object.class);
+            assertThat(OutputFormatter.output(procedure.invoke(null, 3L)), is("((3 1) 0)"));
+
+            MethodHandle redefined = MethodHandles.dropArguments(MethodHandles.constant(Object.class, "redefined"),
+                    0, Object.class);
+            ProcedureLinker.redefine(mainClass, "f", redefined);
+            ProcedureLinker.redefine(mainClass, "h", redefined);
+            assertThat(OutputFormatter.output(procedure.invoke(null, 3L)), is("((3 1) redefined)"));
+        }
+    }
+
+    @Test
+    public void compiling_reports_statistics_for_every_phase() {
+        CompilationStatistics statistics = compiler.compile("(define foo 1) " +
+                "(define (bar x) (if (< x 1) foo (bar (- x 1)))) (display (bar 2))");
+
+        for (CompilationStatistics.Phase phase : CompilationStatistics.Phase.values()) {
+            assertThat(statistics.getElapsedNanos(phase) > 0, is(true));
+        }
+        assertThat(statistics.isCacheHit(), is(false));
+        assertThat(statistics.getFieldCount() >= 1, is(true));
+        assertThat(statistics.getMethodCount() >= 3, is(true));
+        assertThat(statistics.getBytecodeSize() > 0, is(true));
+        assertThat(statistics.getClassFileSize() > statistics.getBytecodeSize(), is(true));
+
+        ByteArrayOutputStream report = new ByteArrayOutputStream();
+        statistics.print(new PrintStream(report));
+        assertThat(report.toString(), containsString("code generation"));
+        assertThat(report.toString(), containsString("Methods: " + statistics.getMethodCount()));
+    }
+
     private String runJarFile() throws IOException {
         ProcessBuilder processBuilder = new ProcessBuilder();
         processBuilder.directory(directory);
@@ -0,0 +1,52 @@
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class DeadCodeEliminatorTest {
+
+    @Test
+    public void only_definitions_reachable_from_the_main_method_are_kept() {
+        GeneratedCode generatedCode = new GeneratedCode(Arrays.asList(
+                "public static Object f(Object x){return evaluateIf0(x);}",
+                "public static Object evaluateIf0(Object x){if(x){return used;}else{return LITERAL_0;}}",
+                "public static Object g(Object x){return unused;}",
+                "public static void main(String[] args){System.out.println(OutputFormatter.output(f(LITERAL_1)));}"),
+                Arrays.asList("static Number used = Long.valueOf(1L)", "static Number unused = used;",
+                        "static final Number LITERAL_0 = Long.valueOf(2L);",
+                        "static final Number LITERAL_1 = Long.valueOf(3L);"), null);
+
+        GeneratedCode eliminatedCode = DeadCodeEliminator.eliminate(generatedCode);
+
+        assertThat(eliminatedCode.getMethodsToBeDeclared(), is(Arrays.asList(
+                generatedCode.getMethodsToBeDeclared().get(0), generatedCode.getMethodsToBeDeclared().get(1),
+                generatedCode.getMethodsToBeDeclared().get(3))));
+        assertThat(eliminatedCode.getVariableDefinitions(), is(Arrays.asList("static Number used = Long.valueOf(1L)",
+                "static final Number LITERAL_0 = Long.valueOf(2L);",
+                "static final Number LITERAL_1 = Long.valueOf(3L);")));
+    }
+
+    @Test
+    public void main_chunks_are_roots_of_the_reachability_analysis() {
+        GeneratedCode generatedCode = new GeneratedCode(Arrays.asList("public static Object f(){return null;}",
+                "public static Object g(){return null;}"), Collections.emptyList(),
+                Arrays.asList("f();", "System.out.println(\"\");"), null);
+
+        assertThat(DeadCodeEliminator.eliminate(generatedCode).getMethodsToBeDeclared(),
+                is(Collections.singletonList("public static Object f(){return null;}")));
+    }
+
+    @Test
+    public void definitions_without_an_initializer_do_not_break_the_analysis() {
+        GeneratedCode generatedCode = new GeneratedCode(Collections.emptyList(),
+                Arrays.asList("static Object used;", "static Object unused;", ""),
+                Collections.singletonList("OutputPort.display(used);"), null);
+
+        assertThat(DeadCodeEliminator.eliminate(generatedCode).getVariableDefinitions(),
+                is(Arrays.asList("static Object used;", "")));
+    }
+
+}
@@ -51,4 +51,44 @@ public class GeneratedCodeBuilderTest {
         assertThat(generatedCode.getMethodsToBeDeclared().get(0), is(expectedOutput));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void merging_appends_the_other_builder_in_order() {
+        GeneratedCode.GeneratedCodeBuilder generatedCodeBuilder = new GeneratedCode.GeneratedCodeBuilder()
+                .addVariableDefinition("int a = 1;")
+                .addStatementsToMainMethod("first();");
+        GeneratedCode.GeneratedCodeBuilder other = new GeneratedCode.GeneratedCodeBuilder()
+                .addVariableDefinition("int b = 2;")
+                .addMethodToBeDeclared("second", "static void second(){}")
+                .addStatementsToMainMethod("second();")
+                .setGeneratedCode("second()");
+
+        GeneratedCode generatedCode = generatedCodeBuilder.mergeWith(other).build();
+
+        assertThat(generatedCode.getVariableDefinitions().size(), is(2));
+        assertThat(generatedCode.getVariableDefinitions().get(1), is("int b = 2;"));
+        assertThat(generatedCode.getMethodsToBeDeclared().get(0), is("static void second(){}"));
+        assertThat(generatedCode.getMethodsToBeDeclared().get(1),
+                is("public static void main(String[] args){first();second();}"));
+        assertThat(generatedCode.getGeneratedCode(), is("second()"));
+    }
+
+    @Test
+    public void large_main_methods_are_split_into_chunks() {
+        GeneratedCode.GeneratedCodeBuilder generatedCodeBuilder = new GeneratedCode.GeneratedCodeBuilder();
+        String statement = "System.out.println(OutputFormatter.output(new BigInteger(\"1\")));";
+        int statementCount = 3 * GeneratedCode.MAXIMUM_MAIN_CHUNK_LENGTH / statement.length();
+        for (int i = 0; i < statementCount; i++) {
+            generatedCodeBuilder.addStatementsToMainMethod(statement);
+        }
+
+        GeneratedCode generatedCode = generatedCodeBuilder.build();
+
+        assertThat(generatedCode.getMethodsToBeDeclared().size(), is(0));
+        assertThat(generatedCode.getMainChunks().size(), is(4));
+        for (String mainChunk : generatedCode.getMainChunks()) {
+            assertThat(mainChunk.length() <= GeneratedCode.MAXIMUM_MAIN_CHUNK_LENGTH, is(true));
+        }
+        assertThat(String.join("", generatedCode.getMainChunks()).length(), is(statementCount * statement.length()));
+    }
+
+}
@@ -0,0 +1,98 @@
+package lang;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+
+public class BytevectorTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void bytes_are_read_and_written_as_unsigned_values() {
+        Bytevector bytevector = Bytevector.allocate(3);
+        bytevector.fill(7);
+        bytevector.set(1, 255);
+
+        assertThat(bytevector.length(), is(3L));
+        assertThat(bytevector.get(0), is(7));
+        assertThat(bytevector.get(1), is(255));
+    }
+
+    @Test
+    public void multi_byte_values_use_the_native_byte_order() {
+        Bytevector bytevector = Bytevector.allocate(8);
+        bytevector.setNative(0, 4, 0x01020304L);
+
+        int first = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN ? 4 : 1;
+        assertThat(bytevector.get(0), is(first));
+        assertThat(bytevector.getNative(0, 4, false), is(0x01020304L));
+
+        bytevector.setNative(2, 2, -2L);
+
+        assertThat(bytevector.getNative(2, 2, true), is(-2L));
+        assertThat(bytevector.getNative(2, 2, false), is(65534L));
+
+        bytevector.setNative(0, 8, Long.MIN_VALUE);
+
+        assertThat(bytevector.getNative(0, 8, true), is(Long.MIN_VALUE));
+    }
+
+    @Test
+    public void overlapping_copies_within_a_bytevector_preserve_the_source_bytes() {
+        Bytevector bytevector = Bytevector.allocate(6);
+        for (int i = 0; i < 6; i++) {
+            bytevector.set(i, i + 1);
+        }
+
+        Bytevector.copy(bytevector, 2, bytevector, 0, 4);
+
+        assertThat(bytevector, is(bytes(1, 2, 1, 2, 3, 4)));
+
+        Bytevector.copy(bytevector, 0, bytevector, 1, 5);
+
+        assertThat(bytevector, is(bytes(2, 1, 2, 3, 3, 4)));
+    }
+
+    @Test
+    public void bytevectors_are_equal_if_they_contain_the_same_bytes() {
+        assertThat(bytes(1, 2, 3), is(bytes(1, 2, 3)));
+        assertThat(bytes(1, 2, 3).hashCode(), is(bytes(1, 2, 3).hashCode()));
+        assertThat(bytes(1, 2, 3), not(is(bytes(1, 2, 4))));
+        assertThat(bytes(1, 2, 3), not(is(bytes(1, 2))));
+    }
+
+    @Test
+    public void files_can_be_mapped_as_bytevectors() throws IOException {
+        File file = temporaryFolder.newFile();
+        Files.write(file.toPath(), new byte[]{10, 20, 30, 40});
+
+        Bytevector bytevector = Bytevector.map(file.getPath(), true);
+        bytevector.set(0, 11);
+
+        assertThat(bytevector, is(bytes(11, 20, 30, 40)));
+        assertThat(ByteBuffer.wrap(Files.readAllBytes(file.toPath())).get(0), is((byte) 11));
+        assertThat(Bytevector.map(file.getPath(), false).get(3), is(40));
+    }
+
+    private static Bytevector bytes(int... values) {
+        Bytevector bytevector = Bytevector.allocate(values.length);
+        for (int i = 0; i < values.length; i++) {
+            bytevector.set(i, values[i]);
+        }
+
+        return bytevector;
+    }
+
+}
@@ -0,0 +1,107 @@
+package lang;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertThat;
+
+public class PairTest {
+
+    @Test
+    public void car_returns_the_head_of_the_list() {
+        Pair list = (Pair) Pair.fromElements(new Object[]{new BigInteger("134343434"), "a string", true, 'a'});
+        assertThat(list.car(), is(new BigInteger("134343434")));
+    }
+
+    @Test
+    public void cdr_returns_all_but_the_head_of_the_list() {
+        Pair list = (Pair) Pair.fromElements(new Object[]{new BigInteger("134343434"), "a string", true, 'a'});
+        Object tail = Pair.fromElements(new Object[]{"a string", true, 'a'});
+        assertThat(list.cdr(), is(tail));
+    }
+
+    @Test
+    public void the_empty_list_is_a_singleton() {
+        assertThat(Pair.fromElements(new Object[0]), is(sameInstance((Object) EmptyList.INSTANCE)));
+        assertThat(((Pair) Pair.fromElements(new Object[]{1L})).cdr(), is(sameInstance((Object) EmptyList.INSTANCE)));
+    }
+
+    @Test
+    public void consing_shares_the_structure_of_the_tail() {
+        Pair tail = (Pair) Pair.fromElements(new Object[]{2L, 3L});
+        Pair list = new Pair(1L, tail);
+
+        assertThat(list.cdr(), is(sameInstance((Object) tail)));
+
+        tail.setCar(4L);
+
+        assertThat(list.getElements(), is(Arrays.asList((Object) 1L, 4L, 3L)));
+    }
+
+    @Test
+    public void two_lists_are_equal_if_they_contain_the_same_elements_in_same_order() {
+        Object list1 = Pair.fromElements(new Object[]{"a string", true, 'a'});
+        Object list2 = Pair.fromElements(new Object[]{"a string", true, 'a'});
+        Object list3 = Pair.fromElements(new Object[]{"another string", true, 'a'});
+        Object list4 = Pair.fromElements(new Object[]{true, "a string", 'a'});
+        Object list5 = Pair.fromElements(new Object[]{"a string", true});
+
+        assertThat(list1, is(list2));
+        assertThat(list1.hashCode(), is(list2.hashCode()));
+        assertThat(list1, not(is(list3)));
+        assertThat(list1, not(is(list4)));
+        assertThat(list1, not(is(list5)));
+        assertThat(new Pair(1L, 2L), is(new Pair(1L, 2L)));
+        assertThat(new Pair(1L, 2L), not(is(Pair.fromElements(new Object[]{1L, 2L}))));
+    }
+
+    @Test
+    public void long_lists_are_compared_without_exhausting_the_stack() {
+        Object[] elements = new Object[1000000];
+        Arrays.fill(elements, 1L);
+
+        Object list1 = Pair.fromElements(elements);
+        Object list2 = Pair.fromElements(elements);
+
+        assertThat(list1, is(list2));
+        assertThat(list1.hashCode(), is(list2.hashCode()));
+    }
+
+    @Test
+    public void deeply_nested_lists_are_compared_without_exhausting_the_stack() {
+        Object list1 = EmptyList.INSTANCE;
+        Object list2 = EmptyList.INSTANCE;
+        for (int i = 0; i < 200000; i++) {
+            list1 = new Pair(list1, new Pair(1L, EmptyList.INSTANCE));
+            list2 = new Pair(list2, new Pair(1L, EmptyList.INSTANCE));
+        }
+
+        assertThat(list1, is(list2));
+        assertThat(list1.hashCode(), is(list2.hashCode()));
+        assertThat(list1, not(is(new Pair(list2, EmptyList.INSTANCE))));
+    }
+
+    @Test
+    public void lists_can_be_nested() {
+        Pair list = (Pair) Pair.fromElements(new Object[]{"a string",
+                Pair.fromElements(new Object[]{new BigInteger("439533232"), "another string"}), 'a'});
+
+        Object element = ((Pair) list.cdr()).car();
+
+        assertThat(element, instanceOf(Pair.class));
+
+        Pair innerList = (Pair) element;
+
+        assertThat(innerList.car(), instanceOf(BigInteger.class));
+        assertThat(innerList.car(), is(new BigInteger("439533232")));
+
+        assertThat(innerList.cdr(), instanceOf(Pair.class));
+
+        assertThat(((Pair) innerList.cdr()).car(), instanceOf(String.class));
+        assertThat(((Pair) innerList.cdr()).car(), is("another string"));
+    }
+
+}
@@ -0,0 +1,65 @@
+package lang;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+
+public class VectorWrapperTest {
+
+    @Test
+    public void vectors_of_fixnums_are_stored_unboxed() {
+        VectorWrapper vector = VectorWrapper.fromElements(new Object[]{1L, 2L, 3L});
+
+        assertThat(vector.isFixnumVector(), is(true));
+        assertThat(vector.length(), is(3));
+        assertThat(vector.get(1), is((Object) 2L));
+        assertThat(VectorWrapper.fromElements(new Object[]{1L, "two"}).isFixnumVector(), is(false));
+        assertThat(VectorWrapper.withLength(4, 0L).isFixnumVector(), is(true));
+    }
+
+    @Test
+    public void storing_a_non_fixnum_generalizes_the_storage() {
+        VectorWrapper vector = VectorWrapper.withLength(3, 7L);
+
+        vector.set(0, 8L);
+
+        assertThat(vector.isFixnumVector(), is(true));
+
+        vector.set(2, new BigInteger("123456789012345678901234567890"));
+
+        assertThat(vector.isFixnumVector(), is(false));
+        assertThat(vector, is(VectorWrapper.fromElements(new Object[]{8L, 7L,
+                new BigInteger("123456789012345678901234567890")})));
+    }
+
+    @Test
+    public void filling_a_vector_chooses_the_storage_for_the_fill_value() {
+        VectorWrapper vector = VectorWrapper.fromElements(new Object[]{"a", "b"});
+
+        vector.fill(5L);
+
+        assertThat(vector.isFixnumVector(), is(true));
+        assertThat(vector, is(VectorWrapper.fromElements(new Object[]{5L, 5L})));
+
+        vector.fill('c');
+
+        assertThat(vector.isFixnumVector(), is(false));
+        assertThat(vector, is(VectorWrapper.fromElements(new Object[]{'c', 'c'})));
+    }
+
+    @Test
+    public void vectors_are_equal_if_they_contain_equal_elements_regardless_of_storage() {
+        VectorWrapper fixnums = VectorWrapper.fromElements(new Object[]{1L, 2L});
+        VectorWrapper objects = VectorWrapper.fromElements(new Object[]{1L, "x"});
+        objects.set(1, 2L);
+
+        assertThat(fixnums, is(objects));
+        assertThat(fixnums.hashCode(), is(objects.hashCode()));
+        assertThat(fixnums, not(is(VectorWrapper.fromElements(new Object[]{1L, 2L, 3L}))));
+    }
+
+}
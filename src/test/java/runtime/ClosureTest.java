@@ -0,0 +1,68 @@
+package runtime;
+
+import org.junit.Test;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class ClosureTest {
+
+    public static Object subtract(Object minuend, Object subtrahend) {
+        return PredefinedProcedures.subtract(minuend, subtrahend);
+    }
+
+    public static Object tailSubtract(Object closure, Object subtrahend) {
+        return Closure.tailApply(closure, subtrahend);
+    }
+
+    public static Object sum(Object first, Object second, Object third, Object fourth) {
+        return PredefinedProcedures.add(new Object[]{first, second, third, fourth});
+    }
+
+    @Test
+    public void free_variables_are_bound_before_the_arguments() {
+        MethodHandle method = Closure.findMethod(MethodHandles.lookup(), "subtract", 2);
+
+        assertThat(Closure.apply(Closure.create(method, new Object[]{10L}), 3L), is((Object) 7L));
+        assertThat(Closure.apply(Closure.create(method, new Object[0]), 3L, 10L), is((Object) (-7L)));
+    }
+
+    @Test
+    public void closures_can_be_applied_to_more_arguments_than_the_fixed_arities() {
+        MethodHandle method = Closure.findMethod(MethodHandles.lookup(), "sum", 4);
+
+        assertThat(Closure.apply(Closure.create(method, new Object[0]), new Object[]{1L, 2L, 3L, 4L}),
+                is((Object) 10L));
+    }
+
+    @Test
+    public void tail_applications_are_made_by_the_enclosing_application() {
+        MethodHandle method = Closure.findMethod(MethodHandles.lookup(), "subtract", 2);
+        Object closure = Closure.create(method, new Object[]{10L});
+
+        assertThat(Closure.tailApply(closure, 3L) instanceof TailCall, is(true));
+        assertThat(TailCall.force(Closure.tailApply(closure, 3L)), is((Object) 7L));
+        assertThat(Closure.apply(Closure.create(Closure.findMethod(MethodHandles.lookup(), "tailSubtract", 2),
+                new Object[]{closure}), 3L), is((Object) 7L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void tail_applying_a_closure_to_the_wrong_number_of_arguments_fails() {
+        Closure.tailApply(Closure.create(Closure.findMethod(MethodHandles.lookup(), "subtract", 2), new Object[0]),
+                1L);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void applying_a_closure_to_the_wrong_number_of_arguments_fails() {
+        Closure.apply(Closure.create(Closure.findMethod(MethodHandles.lookup(), "subtract", 2), new Object[0]), 1L);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void applying_a_non_procedure_fails() {
+        Closure.apply(1L, 2L);
+    }
+
+}
@@ -1,8 +1,12 @@
 package runtime;
 
-import lang.ListWrapper;
+import lang.Bytevector;
+import lang.EmptyList;
+import lang.Pair;
+import lang.VectorWrapper;
 import org.junit.Test;
 
+import java.io.IOException;
 import java.math.BigInteger;
 
 import static org.hamcrest.CoreMatchers.is;
@@ -32,17 +36,69 @@ public class OutputFormatterTest {
     @Test
     public void integers_are_formatted_correctly() {
         assertThat(output(new BigInteger("469284342")), is("469284342"));
+        assertThat(output(469284342L), is("469284342"));
+        assertThat(output((Object) 469284342L), is("469284342"));
     }
 
     @Test
     public void a_list_is_formatted_correctly() {
 
-        ListWrapper listWrapper = ListWrapper.fromElements(new Object[]{new BigInteger("15"),
-                ListWrapper.fromElements(new Object[]{"abc", true}), new BigInteger("7"),
-                ListWrapper.fromElements(new Object[]{'u', false}), new BigInteger("2"),
+        Object list = Pair.fromElements(new Object[]{new BigInteger("15"),
+                Pair.fromElements(new Object[]{"abc", true}), new BigInteger("7"),
+                Pair.fromElements(new Object[]{'u', false}), new BigInteger("2"),
                 "a_string"});
 
-        assertThat(output(listWrapper), is("(15 (abc #t) 7 (u #f) 2 a_string)"));
+        assertThat(output(list), is("(15 (abc #t) 7 (u #f) 2 a_string)"));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void empty_and_improper_lists_are_formatted_correctly() {
+        assertThat(output((Object) EmptyList.INSTANCE), is("()"));
+        assertThat(output(new Pair(1L, 2L)), is("(1 . 2)"));
+        assertThat(output(new Pair(1L, new Pair(2L, 3L))), is("(1 2 . 3)"));
+    }
+
+    @Test
+    public void fixnums_are_formatted_without_conversion_to_strings() {
+        assertThat(output((Object) 0L), is("0"));
+        assertThat(output((Object) (-7L)), is("-7"));
+        assertThat(output((Object) 1000L), is("1000"));
+        assertThat(output((Object) Long.MAX_VALUE), is(String.valueOf(Long.MAX_VALUE)));
+        assertThat(output((Object) Long.MIN_VALUE), is(String.valueOf(Long.MIN_VALUE)));
+    }
+
+    @Test
+    public void deeply_nested_lists_are_printed_without_exhausting_the_stack() throws IOException {
+        Object list = EmptyList.INSTANCE;
+        for (int i = 0; i < 1000000; i++) {
+            list = new Pair(list, EmptyList.INSTANCE);
+        }
+
+        StringBuilder output = new StringBuilder();
+        OutputFormatter.print(list, output);
+
+        assertThat(output.length(), is(2000002));
+        assertThat(output.substring(0, 4), is("(((("));
+        assertThat(output.substring(output.length() - 4), is("))))"));
+    }
+
+    @Test
+    public void vectors_are_formatted_correctly() {
+        Object vector = VectorWrapper.fromElements(new Object[]{1L,
+                Pair.fromElements(new Object[]{"a", VectorWrapper.fromElements(new Object[0])}),
+                new Pair(2L, VectorWrapper.fromElements(new Object[]{3L}))});
+
+        assertThat(output(vector), is("#(1 (a #()) (2 . #(3)))"));
+    }
+
+    @Test
+    public void bytevectors_are_formatted_correctly() {
+        Bytevector bytevector = Bytevector.allocate(3);
+        bytevector.set(1, 255);
+        bytevector.set(2, 7);
+
+        assertThat(output((Object) bytevector), is("#u8(0 255 7)"));
+        assertThat(output((Object) Bytevector.allocate(0)), is("#u8()"));
+    }
+
+}
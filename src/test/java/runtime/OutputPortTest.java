@@ -0,0 +1,82 @@
+package runtime;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class OutputPortTest {
+
+    private static final String NEWLINE = System.lineSeparator();
+
+    @Test
+    public void output_is_buffered_until_the_port_is_flushed() {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        OutputPort port = OutputPort.open(output, OutputPort.FLUSH_ON_EXIT);
+
+        port.write("abc");
+        port.writeNewline();
+
+        assertThat(output.size(), is(0));
+
+        port.flush();
+
+        assertThat(output.toString(), is("abc" + NEWLINE));
+    }
+
+    @Test
+    public void a_newline_flushes_the_port_when_flushing_on_newline() {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        OutputPort port = OutputPort.open(output, OutputPort.FLUSH_ON_NEWLINE);
+
+        port.write("abc");
+
+        assertThat(output.size(), is(0));
+
+        port.writeNewline();
+
+        assertThat(output.toString(), is("abc" + NEWLINE));
+    }
+
+    @Test
+    public void the_port_is_flushed_once_the_flush_size_is_reached_when_flushing_by_size() {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        OutputPort port = new OutputPort(Channels.newChannel(output), OutputPort.FLUSH_BY_SIZE, 4);
+
+        port.write("abc");
+
+        assertThat(output.size(), is(0));
+
+        port.write("de");
+
+        assertThat(output.toString(), is("abcde"));
+    }
+
+    @Test
+    public void output_larger_than_the_buffers_is_written_completely() {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        OutputPort port = OutputPort.open(output, OutputPort.FLUSH_ON_EXIT);
+
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            String line = "line " + i + " é€";
+            port.write(line);
+            port.writeNewline();
+            expected.append(line).append(NEWLINE);
+        }
+        port.flush();
+
+        assertThat(new String(output.toByteArray(), Charset.defaultCharset()),
+                is(expected.toString()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void an_unknown_flush_policy_is_rejected() {
+        OutputPort.open(new ByteArrayOutputStream(), "sometimes");
+    }
+
+}
@@ -1,6 +1,8 @@
 package runtime;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.ExpectedException;
 
 import java.math.BigInteger;
 
@@ -9,33 +11,100 @@ import static org.hamcrest.MatcherAssert.assertThat;
 
 public class PredefinedProceduresTest {
 
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
     @Test
     public void integers_are_added_correctly() {
-        assertThat(PredefinedProcedures.add(new Object[]{new BigInteger("2"),
-                PredefinedProcedures.add(new Object[]{new BigInteger("10"), new BigInteger("5")}),
-                new BigInteger("20")}), is(new BigInteger("37")));
+        assertThat(PredefinedProcedures.add(new Object[]{2L,
+                PredefinedProcedures.add(new Object[]{10L, 5L}),
+                20L}), is((Number) 37L));
     }
 
     @Test
     public void integers_are_subtracted_correctly() {
-        assertThat(PredefinedProcedures.subtract(new Object[]{new BigInteger("10"),
-                        PredefinedProcedures.subtract(new Object[]{new BigInteger("5"), new BigInteger("200")}),
-                        new BigInteger("375"), PredefinedProcedures.negate(new Object[]{new BigInteger("20")})}),
-                is(new BigInteger("-150")));
+        assertThat(PredefinedProcedures.subtract(new Object[]{10L,
+                        PredefinedProcedures.subtract(new Object[]{5L, 200L}),
+                        375L, PredefinedProcedures.negate(new Object[]{20L})}),
+                is((Number) (-150L)));
     }
 
     @Test
     public void integers_are_multiplied_correctly() {
-        assertThat(PredefinedProcedures.multiply(new Object[]{new BigInteger("2"), new BigInteger("10"),
-                        PredefinedProcedures.multiply(new Object[]{new BigInteger("3"), new BigInteger("7")})}),
-                is(new BigInteger("420")));
+        assertThat(PredefinedProcedures.multiply(new Object[]{2L, 10L,
+                        PredefinedProcedures.multiply(new Object[]{3L, 7L})}),
+                is((Number) 420L));
     }
 
     @Test
     public void integers_are_divided_correctly() {
-        assertThat(PredefinedProcedures.divide(new Object[]{new BigInteger("10"),
-                        PredefinedProcedures.divide(new Object[]{new BigInteger("7"), new BigInteger("3")})}),
-                is(new BigInteger("5")));
+        assertThat(PredefinedProcedures.divide(new Object[]{10L,
+                        PredefinedProcedures.divide(new Object[]{7L, 3L})}),
+                is((Number) 5L));
+    }
+
+    @Test
+    public void fixed_arity_entry_points_match_the_variadic_ones() {
+        assertThat(PredefinedProcedures.add(5L), is(PredefinedProcedures.add(new Object[]{5L})));
+        assertThat(PredefinedProcedures.add(1L, 2L, 3L), is(PredefinedProcedures.add(new Object[]{1L, 2L, 3L})));
+        assertThat(PredefinedProcedures.subtract(10L, 2L, 3L),
+                is(PredefinedProcedures.subtract(new Object[]{10L, 2L, 3L})));
+        assertThat(PredefinedProcedures.multiply(5L), is(PredefinedProcedures.multiply(new Object[]{5L})));
+        assertThat(PredefinedProcedures.multiply(2L, 3L, 4L),
+                is(PredefinedProcedures.multiply(new Object[]{2L, 3L, 4L})));
+        assertThat(PredefinedProcedures.add(Long.MAX_VALUE, 1L, -1L), is((Number) Long.MAX_VALUE));
+    }
+
+    @Test
+    public void comparison_chains_hold_for_every_adjacent_pair() {
+        Number big = PredefinedProcedures.add(Long.MAX_VALUE, 1L);
+
+        assertThat(PredefinedProcedures.lessThan(new Object[]{1L, 2L, big}), is(true));
+        assertThat(PredefinedProcedures.lessThan(new Object[]{1L, 2L, 2L}), is(false));
+        assertThat(PredefinedProcedures.lessThanOrEqual(new Object[]{1L, 2L, 2L}), is(true));
+        assertThat(PredefinedProcedures.greaterThan(new Object[]{big, 2L, 1L}), is(true));
+        assertThat(PredefinedProcedures.greaterThan(new Object[]{3L, 1L, 2L}), is(false));
+        assertThat(PredefinedProcedures.greaterThanOrEqual(new Object[]{3L, 3L, 1L}), is(true));
+        assertThat(PredefinedProcedures.lessThan(new Object[]{1L}), is(true));
+    }
+
+    @Test
+    public void fixnums_are_promoted_to_big_integers_on_overflow() {
+        BigInteger maximum = BigInteger.valueOf(Long.MAX_VALUE);
+        BigInteger minimum = BigInteger.valueOf(Long.MIN_VALUE);
+
+        assertThat(PredefinedProcedures.add(Long.MAX_VALUE, 1L), is((Number) maximum.add(BigInteger.ONE)));
+        assertThat(PredefinedProcedures.subtract(Long.MIN_VALUE, 1L), is((Number) minimum.subtract(BigInteger.ONE)));
+        assertThat(PredefinedProcedures.multiply(Long.MAX_VALUE, 2L),
+                is((Number) maximum.multiply(BigInteger.valueOf(2))));
+        assertThat(PredefinedProcedures.negate(Long.MIN_VALUE), is((Number) minimum.negate()));
+        assertThat(PredefinedProcedures.divide(Long.MIN_VALUE, -1L), is((Number) minimum.negate()));
+    }
+
+    @Test
+    public void big_integers_are_demoted_to_fixnums_when_they_fit() {
+        Number big = PredefinedProcedures.add(Long.MAX_VALUE, 1L);
+
+        assertThat(PredefinedProcedures.subtract(big, 1L), is((Number) Long.MAX_VALUE));
+        assertThat(PredefinedProcedures.normalize(new BigInteger("42")), is((Number) 42L));
+    }
+
+    @Test
+    public void fixnums_and_big_integers_can_be_compared() {
+        Number big = PredefinedProcedures.add(Long.MAX_VALUE, 1L);
+
+        assertThat(PredefinedProcedures.compare(1L, 2L), is(-1));
+        assertThat(PredefinedProcedures.compare(big, Long.MAX_VALUE), is(1));
+        assertThat(PredefinedProcedures.compare(Long.MIN_VALUE, big), is(-1));
+        assertThat(PredefinedProcedures.compare(big, PredefinedProcedures.add(Long.MAX_VALUE, 1L)), is(0));
+    }
+
+    @Test
+    public void bytevector_type_errors_name_the_offending_argument() {
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("passed as argument 3 to bytevector-copy!, is not a bytevector");
+
+        PredefinedProcedures.bytevectorCopy(PredefinedProcedures.makeBytevector(4L), 0L, "not a bytevector");
     }
 
 }
@@ -0,0 +1,52 @@
+package runtime;
+
+import org.junit.Test;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class ProcedureLinkerTest {
+
+    public static Object twice(Object argument) {
+        return PredefinedProcedures.multiply(argument, 2L);
+    }
+
+    public static Object negated(Object argument) {
+        return PredefinedProcedures.negate(argument);
+    }
+
+    @Test
+    public void call_sites_are_bound_to_the_static_method_of_the_owner() throws Throwable {
+        CallSite callSite = ProcedureLinker.bootstrap(MethodHandles.lookup(), "twice",
+                MethodType.genericMethodType(1), ProcedureLinkerTest.class);
+
+        assertThat(callSite.dynamicInvoker().invoke((Object) 21L), is((Object) 42L));
+    }
+
+    @Test
+    public void call_sites_of_the_same_procedure_are_shared() {
+        MethodType type = MethodType.genericMethodType(1);
+
+        assertThat(ProcedureLinker.bootstrap(MethodHandles.lookup(), "twice", type, ProcedureLinkerTest.class),
+                sameInstance(ProcedureLinker.bootstrap(MethodHandles.lookup(), "twice", type,
+                        ProcedureLinkerTest.class)));
+    }
+
+    @Test
+    public void redefining_a_procedure_rebinds_its_call_sites() throws Throwable {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        MethodType type = MethodType.genericMethodType(1);
+        CallSite callSite = ProcedureLinker.bootstrap(lookup, "negated", type, ProcedureLinkerTest.class);
+
+        ProcedureLinker.redefine(ProcedureLinkerTest.class, "negated",
+                lookup.findStatic(ProcedureLinkerTest.class, "twice", type));
+
+        assertThat(callSite.dynamicInvoker().invoke((Object) 21L), is((Object) 42L));
+    }
+
+}
@@ -0,0 +1,39 @@
+package runtime;
+
+import org.junit.Test;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class TailCallTest {
+
+    private static final MethodHandle COUNT_DOWN = Closure.findMethod(MethodHandles.lookup(), "countDown", 1);
+    private static final MethodHandle SUM = Closure.findMethod(MethodHandles.lookup(), "sum", 4);
+
+    public static Object countDown(Object n) {
+        return (Long) n == 0 ? "done" : TailCall.create(COUNT_DOWN, new Object[]{(Long) n - 1});
+    }
+
+    public static Object sum(Object first, Object second, Object third, Object fourth) {
+        return PredefinedProcedures.add(new Object[]{first, second, third, fourth});
+    }
+
+    @Test
+    public void forcing_runs_chains_of_tail_calls_in_constant_stack_space() {
+        assertThat(TailCall.force(countDown(1000000L)), is((Object) "done"));
+    }
+
+    @Test
+    public void forcing_returns_other_values_unchanged() {
+        assertThat(TailCall.force(1L), is((Object) 1L));
+    }
+
+    @Test
+    public void tail_calls_can_have_more_arguments_than_the_fixed_arities() {
+        assertThat(TailCall.force(TailCall.create(SUM, new Object[]{1L, 2L, 3L, 4L})), is((Object) 10L));
+    }
+
+}